@@ -138,6 +138,7 @@ CREATE TABLE `patient` (
   `GeschlechtID` int DEFAULT NULL,
   `KrankenkasseID` int DEFAULT NULL,
   `Sonstiges` varchar(255) DEFAULT NULL,
+  `Version` int NOT NULL DEFAULT '0',
   PRIMARY KEY (`PatientID`),
   KEY `BundeslandID` (`BundeslandID`),
   KEY `GeschlechtID` (`GeschlechtID`),
@@ -154,7 +155,7 @@ CREATE TABLE `patient` (
 
 LOCK TABLES `patient` WRITE;
 /*!40000 ALTER TABLE `patient` DISABLE KEYS */;
-INSERT INTO `patient` VALUES (1,'Johann','Muster','Herr','1985-06-15','Hauptstraße 10','1010','Wien',9,'+436641234567',1,1,'Allergie gegen Pollen'),(2,'Anna','Beispiel','Frau','1990-03-22','Linzergasse 15','5020','Salzburg',5,'+436509876543',2,2,'Vegetarierin'),(3,'Johann','Muster','Herr','1985-06-15','Hauptstraße 10','1010','Wien',9,'+436641234567',1,1,'Allergie gegen Pollen'),(4,'Anna','Beispiel','Frau','1990-03-22','Linzergasse 15','5020','Salzburg',5,'+436509876543',2,2,'Vegetarierin'),(5,'Michael','Huber','Herr','1978-11-03','Schlossallee 3','4020','Linz',4,'+436601234567',1,3,'Diabetes Typ 2'),(6,'Sabine','Maier','Frau','1982-07-19','Ringstraße 12','8010','Graz',6,'+436761234567',2,4,'Laktoseintoleranz'),(7,'Klaus','Schmidt','Herr','1995-01-25','Bahnhofstraße 7','6020','Innsbruck',7,'+436771234567',1,1,'Raucher'),(8,'Petra','Wagner','Frau','1988-05-14','Seestraße 21','5700','Zell am See',5,'+436881234567',2,2,'Glutenunverträglichkeit'),(9,'Thomas','Gruber','Herr','1965-09-12','Landstraße 18','3100','St. Pölten',3,'+436991234567',1,1,'Bluthochdruck'),(10,'Elisabeth','Fischer','Frau','1993-12-08','Kirchgasse 9','7000','Eisenstadt',1,'+436781234567',2,4,'Asthma'),(11,'Markus','Leitner','Herr','1980-02-17','Dorfstraße 5','3500','Krems an der Donau',3,'+436551234567',1,3,'Vegetarier'),(12,'Claudia','Schneider','Frau','2000-04-23','Berggasse 16','5020','Salzburg',5,'+436641234890',2,1,''),(13,'Alex','Kern','Mx.','1992-08-15','Gartenweg 22','8010','Graz',6,'+436601112223',3,1,'Allergie gegen Tierhaare');
+INSERT INTO `patient` VALUES (1,'Johann','Muster','Herr','1985-06-15','Hauptstraße 10','1010','Wien',9,'+436641234567',1,1,'Allergie gegen Pollen',0),(2,'Anna','Beispiel','Frau','1990-03-22','Linzergasse 15','5020','Salzburg',5,'+436509876543',2,2,'Vegetarierin',0),(3,'Johann','Muster','Herr','1985-06-15','Hauptstraße 10','1010','Wien',9,'+436641234567',1,1,'Allergie gegen Pollen',0),(4,'Anna','Beispiel','Frau','1990-03-22','Linzergasse 15','5020','Salzburg',5,'+436509876543',2,2,'Vegetarierin',0),(5,'Michael','Huber','Herr','1978-11-03','Schlossallee 3','4020','Linz',4,'+436601234567',1,3,'Diabetes Typ 2',0),(6,'Sabine','Maier','Frau','1982-07-19','Ringstraße 12','8010','Graz',6,'+436761234567',2,4,'Laktoseintoleranz',0),(7,'Klaus','Schmidt','Herr','1995-01-25','Bahnhofstraße 7','6020','Innsbruck',7,'+436771234567',1,1,'Raucher',0),(8,'Petra','Wagner','Frau','1988-05-14','Seestraße 21','5700','Zell am See',5,'+436881234567',2,2,'Glutenunverträglichkeit',0),(9,'Thomas','Gruber','Herr','1965-09-12','Landstraße 18','3100','St. Pölten',3,'+436991234567',1,1,'Bluthochdruck',0),(10,'Elisabeth','Fischer','Frau','1993-12-08','Kirchgasse 9','7000','Eisenstadt',1,'+436781234567',2,4,'Asthma',0),(11,'Markus','Leitner','Herr','1980-02-17','Dorfstraße 5','3500','Krems an der Donau',3,'+436551234567',1,3,'Vegetarier',0),(12,'Claudia','Schneider','Frau','2000-04-23','Berggasse 16','5020','Salzburg',5,'+436641234890',2,1,'',0),(13,'Alex','Kern','Mx.','1992-08-15','Gartenweg 22','8010','Graz',6,'+436601112223',3,1,'Allergie gegen Tierhaare',0);
 /*!40000 ALTER TABLE `patient` ENABLE KEYS */;
 UNLOCK TABLES;
 
@@ -0,0 +1,5 @@
+-- Index für die Befunde (db.BefundDAO).
+-- Die Abfragen filtern nach PatientID und sortieren nach Datum; mit diesem Index laufen IN-Listen,
+-- Zeiträume, die neuesten N Befunde und die Übersicht (COUNT, MAX(Datum)) als Index-Zugriff.
+
+CREATE INDEX idx_befund_patient_datum ON befund (PatientID, Datum);
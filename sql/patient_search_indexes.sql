@@ -0,0 +1,11 @@
+-- Indizes für die Patientensuche (db.SearchQuery).
+-- Präfixsuchen auf Vorname, Nachname und PLZ, Datumsbereiche auf dem Geburtsdatum
+-- sowie die Filter auf Referenz-IDs können damit als Index-Seek statt als Full Table Scan laufen.
+
+CREATE INDEX idx_patient_nachname ON patient (Nachname);
+CREATE INDEX idx_patient_vorname ON patient (Vorname);
+CREATE INDEX idx_patient_plz ON patient (PLZ);
+CREATE INDEX idx_patient_geburtsdatum ON patient (Geburtsdatum);
+CREATE INDEX idx_patient_bundesland ON patient (BundeslandID);
+CREATE INDEX idx_patient_geschlecht ON patient (GeschlechtID);
+CREATE INDEX idx_patient_krankenkasse ON patient (KrankenkasseID);
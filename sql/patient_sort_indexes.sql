@@ -0,0 +1,5 @@
+-- Index für das seitenweise Sortieren der Patiententabelle (db.PatientSort, ui.PagedTableModel).
+-- Vorname, Nachname, PLZ und Geburtsdatum sind bereits über sql/patient_search_indexes.sql indiziert;
+-- InnoDB hängt die PatientID an jeden Sekundärindex an, sodass (Spalte, PatientID) ohne Sortierung gelesen wird.
+
+CREATE INDEX idx_patient_ort ON patient (Ort);
@@ -0,0 +1,6 @@
+-- Versionsspalte für die optimistische Sperre (db.DAO#updatePatient).
+-- Jedes UPDATE erhöht die Version und prüft die beim Laden gelesene Version;
+-- gleichzeitige Änderungen an demselben Patienten werden so ohne Sperren erkannt.
+-- Nur für bestehende Datenbanken nötig; die mitgelieferten Dumps legen die Spalte bereits an.
+
+ALTER TABLE patient ADD COLUMN Version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,189 @@
+package benchmark;
+
+import db.DBConnection;
+import db.Helper;
+import model.Patient;
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vergleicht den früheren N+1-Lesepfad (eine Abfrage für die Patienten, danach drei Abfragen pro Zeile)
+ * mit der JOIN-basierten Patientenabfrage aus {@link Helper#SELECT_PATIENT_SQL}.
+ * <p>
+ * Der frühere Pfad läuft wie damals auf einer eigenen Verbindung ohne Pool und Statement-Cache
+ * ({@link DBConnection#openLegacyConnection()}) und bildet jede Zeile so ab wie das frühere
+ * {@code Helper.mapResultSetToPatient}: alle Spalten über die Setter, mit deren Protokollierung.
+ * <p>
+ * Für jede Größe N werden N Testpatienten angelegt, mit beiden Varianten gelesen und wieder gelöscht.
+ * Ausgegeben werden Datenbank-Roundtrips und Laufzeit. Benötigt eine laufende Datenbank gemäß {@link DBConnection}.
+ * <p>
+ * Aufruf: {@code java benchmark.PatientReadBenchmark [N ...]} (Standard: 1000 10000 100000)
+ */
+public class PatientReadBenchmark {
+
+    /** Markierung in {@code Sonstiges}, an der die Testdaten erkannt und wieder entfernt werden. */
+    private static final String MARKER = "__read_benchmark__";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws SQLException {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000};
+
+        System.out.printf("%10s | %-8s | %12s | %12s | %10s%n", "N", "Variante", "Roundtrips", "Zeit (ms)", "Zeilen");
+        try (Connection connection = DBConnection.getConnection();
+             Connection legacyConnection = DBConnection.openLegacyConnection()) {
+            for (int n : sizes) {
+                deleteTestData(connection);
+                insertTestData(connection, n);
+
+                long start = System.nanoTime();
+                long[] legacy = readLegacy(legacyConnection);
+                long legacyMillis = (System.nanoTime() - start) / 1_000_000;
+
+                start = System.nanoTime();
+                long[] joined = readJoined(connection);
+                long joinedMillis = (System.nanoTime() - start) / 1_000_000;
+
+                System.out.printf("%10d | %-8s | %12d | %12d | %10d%n", n, "N+1", legacy[0], legacyMillis, legacy[1]);
+                System.out.printf("%10d | %-8s | %12d | %12d | %10d%n", n, "JOIN", joined[0], joinedMillis, joined[1]);
+            }
+            deleteTestData(connection);
+        } finally {
+            DBConnection.closeConnection();
+        }
+    }
+
+    /**
+     * Früherer Lesepfad: Patienten lesen und die Namen pro Zeile einzeln nachschlagen.
+     *
+     * @return {Roundtrips, gelesene Zeilen}
+     */
+    private static long[] readLegacy(Connection connection) throws SQLException {
+        long roundTrips = 1;
+        List<Patient> patients = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT * FROM Patient WHERE Sonstiges = ?")) {
+            stmt.setString(1, MARKER);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapLegacy(rs, connection));
+                    roundTrips += 3;
+                }
+            }
+        }
+        return new long[]{roundTrips, patients.size()};
+    }
+
+    /**
+     * Abbildung einer Zeile wie im früheren {@code Helper.mapResultSetToPatient(rs, null, connection)},
+     * einschließlich dessen Protokollausgaben.
+     */
+    private static Patient mapLegacy(ResultSet rs, Connection connection) throws SQLException {
+        Logger.log(Logger.LogLevel.DEBUG, "Patient wird aus ResultSet gemappt.");
+        Logger.log(Logger.LogLevel.DEBUG, "Eingehendes Patient-Objekt: null");
+        Patient patient = new Patient();
+        Logger.log(Logger.LogLevel.WARN, "Es wird ein neuer Patient erstellt.");
+
+        patient.setPatientID(rs.getInt("patientID"));
+        patient.setVorname(rs.getString("vorname"));
+        patient.setNachname(rs.getString("nachname"));
+        patient.setAnrede(rs.getString("anrede"));
+        if (rs.getDate("geburtsdatum") != null) {
+            patient.setGeburtsdatum(rs.getDate("geburtsdatum").toLocalDate());
+        }
+        patient.setStrasse(rs.getString("strasse"));
+        patient.setPlz(rs.getString("plz"));
+        patient.setOrt(rs.getString("ort"));
+        patient.setBundeslandID(rs.getInt("bundeslandID"));
+        patient.setTelefon(rs.getString("telefon"));
+        patient.setGeschlechtID(rs.getInt("geschlechtID"));
+        patient.setKrankenkasseID(rs.getInt("krankenkasseID"));
+        patient.setSonstiges(rs.getString("sonstiges"));
+
+        patient.setBundeslandName(lookupName(connection, "bundesland", "BundeslandID", patient.getBundeslandID()));
+        patient.setGeschlechtName(lookupName(connection, "geschlecht", "GeschlechtID", patient.getGeschlechtID()));
+        patient.setKrankenkasseName(lookupName(connection, "krankenkasse", "KrankenkasseID", patient.getKrankenkasseID()));
+
+        Logger.log(Logger.LogLevel.DEBUG, "Patient erfolgreich gemappt: " + patient);
+        return patient;
+    }
+
+    /**
+     * Einzelabfrage eines Referenznamens, wie sie der frühere Lesepfad pro Zeile ausgeführt hat.
+     */
+    private static String lookupName(Connection connection, String table, String idColumn, int id) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT Bezeichnung FROM " + table + " WHERE " + idColumn + " = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("Bezeichnung") : Helper.UNKNOWN_NAME;
+            }
+        }
+    }
+
+    /**
+     * Aktueller Lesepfad: eine Abfrage mit LEFT JOINs auf die Referenztabellen.
+     *
+     * @return {Roundtrips, gelesene Zeilen}
+     */
+    private static long[] readJoined(Connection connection) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(Helper.SELECT_PATIENT_SQL + "WHERE p.Sonstiges = ?")) {
+            stmt.setString(1, MARKER);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(Helper.mapResultSetToPatient(rs));
+                }
+            }
+        }
+        return new long[]{1, patients.size()};
+    }
+
+    private static void insertTestData(Connection connection, int n) throws SQLException {
+        String sql = "INSERT INTO Patient (Vorname, Nachname, Anrede, Geburtsdatum, Strasse, PLZ, Ort, BundeslandID, "
+                + "Telefon, GeschlechtID, KrankenkasseID, Sonstiges) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < n; i++) {
+                stmt.setString(1, "Vorname" + i);
+                stmt.setString(2, "Nachname" + i);
+                stmt.setString(3, i % 2 == 0 ? "Herr" : "Frau");
+                stmt.setDate(4, Date.valueOf(LocalDate.of(1940, 1, 1).plusDays(i % 25_000)));
+                stmt.setString(5, "Teststraße " + i);
+                stmt.setString(6, String.format("%05d", i % 100_000));
+                stmt.setString(7, "Ort" + i % 500);
+                stmt.setInt(8, i % 9 + 1);
+                stmt.setString(9, "0123-" + i);
+                stmt.setInt(10, i % 3 + 1);
+                stmt.setInt(11, i % 4 + 1);
+                stmt.setString(12, MARKER);
+                stmt.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void deleteTestData(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM Patient WHERE Sonstiges = ?")) {
+            stmt.setString(1, MARKER);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nicht-blockierende Fassade für {@link DAO} und {@link Search}.
+ * <p>
+ * Jeder Aufruf läuft auf einem eigenen virtuellen Thread und liefert sofort ein {@link CompletableFuture}.
+ * Ein Semaphor begrenzt die Anzahl gleichzeitig laufender Datenbankaufrufe, standardmäßig auf die
+ * Größe des Verbindungspools; weitere Aufrufe warten, ohne einen Plattform-Thread zu blockieren.
+ * Unabhängige Abfragen (z. B. Suche und Referenzdaten) können so parallel gestartet werden.
+ */
+public class AsyncDAO {
+
+    /**
+     * Ein Datenbankaufruf mit Ergebnis.
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private final DAO dao;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    /**
+     * Erstellt die Fassade mit so vielen gleichzeitigen Aufrufen, wie der Verbindungspool Verbindungen hat.
+     *
+     * @param dao Das zugrunde liegende DAO.
+     */
+    public AsyncDAO(DAO dao) {
+        this(dao, DBConnection.getMaxPoolSize());
+    }
+
+    /**
+     * @param dao            Das zugrunde liegende DAO.
+     * @param maxConcurrency Maximale Anzahl gleichzeitig laufender Datenbankaufrufe.
+     */
+    public AsyncDAO(DAO dao, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Parallelität muss positiv sein: " + maxConcurrency);
+        }
+        this.dao = dao;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /** @return Das zugrunde liegende, blockierende DAO. */
+    public DAO getDao() {
+        return dao;
+    }
+
+    /** @return Der eingefügte Patient mit seiner generierten ID. */
+    public CompletableFuture<Patient> addPatient(Patient patient) {
+        return submit(() -> {
+            dao.addPatient(patient);
+            return patient;
+        });
+    }
+
+    public CompletableFuture<List<Patient>> getAllPatients() {
+        return submit(dao::getAllPatients);
+    }
+
+    public CompletableFuture<Patient> getPatientById(int id) {
+        return submit(() -> dao.getPatientById(id));
+    }
+
+    /** @return Die nach dem Update neu gelesene Zeile, siehe {@link DAO#updatePatient(Patient)}. */
+    public CompletableFuture<Patient> updatePatient(Patient patient) {
+        return submit(() -> dao.updatePatient(patient));
+    }
+
+    public CompletableFuture<Void> deletePatient(int id) {
+        return submit(() -> {
+            dao.deletePatient(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<BatchResult> addPatients(Collection<Patient> patients) {
+        return submit(() -> dao.addPatients(patients));
+    }
+
+    public CompletableFuture<BatchResult> updatePatients(Collection<Patient> patients) {
+        return submit(() -> dao.updatePatients(patients));
+    }
+
+    public CompletableFuture<BatchResult> deletePatients(Collection<Integer> ids) {
+        return submit(() -> dao.deletePatients(ids));
+    }
+
+    public CompletableFuture<List<Patient>> searchPatients(Map<String, String> criteria) {
+        return submit(() -> dao.searchPatients(criteria));
+    }
+
+    public CompletableFuture<Void> refreshReferenceData() {
+        return submit(() -> {
+            ReferenceData.refresh();
+            return null;
+        });
+    }
+
+    /**
+     * Führt einen beliebigen Datenbankaufruf unter derselben Parallelitätsgrenze aus.
+     * {@link SQLException}s werden als Ursache einer {@link CompletionException} gemeldet.
+     *
+     * @param call Der auszuführende Aufruf.
+     * @return Das Ergebnis als Future.
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Nimmt keine neuen Aufrufe mehr an und wartet kurz auf laufende Aufrufe.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                Logger.log(Logger.LogLevel.WARN, "Nicht alle Datenbankaufrufe wurden vor dem Beenden abgeschlossen.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
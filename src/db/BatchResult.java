@@ -0,0 +1,70 @@
+package db;
+
+import java.sql.SQLException;
+
+/**
+ * Ergebnis einer Stapeloperation von {@link DAO}. Für jede Eingabezeile (in Eingabereihenfolge)
+ * wird festgehalten, ob sie erfolgreich verarbeitet wurde und welcher Fehler gegebenenfalls auftrat.
+ */
+public class BatchResult {
+
+    private final boolean[] success;
+    private final SQLException[] errors;
+
+    BatchResult(int size) {
+        this.success = new boolean[size];
+        this.errors = new SQLException[size];
+    }
+
+    void markSuccess(int index) {
+        success[index] = true;
+        errors[index] = null;
+    }
+
+    void markFailure(int index, SQLException error) {
+        success[index] = false;
+        errors[index] = error;
+    }
+
+    /** @return Anzahl der Eingabezeilen. */
+    public int size() {
+        return success.length;
+    }
+
+    /**
+     * @param index Position der Zeile in der Eingabe.
+     * @return {@code true}, wenn die Zeile erfolgreich geschrieben wurde.
+     */
+    public boolean isSuccess(int index) {
+        return success[index];
+    }
+
+    /**
+     * @param index Position der Zeile in der Eingabe.
+     * @return Der Fehler dieser Zeile oder {@code null}, wenn sie erfolgreich war.
+     */
+    public SQLException getError(int index) {
+        return errors[index];
+    }
+
+    /** @return Anzahl der erfolgreich geschriebenen Zeilen. */
+    public int getSuccessCount() {
+        int count = 0;
+        for (boolean ok : success) {
+            if (ok) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** @return Anzahl der fehlgeschlagenen Zeilen. */
+    public int getFailureCount() {
+        return size() - getSuccessCount();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{gesamt=" + size() + ", erfolgreich=" + getSuccessCount() + ", fehlgeschlagen=" + getFailureCount() + '}';
+    }
+}
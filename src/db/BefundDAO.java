@@ -0,0 +1,301 @@
+package db;
+
+import model.Befund;
+import model.Patient;
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Zugriff auf die Befunde ({@code befund}) der Patienten.
+ * <p>
+ * Befunde vieler Patienten werden mit wenigen IN-Abfragen geladen statt mit einer Abfrage pro Patient;
+ * die IN-Listen werden wie bei {@link DAO#getPatientsByIds} auf feste Größen aufgefüllt. Alle Listen
+ * sind pro Patient nach Datum absteigend sortiert (Befunde ohne Datum zuletzt). Für schnelle Abfragen
+ * sollte der Index aus {@code sql/befund_indexes.sql} angelegt sein.
+ */
+public class BefundDAO {
+
+    private static final String SELECT_BEFUND_SQL = "SELECT BefundID, PatientID, Pfad, Datum FROM befund ";
+
+    private static final String NEWEST_FIRST = "Datum DESC, BefundID DESC";
+
+    private static final String SELECT_LATEST_SQL =
+            SELECT_BEFUND_SQL + "WHERE PatientID = ? ORDER BY " + NEWEST_FIRST + " LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO befund (PatientID, Pfad, Datum) VALUES (?, ?, ?)";
+
+    private static final String SUMMARY_SQL = "SELECT PatientID, COUNT(*), MAX(Datum) FROM befund ";
+
+    /** Liest die Ergebniszeilen einer Abfrage. */
+    @FunctionalInterface
+    private interface RowReader {
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Legt einen Befund an. Das Dokument selbst wird vorher im {@link DocumentStore} gespeichert.
+     *
+     * @param patientID Die ID des Patienten.
+     * @param pfad      Die Dokumentreferenz aus {@link DocumentStore#put}.
+     * @param datum     Das Datum des Befunds, kann {@code null} sein.
+     * @return Der angelegte Befund mit seiner generierten ID.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Befund addBefund(int patientID, String pfad, LocalDate datum) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, patientID);
+            stmt.setString(2, pfad);
+            stmt.setDate(3, datum != null ? Date.valueOf(datum) : null);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                Befund befund = new Befund(keys.next() ? keys.getInt(1) : 0, patientID, pfad, datum);
+                Logger.log(Logger.LogLevel.INFO, "Befund hinzugefügt: " + befund);
+                return befund;
+            }
+        }
+    }
+
+    /**
+     * Gibt alle Befunde eines Patienten zurück.
+     *
+     * @param patientID Die ID des Patienten.
+     * @return Die Befunde, neueste zuerst.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Befund> getBefunde(int patientID) throws SQLException {
+        return getBefunde(List.of(patientID)).get(patientID);
+    }
+
+    /**
+     * Gibt die Befunde mehrerer Patienten zurück.
+     *
+     * @param patientIDs Die IDs der Patienten.
+     * @return Befunde nach Patienten-ID, neueste zuerst; jede angefragte ID ist enthalten, ggf. mit leerer Liste.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Map<Integer, List<Befund>> getBefunde(Collection<Integer> patientIDs) throws SQLException {
+        Map<Integer, List<Befund>> befunde = emptyLists(patientIDs);
+        queryInChunks(patientIDs,
+                size -> SELECT_BEFUND_SQL + "WHERE PatientID IN (" + Helper.placeholders(size) + ") ORDER BY PatientID, " + NEWEST_FIRST,
+                null,
+                rs -> {
+                    Befund befund = map(rs);
+                    befunde.get(befund.getPatientID()).add(befund);
+                });
+        Logger.log(Logger.LogLevel.DEBUG, "Befunde für " + befunde.size() + " Patienten geladen.");
+        return befunde;
+    }
+
+    /**
+     * Lädt die Befunde aller übergebenen Patienten, deren Befunde noch nicht geladen sind, und hängt sie an
+     * ({@link Patient#setBefunde}). Bereits geladene Patienten verursachen keine Abfrage.
+     *
+     * @param patients Die Patienten.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public void attach(Collection<Patient> patients) throws SQLException {
+        List<Integer> missing = new ArrayList<>();
+        for (Patient patient : patients) {
+            if (!patient.hasBefundeLoaded() && patient.getPatientID() != 0) {
+                missing.add(patient.getPatientID());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Befund>> befunde = getBefunde(missing);
+        for (Patient patient : patients) {
+            List<Befund> loaded = befunde.get(patient.getPatientID());
+            if (loaded != null) {
+                patient.setBefunde(loaded);
+            }
+        }
+    }
+
+    /**
+     * Gibt die Befunde eines Patienten in einem Zeitraum zurück.
+     *
+     * @param patientID Die ID des Patienten.
+     * @param from      Erster Tag (einschließlich) oder {@code null} für unbegrenzt.
+     * @param to        Letzter Tag (einschließlich) oder {@code null} für unbegrenzt.
+     * @return Die Befunde, neueste zuerst.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Befund> getBefunde(int patientID, LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_BEFUND_SQL).append("WHERE PatientID = ?");
+        if (from != null) {
+            sql.append(" AND Datum >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND Datum <= ?");
+        }
+        sql.append(" ORDER BY ").append(NEWEST_FIRST);
+
+        List<Befund> befunde = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setInt(index++, patientID);
+            if (from != null) {
+                stmt.setDate(index++, Date.valueOf(from));
+            }
+            if (to != null) {
+                stmt.setDate(index, Date.valueOf(to));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    befunde.add(map(rs));
+                }
+            }
+        }
+        return befunde;
+    }
+
+    /**
+     * Gibt die neuesten Befunde eines Patienten zurück.
+     *
+     * @param patientID Die ID des Patienten.
+     * @param limit     Maximale Anzahl.
+     * @return Höchstens {@code limit} Befunde, neueste zuerst.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Befund> getLatestBefunde(int patientID, int limit) throws SQLException {
+        List<Befund> befunde = new ArrayList<>(Math.min(limit, 16));
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_LATEST_SQL)) {
+            stmt.setInt(1, patientID);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    befunde.add(map(rs));
+                }
+            }
+        }
+        return befunde;
+    }
+
+    /**
+     * Gibt die neuesten Befunde mehrerer Patienten zurück. Die Begrenzung pro Patient übernimmt die
+     * Datenbank ({@code ROW_NUMBER()}, ab MySQL 8), übertragen werden also nur die benötigten Zeilen.
+     *
+     * @param patientIDs Die IDs der Patienten.
+     * @param limit      Maximale Anzahl pro Patient.
+     * @return Befunde nach Patienten-ID, neueste zuerst; jede angefragte ID ist enthalten, ggf. mit leerer Liste.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Map<Integer, List<Befund>> getLatestBefunde(Collection<Integer> patientIDs, int limit) throws SQLException {
+        Map<Integer, List<Befund>> befunde = emptyLists(patientIDs);
+        queryInChunks(patientIDs,
+                size -> "SELECT BefundID, PatientID, Pfad, Datum FROM ("
+                        + "SELECT BefundID, PatientID, Pfad, Datum, "
+                        + "ROW_NUMBER() OVER (PARTITION BY PatientID ORDER BY " + NEWEST_FIRST + ") AS Rang "
+                        + "FROM befund WHERE PatientID IN (" + Helper.placeholders(size) + ")) neueste "
+                        + "WHERE Rang <= ? ORDER BY PatientID, Rang",
+                limit,
+                rs -> {
+                    Befund befund = map(rs);
+                    befunde.get(befund.getPatientID()).add(befund);
+                });
+        return befunde;
+    }
+
+    /**
+     * Gibt Anzahl und neuestes Datum der Befunde mehrerer Patienten zurück.
+     *
+     * @param patientIDs Die IDs der Patienten.
+     * @return Übersicht nach Patienten-ID; Patienten ohne Befunde fehlen (siehe {@link Befund.Summary#NONE}).
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Map<Integer, Befund.Summary> getSummaries(Collection<Integer> patientIDs) throws SQLException {
+        Map<Integer, Befund.Summary> summaries = new HashMap<>();
+        queryInChunks(patientIDs,
+                size -> SUMMARY_SQL + "WHERE PatientID IN (" + Helper.placeholders(size) + ") GROUP BY PatientID",
+                null,
+                rs -> summaries.put(rs.getInt(1), summary(rs)));
+        return summaries;
+    }
+
+    /**
+     * Gibt Anzahl und neuestes Datum der Befunde aller Patienten in einer einzigen Abfrage zurück.
+     *
+     * @return Übersicht nach Patienten-ID; Patienten ohne Befunde fehlen (siehe {@link Befund.Summary#NONE}).
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Map<Integer, Befund.Summary> getAllSummaries() throws SQLException {
+        Map<Integer, Befund.Summary> summaries = new HashMap<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SUMMARY_SQL + "GROUP BY PatientID")) {
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.put(rs.getInt(1), summary(rs));
+                }
+            }
+        }
+        Logger.log(Logger.LogLevel.DEBUG, "Befundübersicht für " + summaries.size() + " Patienten geladen.");
+        return summaries;
+    }
+
+    /**
+     * Führt eine Abfrage mit IN-Liste in Abschnitten von höchstens {@link Helper#MAX_IN_LIST_SIZE} IDs aus.
+     *
+     * @param sqlForSize Erzeugt das SQL für eine IN-Liste mit der übergebenen Anzahl Platzhalter.
+     * @param trailing   Optionaler Integer-Parameter nach der IN-Liste.
+     */
+    private static void queryInChunks(Collection<Integer> patientIDs, IntFunction<String> sqlForSize, Integer trailing,
+                                      RowReader reader) throws SQLException {
+        int[] ids = patientIDs.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        if (ids.length == 0) {
+            return;
+        }
+        try (Connection connection = DBConnection.getConnection()) {
+            for (int from = 0; from < ids.length; from += Helper.MAX_IN_LIST_SIZE) {
+                int count = Math.min(Helper.MAX_IN_LIST_SIZE, ids.length - from);
+                int size = Helper.inListSize(count);
+                try (PreparedStatement stmt = connection.prepareStatement(sqlForSize.apply(size))) {
+                    int index = Helper.bindInList(stmt, 1, ids, from, count, size);
+                    if (trailing != null) {
+                        stmt.setInt(index, trailing);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            reader.read(rs);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Map<Integer, List<Befund>> emptyLists(Collection<Integer> patientIDs) {
+        Map<Integer, List<Befund>> befunde = new HashMap<>();
+        for (int id : patientIDs) {
+            befunde.putIfAbsent(id, new ArrayList<>());
+        }
+        return befunde;
+    }
+
+    private static Befund map(ResultSet rs) throws SQLException {
+        Date datum = rs.getDate("Datum");
+        return new Befund(rs.getInt("BefundID"), rs.getInt("PatientID"), rs.getString("Pfad"),
+                datum != null ? datum.toLocalDate() : null);
+    }
+
+    private static Befund.Summary summary(ResultSet rs) throws SQLException {
+        Date latest = rs.getDate(3);
+        return new Befund.Summary(rs.getInt(2), latest != null ? latest.toLocalDate() : null);
+    }
+}
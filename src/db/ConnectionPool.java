@@ -0,0 +1,411 @@
+package db;
+
+import utils.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ein begrenzter, threadsicherer Pool von JDBC-Verbindungen.
+ * <p>
+ * Ausgeliehene Verbindungen sind Proxies: {@link Connection#close()} gibt die physische Verbindung
+ * an den Pool zurück, statt sie zu schließen. Der Pool validiert Verbindungen beim Ausleihen und im Leerlauf,
+ * ersetzt Verbindungen nach Ablauf ihrer maximalen Lebensdauer und meldet Verbindungen,
+ * die länger als der Leck-Schwellwert ausgeliehen sind.
+ * <p>
+ * Jede physische Verbindung besitzt einen {@link StatementCache}, sodass häufig verwendetes SQL
+ * nur einmal pro Verbindung vorbereitet wird.
+ */
+public class ConnectionPool {
+
+    /** Verbindungen, die kürzer als diese Zeit im Leerlauf waren, werden beim Ausleihen nicht erneut geprüft. */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    /** Timeout in Sekunden für {@link Connection#isValid(int)}. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /** Begrenzt die Anzahl gleichzeitig ausgeliehener Verbindungen auf {@code maxSize}. */
+    private final Semaphore permits;
+
+    /** Freie Verbindungen; zuletzt zurückgegebene Verbindungen liegen vorne (LIFO hält Verbindungen "warm"). */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    /** Alle aktuell ausgeliehenen Verbindungen (für die Leck-Erkennung). */
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    /**
+     * Erstellt einen neuen Pool und öffnet sofort {@code minSize} Verbindungen.
+     *
+     * @param url                 Die JDBC-URL.
+     * @param user                Der Datenbankbenutzer.
+     * @param password            Das Passwort.
+     * @param minSize             Anzahl der Verbindungen, die mindestens offen gehalten werden.
+     * @param maxSize             Maximale Anzahl gleichzeitig ausgeliehener Verbindungen.
+     * @param borrowTimeoutMillis Maximale Wartezeit beim Ausleihen einer Verbindung.
+     * @param idleTimeoutMillis   Nach dieser Leerlaufzeit werden überzählige Verbindungen geschlossen.
+     * @param maxLifetimeMillis   Maximale Lebensdauer einer physischen Verbindung.
+     * @param leakThresholdMillis Ausleihdauer, ab der eine Verbindung als mögliches Leck gemeldet wird (0 = aus).
+     * @param statementCacheSize  Maximale Anzahl gecachter PreparedStatements pro Verbindung (0 = aus).
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                          long leakThresholdMillis, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Ungültige Poolgröße: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30_000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeeping, period, period, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+        Logger.log(Logger.LogLevel.INFO, "Verbindungspool gestartet (min=" + minSize + ", max=" + maxSize + ").");
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Pool aus. Die Verbindung muss mit {@link Connection#close()}
+     * zurückgegeben werden (z. B. über try-with-resources).
+     *
+     * @return Eine geprüfte Verbindung.
+     * @throws SQLTimeoutException Wenn innerhalb des Timeouts keine Verbindung frei wird.
+     * @throws SQLException        Wenn keine neue Verbindung aufgebaut werden kann.
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Verbindungspool ist geschlossen.");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                Logger.log(Logger.LogLevel.WARN, "Keine freie Datenbankverbindung innerhalb von " + borrowTimeoutMillis + " ms.");
+                throw new SQLTimeoutException("Zeitüberschreitung beim Warten auf eine Datenbankverbindung.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Warten auf Datenbankverbindung unterbrochen.", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = openPhysical();
+            }
+            pooled.markBorrowed();
+            borrowed.add(pooled);
+            return pooled.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Schließt alle Verbindungen und beendet die Hintergrundwartung.
+     * Danach ausgeliehene Verbindungen werden bei Rückgabe physisch geschlossen.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+        Logger.log(Logger.LogLevel.INFO, "Verbindungspool geschlossen. Statement-Cache: "
+                + getStatementCacheHits() + " Treffer, " + getStatementCacheMisses() + " Fehlschläge.");
+    }
+
+    /** @return Anzahl der freien Verbindungen im Pool. */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** @return Anzahl der aktuell ausgeliehenen Verbindungen. */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /** @return Anzahl der PreparedStatements, die aus dem Statement-Cache wiederverwendet wurden. */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /** @return Anzahl der PreparedStatements, die neu vorbereitet werden mussten. */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /** @return Maximale Anzahl gleichzeitig ausleihbarer Verbindungen. */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Nimmt eine freie Verbindung und verwirft dabei abgelaufene oder ungültige Verbindungen.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (pooled.isExpired(now)) {
+                pooled.closePhysical();
+                continue;
+            }
+            if (now - pooled.lastReturned > VALIDATION_BYPASS_MILLIS && !pooled.isValid()) {
+                Logger.log(Logger.LogLevel.WARN, "Ungültige Verbindung beim Ausleihen verworfen.");
+                pooled.closePhysical();
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Logger.log(Logger.LogLevel.INFO, "Verbindung zur Datenbank wird hergestellt.");
+        return new PooledConnection(DriverManager.getConnection(url, user, password));
+    }
+
+    /**
+     * Nimmt eine Verbindung nach {@link Connection#close()} zurück in den Pool.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            boolean reusable = !shutdown && !pooled.isExpired(System.currentTimeMillis()) && pooled.reset();
+            if (reusable) {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                pooled.closePhysical();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Periodische Wartung: Leck-Erkennung, Leerlaufvalidierung, Lebensdauer und Mindestgröße.
+     */
+    private void houseKeeping() {
+        try {
+            long now = System.currentTimeMillis();
+
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                        pooled.leakReported = true;
+                        Logger.log(Logger.LogLevel.WARN, "Mögliches Verbindungsleck: Verbindung seit "
+                                + (now - pooled.borrowedAt) + " ms ausgeliehen.", pooled.borrowTrace);
+                    }
+                }
+            }
+
+            int idleCount = idle.size();
+            for (int i = 0; i < idleCount; i++) {
+                PooledConnection pooled = idle.pollLast();
+                if (pooled == null) {
+                    break;
+                }
+                boolean surplus = idle.size() + borrowed.size() >= minSize
+                        && now - pooled.lastReturned > idleTimeoutMillis;
+                if (pooled.isExpired(now) || surplus || !pooled.isValid()) {
+                    pooled.closePhysical();
+                } else {
+                    idle.offerLast(pooled);
+                }
+            }
+
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            Logger.log(Logger.LogLevel.ERROR, "Fehler bei der Wartung des Verbindungspools.", e);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!shutdown && idle.size() + borrowed.size() < minSize) {
+            try {
+                PooledConnection pooled = openPhysical();
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                Logger.log(Logger.LogLevel.WARN, "Verbindung für Mindestgröße des Pools konnte nicht geöffnet werden.", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Eine physische Verbindung samt Verwaltungsdaten des Pools.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturned = createdAt;
+        private volatile long borrowedAt;
+        private volatile boolean leakReported;
+        private volatile Throwable borrowTrace;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementCacheHits, statementCacheMisses)
+                    : null;
+        }
+
+        private void markBorrowed() {
+            borrowedAt = System.currentTimeMillis();
+            leakReported = false;
+            borrowTrace = leakThresholdMillis > 0 ? new Throwable("Verbindung ausgeliehen von") : null;
+        }
+
+        private boolean isExpired(long now) {
+            return maxLifetimeMillis > 0 && now - createdAt > maxLifetimeMillis;
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Setzt den Verbindungszustand für den nächsten Ausleiher zurück.
+         *
+         * @return {@code false}, wenn die Verbindung nicht wiederverwendet werden kann.
+         */
+        private boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                Logger.log(Logger.LogLevel.WARN, "Verbindung konnte nicht zurückgesetzt werden und wird verworfen.", e);
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                Logger.log(Logger.LogLevel.WARN, "Fehler beim Schließen einer Poolverbindung.", e);
+            }
+        }
+
+        private Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handler(this));
+        }
+    }
+
+    /**
+     * Leitet Aufrufe an die physische Verbindung weiter; {@code close()} gibt sie an den Pool zurück.
+     */
+    private final class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Handler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (closed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed.get() || pooled.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pooled.physical + "]";
+                }
+                default -> {
+                    if (closed.get()) {
+                        throw new SQLException("Verbindung wurde bereits an den Pool zurückgegeben.");
+                    }
+                    if (pooled.statementCache != null && method.getName().equals("prepareStatement")) {
+                        PreparedStatement cached = pooled.statementCache.prepare((Connection) proxy, method, args);
+                        if (cached != null) {
+                            return cached;
+                        }
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
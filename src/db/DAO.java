@@ -3,74 +3,152 @@ package db;
 import model.Patient;
 import utils.Logger;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Stream;
 
 /**
  * Die Klasse DAO (Data Access Object) dient als zentrale Schnittstelle für Datenbankoperationen.
  * Sie kapselt CRUD-Operationen (Create, Read, Update, Delete) für die Patientenverwaltung und stellt sicher,
  * dass die Datenbankinteraktionen abstrahiert und organisiert sind.
+ * <p>
+ * Gespeichert wird über einen {@link PatientStore}; das DAO hält dabei seinen {@link PatientCache} und
+ * {@link SearchIndex} aktuell. Ohne Angabe wird der Standardspeicher verwendet, der über
+ * {@code -Ddb.store=jdbc} (Standard, MySQL) oder {@code -Ddb.store=memory} gewählt wird.
+ * <p>
+ * Cache und Index gehören zum Speicher, da beide nur nach Patienten-ID unterscheiden: Der Standardspeicher
+ * nutzt die anwendungsweiten Instanzen, jeder andere Speicher eigene, die sich alle DAOs auf diesem Speicher
+ * teilen. Ein DAO auf einem zweiten Speicher liefert oder überschreibt also keine Einträge des ersten.
  */
 public class DAO {
 
-    private static final String INSERT_SQL =
-            """
-            INSERT INTO Patient (
-                vorname,
-                nachname,
-                anrede,
-                geburtsdatum,
-                strasse,
-                plz,
-                ort,
-                bundeslandID,
-                telefon,
-                geschlechtID,
-                krankenkasseID,
-                sonstiges
-            )
-            VALUES (?,?,?,?,?,?,?,?,?,?,?,?)
-            """;
-
-    private static final String SELECT_ALL_SQL = "SELECT * FROM Patient";
-
-    private static final String UPDATE_SQL = """
-        UPDATE Patient
-        SET Vorname = ?,
-            Nachname = ?,
-            Anrede = ?,
-            Geburtsdatum = ?,
-            Strasse = ?,
-            PLZ = ?,
-            Ort = ?,
-            BundeslandID = ?,
-            Telefon = ?,
-            GeschlechtID = ?,
-            KrankenkasseID = ?,
-            Sonstiges = ?
-        WHERE PatientID = ?
-        """;
-
-    private static final String DELETE_SQL = "DELETE FROM Patient WHERE PatientID = ?";
-
-
-    /**
-     * Fügt einen neuen Patienten in die Datenbank ein.
+    /** Standardanzahl der Zeilen, die beim Streamen pro Roundtrip vom Server-Cursor geholt werden. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /** Standardanzahl der Zeilen, die bei Stapeloperationen in einer Transaktion geschrieben werden. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static PatientStore defaultStore;
+
+    /** Cache und Suchindex je Speicher, siehe {@link #companionsOf(PatientStore)}. */
+    private static final Map<PatientStore, Companions> companions = new WeakHashMap<>();
+
+    private record Companions(PatientCache cache, SearchIndex index) {
+    }
+
+    private final PatientStore store;
+    private final PatientCache cache;
+    private final SearchIndex index;
+
+    /**
+     * Erstellt ein DAO auf dem Standardspeicher der Anwendung.
+     */
+    public DAO() {
+        this(getDefaultStore());
+    }
+
+    /**
+     * Erstellt ein DAO mit dem Cache und Suchindex, die zu diesem Speicher gehören.
+     *
+     * @param store Der zu verwendende Speicher, z. B. ein {@link InMemoryPatientStore} für Lasttests.
+     */
+    public DAO(PatientStore store) {
+        this(store, companionsOf(store).cache(), companionsOf(store).index());
+    }
+
+    /**
+     * Erstellt ein DAO mit eigenem Cache und Suchindex, z. B. für Tests. Beide dürfen nur von DAOs auf
+     * demselben Speicher verwendet werden; {@link Search#searchPatients(PatientStore, Map)} kennt sie nicht.
+     *
+     * @param store Der zu verwendende Speicher.
+     * @param cache Der Cache für {@link #getPatientById(int)}.
+     * @param index Der Suchindex für {@link #searchPatients(Map)}.
+     */
+    public DAO(PatientStore store, PatientCache cache, SearchIndex index) {
+        this.store = store;
+        this.cache = cache;
+        this.index = index;
+    }
+
+    /**
+     * Gibt Cache und Suchindex eines Speichers zurück und legt sie beim ersten Aufruf an: für den
+     * Standardspeicher die anwendungsweiten Instanzen, für jeden anderen Speicher eigene.
+     */
+    private static synchronized Companions companionsOf(PatientStore store) {
+        return companions.computeIfAbsent(store, s -> s == getDefaultStore()
+                ? new Companions(PatientCache.getInstance(), SearchIndex.getInstance())
+                : new Companions(new PatientCache(), new SearchIndex()));
+    }
+
+    /**
+     * @param store Ein Speicher.
+     * @return Der Suchindex, der zu diesem Speicher gehört.
+     */
+    static SearchIndex searchIndexOf(PatientStore store) {
+        return companionsOf(store).index();
+    }
+
+    /**
+     * Gibt den Standardspeicher zurück und erstellt ihn beim ersten Aufruf gemäß {@code db.store}.
+     *
+     * @return Der Standardspeicher der Anwendung.
+     */
+    public static synchronized PatientStore getDefaultStore() {
+        if (defaultStore == null) {
+            String type = System.getProperty("db.store", "jdbc");
+            defaultStore = switch (type) {
+                case "jdbc" -> new JdbcPatientStore();
+                case "memory" -> new InMemoryPatientStore();
+                default -> throw new IllegalArgumentException("Unbekannter Speicher (db.store): " + type);
+            };
+            Logger.log(Logger.LogLevel.INFO, "Patientenspeicher: " + defaultStore.getClass().getSimpleName());
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Ersetzt den Standardspeicher, z. B. für Benchmarks ohne Datenbank.
+     * Muss vor dem ersten Erstellen eines DAO aufgerufen werden.
+     *
+     * @param store Der neue Standardspeicher.
+     */
+    public static synchronized void setDefaultStore(PatientStore store) {
+        defaultStore = store;
+    }
+
+    /** @return Der Speicher dieses DAO. */
+    public PatientStore getStore() {
+        return store;
+    }
+
+    /** @return Der Patienten-Cache dieses DAO. */
+    public PatientCache getCache() {
+        return cache;
+    }
+
+    /** @return Der Suchindex dieses DAO. */
+    public SearchIndex getSearchIndex() {
+        return index;
+    }
+
+    /**
+     * Fügt einen neuen Patienten in die Datenbank ein. Die generierte ID wird in das Patient-Objekt übernommen.
      *
      * @param patient Das Patient-Objekt mit den einzufügenden Daten.
+     * @return Die generierte ID des Patienten.
      * @throws SQLException, wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
      * @throws IllegalArgumentException, wenn ungültige Daten eingegeben werden.
      */
-    public void addPatient(Patient patient) throws SQLException {
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
-            Helper.setPatientParameters(stmt, patient);
-            stmt.executeUpdate();
+    public int addPatient(Patient patient) throws SQLException {
+        try {
+            int id = store.insert(patient);
+            index.patientSaved(patient);
             Logger.log(Logger.LogLevel.INFO, "Patient hinzugefügt: " + patient);
-        } catch (SQLIntegrityConstraintViolationException e) {
-            Logger.log(Logger.LogLevel.WARN, "Ungültige Eingabe für Patient: " + patient, e);
-            throw new IllegalArgumentException("Ungültige Eingabe. Überprüfen Sie die IDs oder doppelte Daten!", e);
+            return id;
         } catch (SQLException e) {
             Logger.log(Logger.LogLevel.ERROR, "Fehler beim Hinzufügen eines Patienten: " + patient, e);
             throw e;
@@ -80,42 +158,195 @@ public class DAO {
 
     /**
      * Gibt alle Patienten aus der Datenbank zurück.
+     * Für große Datenbestände sollte {@link #streamPatients(int, int)} verwendet werden,
+     * da diese Methode alle Patienten gleichzeitig im Speicher hält.
      *
      * @return Eine Liste von Patienten.
      */
     public List<Patient> getAllPatients() {
         List<Patient> patients = new ArrayList<>();
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(SELECT_ALL_SQL);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                patients.add(Helper.mapResultSetToPatient(rs, null, connection));
-            }
+        try (Stream<Patient> stream = streamPatients(0, DEFAULT_FETCH_SIZE)) {
+            stream.forEach(patients::add);
             Logger.log(Logger.LogLevel.INFO, "Alle Patienten abgerufen. Anzahl: " + patients.size());
-        } catch (SQLException e) {
+        } catch (SQLException | IllegalStateException e) {
             Logger.log(Logger.LogLevel.ERROR, "Fehler beim Abrufen der Patientenliste.", e);
         }
         return patients;
     }
 
+    /**
+     * Liest alle Patienten mit einer ID größer als {@code afterId} als Stream, aufsteigend nach ID.
+     * <p>
+     * Die Zeilen werden über einen Server-Cursor in Portionen von {@code fetchSize} geholt,
+     * der Speicherbedarf bleibt also unabhängig von der Tabellengröße konstant.
+     * Der Stream hält eine Datenbankverbindung und muss geschlossen werden (try-with-resources).
+     * Datenbankfehler während des Lesens werden als {@link IllegalStateException} weitergereicht.
+     *
+     * @param afterId   Die zuletzt verarbeitete ID ({@code 0} für den Anfang der Tabelle).
+     * @param fetchSize Anzahl der Zeilen pro Roundtrip.
+     * @return Ein Stream der Patienten.
+     * @throws SQLException Wenn die Abfrage nicht gestartet werden kann.
+     */
+    public Stream<Patient> streamPatients(int afterId, int fetchSize) throws SQLException {
+        return store.scan(afterId, fetchSize);
+    }
+
+    /**
+     * Liest eine Seite von Patienten per Keyset-Paginierung: höchstens {@code limit} Patienten
+     * mit einer ID größer als {@code afterId}, aufsteigend nach ID. Die ID des letzten Patienten
+     * der Seite ist der Startpunkt für die nächste Seite.
+     *
+     * @param afterId Die ID des letzten Patienten der vorherigen Seite ({@code 0} für die erste Seite).
+     * @param limit   Maximale Anzahl der Patienten.
+     * @return Die Patienten der Seite; leer, wenn keine weiteren existieren.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Patient> getPatientsAfter(int afterId, int limit) throws SQLException {
+        return store.page(afterId, limit);
+    }
+
+    /**
+     * Liest eine Seite von Patienten in beliebiger Sortierung per Keyset-Paginierung.
+     *
+     * @param sort  Die Sortierung; sortiert wird in der Datenbank.
+     * @param after Die Position der letzten Zeile der vorherigen Seite ({@link PatientSort#keyOf})
+     *              oder {@code null} für die erste Seite.
+     * @param limit Maximale Anzahl der Patienten.
+     * @return Die Patienten der Seite; leer, wenn keine weiteren existieren.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Patient> getPatientPage(PatientSort sort, PatientSort.Key after, int limit) throws SQLException {
+        return store.page(sort, after, limit);
+    }
+
+    /**
+     * Liest eine Seite ab einer Zeilennummer. Nur für Sprünge gedacht, deren Vorgängerseite nicht bekannt ist;
+     * die Datenbank muss dabei alle übersprungenen Zeilen lesen.
+     *
+     * @param sort   Die Sortierung.
+     * @param offset Die Nummer der ersten Zeile (0-basiert).
+     * @param limit  Maximale Anzahl der Patienten.
+     * @return Die Patienten der Seite.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Patient> getPatientPageAt(PatientSort sort, int offset, int limit) throws SQLException {
+        return store.pageAt(sort, offset, limit);
+    }
+
+    /**
+     * @return Die Anzahl der Patienten.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public int countPatients() throws SQLException {
+        return store.count();
+    }
+
+    /**
+     * Gibt einen einzelnen Patienten anhand seiner ID zurück.
+     * Die Abfrage wird nach Möglichkeit aus dem {@link PatientCache} beantwortet.
+     *
+     * @param id Die ID des Patienten.
+     * @return Eine eigene Kopie des Patienten oder {@code null}, wenn keiner mit dieser ID existiert.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Patient getPatientById(int id) throws SQLException {
+        Patient cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        Patient patient = store.findById(id);
+        if (patient == null) {
+            Logger.log(Logger.LogLevel.WARN, "Kein Patient mit ID gefunden: " + id);
+            return null;
+        }
+        cache.putIfUnchanged(patient, epoch);
+        return patient;
+    }
+
+    /**
+     * Liest mehrere Patienten anhand ihrer IDs mit wenigen IN-Abfragen statt einer Abfrage pro ID.
+     *
+     * @param ids Die Patienten-IDs.
+     * @return Die gefundenen Patienten, aufsteigend nach ID; nicht vorhandene IDs werden übergangen.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public List<Patient> getPatientsByIds(Collection<Integer> ids) throws SQLException {
+        return store.findByIds(ids);
+    }
+
+    /**
+     * Liest nur ID und Version aller Patienten. Damit lässt sich ein lokaler Stand abgleichen,
+     * ohne alle Zeilen zu übertragen.
+     *
+     * @return Version nach Patienten-ID, aufsteigend nach ID.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Map<Integer, Integer> getPatientVersions() throws SQLException {
+        return store.versions();
+    }
+
+    /**
+     * Sucht Patienten in diesem Speicher, siehe {@link Search#searchPatients(Map)}.
+     *
+     * @param criteria Eine Map, die Spaltennamen den entsprechenden Suchwerten zuordnet.
+     * @return Eine Liste der gefundenen Patienten.
+     * @throws SQLException Falls ein Fehler bei der Datenbankabfrage auftritt.
+     */
+    public List<Patient> searchPatients(Map<String, String> criteria) throws SQLException {
+        return Search.searchPatients(store, index, criteria);
+    }
+
+    /**
+     * Sucht Patienten wie {@link #searchPatients(Map)}, liefert die Treffer aber als Stream über einen
+     * Server-Cursor, z. B. für Exporte. Der Stream hält eine Datenbankverbindung und muss geschlossen werden.
+     *
+     * @param criteria  Die Suchkriterien; leer für alle Patienten.
+     * @param fetchSize Anzahl der Zeilen pro Roundtrip.
+     * @return Die Treffer, aufsteigend nach ID.
+     * @throws SQLException Wenn die Abfrage nicht gestartet werden kann.
+     */
+    public Stream<Patient> streamSearch(Map<String, String> criteria, int fetchSize) throws SQLException {
+        return store.searchStream(criteria, fetchSize);
+    }
+
     /**
      * Aktualisiert die Daten eines bestehenden Patienten.
+     * <p>
+     * Es werden nur die seit dem Laden geänderten Spalten geschrieben ({@link Patient#getDirtyFields()}).
+     * Das UPDATE gilt nur, wenn die Versionsnummer in der Datenbank noch der geladenen entspricht;
+     * danach tragen Datensatz und Objekt die nächste Version und das Objekt gilt als unverändert.
+     * Die geschriebene Zeile wird neu gelesen und zurückgegeben,
+     * damit Aufrufer sie ohne erneutes Laden der ganzen Tabelle anzeigen können.
      *
      * @param patient Das aktualisierte Patient-Objekt.
+     * @return Die Zeile, wie sie nach dem Update in der Datenbank steht; bei fehlenden Änderungen der Patient selbst.
+     * @throws OptimisticLockException Wenn der Patient zwischenzeitlich geändert oder gelöscht wurde.
      * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
      */
-    public void updatePatient(Patient patient) throws SQLException {
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(UPDATE_SQL)) {
-            Helper.setPatientParameters(stmt, patient);
-            stmt.setInt(13, patient.getPatientID());
-            int updatedRows = stmt.executeUpdate();
-            if (updatedRows > 0) {
-                Logger.log(Logger.LogLevel.INFO, "Patient aktualisiert: " + patient);
-            } else {
-                Logger.log(Logger.LogLevel.WARN, "Kein Patient aktualisiert. Möglicherweise ungültige ID: " + patient.getPatientID());
-            }
+    public Patient updatePatient(Patient patient) throws SQLException {
+        if (!patient.isDirty()) {
+            Logger.log(Logger.LogLevel.INFO, "Keine Änderungen an Patient, kein Update nötig: ID=" + patient.getPatientID());
+            return patient;
         }
+        String changed = patient.getDirtyFields().toString();
+        Patient saved;
+        try {
+            saved = store.update(patient);
+        } catch (OptimisticLockException e) {
+            Logger.log(Logger.LogLevel.WARN, "Versionskonflikt beim Aktualisieren von Patient: ID=" + patient.getPatientID()
+                    + ", Version=" + patient.getVersion());
+            cache.invalidate(patient.getPatientID());
+            throw e;
+        }
+        index.patientSaved(saved != null ? saved : patient);
+        Logger.log(Logger.LogLevel.INFO, "Patient aktualisiert (" + changed + "): " + patient);
+        if (saved == null) {
+            cache.invalidate(patient.getPatientID());
+            return patient;
+        }
+        cache.put(saved);
+        return saved;
     }
 
     /**
@@ -125,14 +356,115 @@ public class DAO {
      * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
      */
     public void deletePatient(int id) throws SQLException {
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(DELETE_SQL)) {
-            stmt.setInt(1, id);
-            int deletedRows = stmt.executeUpdate();
-            if (deletedRows > 0) {
-                Logger.log(Logger.LogLevel.INFO, "Patient gelöscht: ID=" + id);
-            } else {
-                Logger.log(Logger.LogLevel.WARN, "Kein Patient gelöscht. Möglicherweise ungültige ID: " + id);
+        boolean deleted = store.delete(id);
+        cache.invalidate(id);
+        if (deleted) {
+            index.patientDeleted(id);
+            Logger.log(Logger.LogLevel.INFO, "Patient gelöscht: ID=" + id);
+        } else {
+            Logger.log(Logger.LogLevel.WARN, "Kein Patient gelöscht. Möglicherweise ungültige ID: " + id);
+        }
+    }
+
+    /**
+     * Fügt mehrere Patienten per JDBC-Batch ein. Die generierten IDs werden in die Patient-Objekte übernommen.
+     *
+     * @param patients Die einzufügenden Patienten.
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult addPatients(Collection<Patient> patients) throws SQLException {
+        return addPatients(patients, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Fügt mehrere Patienten per JDBC-Batch ein, jeweils {@code batchSize} Zeilen pro Transaktion.
+     *
+     * @param patients  Die einzufügenden Patienten.
+     * @param batchSize Anzahl der Zeilen pro Transaktion.
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult addPatients(Collection<Patient> patients, int batchSize) throws SQLException {
+        BatchResult result = store.insertAll(new ArrayList<>(patients), batchSize);
+        indexSaved(patients, result);
+        Logger.log(Logger.LogLevel.INFO, "Patienten im Stapel hinzugefügt: " + result);
+        return result;
+    }
+
+    /**
+     * Aktualisiert mehrere Patienten per JDBC-Batch.
+     *
+     * @param patients Die zu aktualisierenden Patienten.
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult updatePatients(Collection<Patient> patients) throws SQLException {
+        return updatePatients(patients, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Aktualisiert mehrere Patienten per JDBC-Batch, jeweils {@code batchSize} Zeilen pro Transaktion.
+     * Damit alle Zeilen dasselbe Statement nutzen, werden hier stets alle Spalten geschrieben.
+     * Zeilen, deren ID nicht mehr existiert oder deren Version nicht mehr übereinstimmt, gelten als
+     * fehlgeschlagen mit einer {@link OptimisticLockException}.
+     *
+     * @param patients  Die zu aktualisierenden Patienten.
+     * @param batchSize Anzahl der Zeilen pro Transaktion.
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult updatePatients(Collection<Patient> patients, int batchSize) throws SQLException {
+        BatchResult result = store.updateAll(new ArrayList<>(patients), batchSize);
+        for (Patient patient : patients) {
+            cache.invalidate(patient.getPatientID());
+        }
+        indexSaved(patients, result);
+        Logger.log(Logger.LogLevel.INFO, "Patienten im Stapel aktualisiert: " + result);
+        return result;
+    }
+
+    /**
+     * Löscht mehrere Patienten per JDBC-Batch.
+     *
+     * @param ids Die IDs der zu löschenden Patienten.
+     * @return Erfolg oder Fehler pro ID, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult deletePatients(Collection<Integer> ids) throws SQLException {
+        return deletePatients(ids, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Löscht mehrere Patienten per JDBC-Batch, jeweils {@code batchSize} Zeilen pro Transaktion.
+     * IDs, die nicht (mehr) existieren, gelten als fehlgeschlagen.
+     *
+     * @param ids       Die IDs der zu löschenden Patienten.
+     * @param batchSize Anzahl der Zeilen pro Transaktion.
+     * @return Erfolg oder Fehler pro ID, in Eingabereihenfolge.
+     * @throws SQLException Wenn keine Verbindung zur Datenbank hergestellt werden kann.
+     */
+    public BatchResult deletePatients(Collection<Integer> ids, int batchSize) throws SQLException {
+        BatchResult result = store.deleteAll(new ArrayList<>(ids), batchSize);
+        int i = 0;
+        for (int id : ids) {
+            cache.invalidate(id);
+            if (result.isSuccess(i++)) {
+                index.patientDeleted(id);
+            }
+        }
+        Logger.log(Logger.LogLevel.INFO, "Patienten im Stapel gelöscht: " + result);
+        return result;
+    }
+
+    /**
+     * Übernimmt die erfolgreich geschriebenen Patienten eines Stapels in den {@link SearchIndex}.
+     */
+    private void indexSaved(Collection<Patient> patients, BatchResult result) {
+        int i = 0;
+        for (Patient patient : patients) {
+            if (result.isSuccess(i++)) {
+                index.patientSaved(patient);
             }
         }
     }
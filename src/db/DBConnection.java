@@ -1,47 +1,79 @@
 package db;
 
-import utils.Logger;
-
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Stellt die Verbindung zur Datenbank bereit.
+ * <p>
+ * Verbindungen stammen aus einem {@link ConnectionPool}. Jeder Aufrufer erhält eine eigene Verbindung,
+ * die nach Gebrauch mit {@link Connection#close()} an den Pool zurückgegeben wird.
+ * Die Poolparameter können über System-Properties (z. B. {@code -Ddb.pool.maxSize=20}) angepasst werden.
  */
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://127.0.0.1:3306/projektDB?autoReconnect=true&useSSL=false";
+    private static final String URL = "jdbc:mysql://127.0.0.1:3306/projektDB?useSSL=false&rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true";
     private static final String USER = "root";
     private static final String PASSWORD = "root";
 
-    private static Connection connection;
+    /** Verbindungsparameter der früheren statischen Verbindung (ohne Server-Prepared-Statements und Batch-Umschreibung). */
+    private static final String LEGACY_URL = "jdbc:mysql://127.0.0.1:3306/projektDB?autoReconnect=true&useSSL=false";
+
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long BORROW_TIMEOUT_MILLIS = Long.getLong("db.pool.borrowTimeoutMillis", 10_000L);
+    private static final long IDLE_TIMEOUT_MILLIS = Long.getLong("db.pool.idleTimeoutMillis", 600_000L);
+    private static final long MAX_LIFETIME_MILLIS = Long.getLong("db.pool.maxLifetimeMillis", 1_800_000L);
+    private static final long LEAK_THRESHOLD_MILLIS = Long.getLong("db.pool.leakThresholdMillis", 60_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("db.pool.statementCacheSize", 64);
+
+    private static ConnectionPool pool;
 
     /**
-     * Erstellt eine Verbindung zur Datenbank.
+     * Leiht eine Verbindung aus dem Verbindungspool aus.
      *
-     * @return Eine Connection zur Datenbank.
+     * @return Eine Connection zur Datenbank, die mit {@code close()} zurückgegeben wird.
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            Logger.log(Logger.LogLevel.INFO, "Verbindung zur Datenbank wird hergestellt.");
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
+        return getPool().getConnection();
+    }
+
+    /**
+     * Gibt den Verbindungspool zurück und erstellt ihn beim ersten Aufruf.
+     *
+     * @return Der Verbindungspool der Anwendung.
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, MAX_LIFETIME_MILLIS, LEAK_THRESHOLD_MILLIS,
+                    STATEMENT_CACHE_SIZE);
         }
-        return connection;
+        return pool;
+    }
+
+    /**
+     * Öffnet eine einzelne Verbindung am Pool vorbei, mit den Parametern der früheren statischen Verbindung und
+     * ohne Statement-Cache. Nur für Vergleichsmessungen wie {@code benchmark.PatientReadBenchmark}.
+     *
+     * @return Eine neue Connection, die der Aufrufer schließt.
+     */
+    public static Connection openLegacyConnection() throws SQLException {
+        return DriverManager.getConnection(LEGACY_URL, USER, PASSWORD);
+    }
+
+    /** @return Die konfigurierte maximale Anzahl gleichzeitig ausgeliehener Verbindungen. */
+    public static int getMaxPoolSize() {
+        return POOL_MAX_SIZE;
     }
 
     /**
-     * Schließt die Verbindung zur Datenbank, falls sie geöffnet ist.
+     * Schließt den Verbindungspool und alle offenen Verbindungen.
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                if (!connection.isClosed()) {
-                    connection.close();
-                    Logger.log(Logger.LogLevel.INFO, "Datenbankverbindung geschlossen.");
-                }
-            } catch (SQLException e) {
-                Logger.log(Logger.LogLevel.ERROR, "Fehler beim Schließen der Datenbankverbindung.", e);
-            }
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
     }
 }
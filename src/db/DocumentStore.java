@@ -0,0 +1,359 @@
+package db;
+
+import utils.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Inhaltsadressierte Ablage für Befunddokumente.
+ * <p>
+ * Jede Datei liegt unter dem SHA-256-Hash ihres Inhalts ({@code <root>/ab/cd/abcd…}); identische Dokumente
+ * werden also nur einmal gespeichert, und der Hash dient zugleich der Integritätsprüfung. In
+ * {@code befund.Pfad} wird {@code sha256:<hash>/<Dateiname>} eingetragen: Der ursprüngliche Name gehört zur
+ * Referenz, nicht zur abgelegten Datei, damit er angezeigt und beim Öffnen die passende Anwendung gewählt
+ * werden kann ({@link #displayName}, {@link #copyForViewing}). Ältere Einträge mit einem Dateipfad werden
+ * unverändert als Pfad aufgelöst.
+ * <p>
+ * Beim Speichern wird der Hash während des Kopierens in eine temporäre Datei berechnet, sodass Name und
+ * Inhalt auch dann übereinstimmen, wenn sich die Quelle währenddessen ändert; danach wird die Datei atomar
+ * an ihren Platz verschoben. Gelesen wird ohne Kopie auf den Heap:
+ * über {@link FileChannel#transferTo} in einen Kanal oder als schreibgeschützt eingeblendeter Puffer.
+ * <p>
+ * Das Wurzelverzeichnis ist {@code -Ddocuments.dir} (Standard {@code ~/.patientenverwaltung/befunde}).
+ * Dateien werden, soweit das Dateisystem es unterstützt, nur für den Benutzer lesbar angelegt.
+ */
+public final class DocumentStore {
+
+    /** Präfix der in {@code befund.Pfad} gespeicherten Dokumentreferenzen. */
+    public static final String URI_PREFIX = "sha256:";
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /** Maximale Länge des in der Referenz gespeicherten Dateinamens. */
+    private static final int MAX_NAME_LENGTH = 120;
+
+    /** Puffergröße beim Kopieren in die Ablage. */
+    private static final int COPY_BUFFER = 64 << 10;
+
+    /** Größe der Abschnitte, in denen Dateien zum Hashen eingeblendet werden. */
+    private static final long MAP_CHUNK = 64L << 20;
+
+    private static DocumentStore instance;
+
+    private final Path root;
+
+    /**
+     * @param root Das Wurzelverzeichnis der Ablage.
+     */
+    public DocumentStore(Path root) {
+        this.root = root;
+    }
+
+    /** @return Die Ablage der Anwendung gemäß {@code documents.dir}. */
+    public static synchronized DocumentStore getInstance() {
+        if (instance == null) {
+            String configured = System.getProperty("documents.dir");
+            Path root = configured != null && !configured.isBlank()
+                    ? Paths.get(configured)
+                    : Paths.get(System.getProperty("user.home"), ".patientenverwaltung", "befunde");
+            instance = new DocumentStore(root);
+        }
+        return instance;
+    }
+
+    /**
+     * Speichert eine Datei. Der Hash wird beim Kopieren in eine temporäre Datei berechnet, die Quelle also nur
+     * einmal gelesen; er beschreibt damit genau den gespeicherten Inhalt, auch wenn die Quelle währenddessen
+     * geändert wird. Ist ein Dokument mit demselben Inhalt bereits vorhanden, wird die Kopie verworfen.
+     *
+     * @param source Die Quelldatei.
+     * @return Die Referenz für {@code befund.Pfad} ({@code sha256:<hash>/<Dateiname>}).
+     * @throws IOException Wenn die Datei nicht gelesen oder gespeichert werden kann.
+     */
+    public String put(Path source) throws IOException {
+        MessageDigest digest = newDigest();
+        Path tmp = createTemp();
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER);
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(hash);
+            if (Files.exists(target)) {
+                Logger.log(Logger.LogLevel.INFO, "Dokument bereits vorhanden: " + hash);
+            } else {
+                publish(tmp, target);
+                Logger.log(Logger.LogLevel.INFO, "Dokument gespeichert: " + source.getFileName() + " -> " + hash);
+            }
+            String name = safeFileName(source.getFileName() != null ? source.getFileName().toString() : "");
+            return URI_PREFIX + hash + (name.isEmpty() ? "" : "/" + name);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Speichert den Inhalt eines Streams, z. B. eines Uploads. Der Hash wird beim Schreiben berechnet,
+     * der Inhalt also nur einmal gelesen.
+     *
+     * @param in Der Inhalt; wird nicht geschlossen.
+     * @return Die Referenz für {@code befund.Pfad} ({@code sha256:<hash>}).
+     * @throws IOException Wenn nicht gelesen oder gespeichert werden kann.
+     */
+    public String put(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        Path tmp = createTemp();
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp, StandardOpenOption.WRITE), digest)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(hash);
+            if (!Files.exists(target)) {
+                publish(tmp, target);
+                Logger.log(Logger.LogLevel.INFO, "Dokument gespeichert: " + hash);
+            }
+            return URI_PREFIX + hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Löst einen Eintrag aus {@code befund.Pfad} in eine Datei auf.
+     *
+     * @param pfad Eine Referenz {@code sha256:<hash>[/<Dateiname>]} oder ein älterer, direkter Dateipfad.
+     * @return Der Pfad der Datei in der Ablage. Sie hat keine Endung und darf nicht verändert werden; zum
+     *         Anzeigen {@link #copyForViewing(String)} verwenden.
+     * @throws IllegalArgumentException Wenn die Referenz kein gültiger Hash ist.
+     */
+    public Path resolve(String pfad) {
+        if (pfad != null && pfad.startsWith(URI_PREFIX)) {
+            return pathOf(hashOf(pfad));
+        }
+        return Paths.get(pfad);
+    }
+
+    /**
+     * Gibt den Namen zurück, unter dem ein Dokument angezeigt wird: den ursprünglichen Dateinamen aus der
+     * Referenz, bei älteren Einträgen den Namen der Datei.
+     *
+     * @param pfad Der Eintrag aus {@code befund.Pfad}.
+     * @return Der Anzeigename.
+     */
+    public static String displayName(String pfad) {
+        if (pfad == null || pfad.isBlank()) {
+            return "Dokument";
+        }
+        if (pfad.startsWith(URI_PREFIX)) {
+            int slash = pfad.indexOf('/', URI_PREFIX.length());
+            if (slash >= 0 && slash + 1 < pfad.length()) {
+                return pfad.substring(slash + 1);
+            }
+            return "Dokument " + pfad.substring(URI_PREFIX.length(), Math.min(pfad.length(), URI_PREFIX.length() + 12));
+        }
+        Path fileName = Paths.get(pfad).getFileName();
+        return fileName != null ? fileName.toString() : pfad;
+    }
+
+    /**
+     * Kopiert ein Dokument unter seinem ursprünglichen Namen in ein eigenes temporäres Verzeichnis und macht
+     * die Kopie schreibgeschützt. So wählt das Betriebssystem die Anwendung anhand der Endung, und ein Viewer
+     * kann die inhaltsadressierte Datei in der Ablage nicht verändern. Die Kopie wird beim Beenden gelöscht.
+     *
+     * @param pfad Der Eintrag aus {@code befund.Pfad}.
+     * @return Die Kopie.
+     * @throws IOException Wenn nicht gelesen oder geschrieben werden kann.
+     */
+    public Path copyForViewing(String pfad) throws IOException {
+        Path dir = Files.createTempDirectory("befund");
+        dir.toFile().deleteOnExit();
+        String name = safeFileName(displayName(pfad));
+        Path copy = dir.resolve(name.isEmpty() ? "Dokument" : name);
+        try (FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            transferTo(pfad, out);
+        }
+        copy.toFile().deleteOnExit();
+        restrictToOwner(copy);
+        if (!copy.toFile().setReadOnly()) {
+            Logger.log(Logger.LogLevel.WARN, "Kopie konnte nicht schreibgeschützt werden: " + copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Prüft, ob der Inhalt eines gespeicherten Dokuments noch zu seinem Hash passt.
+     * Ältere Einträge mit direktem Dateipfad haben keinen Hash und gelten als gültig, wenn die Datei existiert.
+     *
+     * @param pfad Der Eintrag aus {@code befund.Pfad}.
+     * @return {@code true}, wenn die Datei vorhanden und unverändert ist.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann.
+     */
+    public boolean verify(String pfad) throws IOException {
+        Path file = resolve(pfad);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        if (!pfad.startsWith(URI_PREFIX)) {
+            return true;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean valid = hash(in).equals(hashOf(pfad));
+            if (!valid) {
+                Logger.log(Logger.LogLevel.ERROR, "Dokument beschädigt (Hash stimmt nicht): " + file);
+            }
+            return valid;
+        }
+    }
+
+    /**
+     * Überträgt ein Dokument in einen Kanal, z. B. eine Zieldatei oder einen Socket. Das Betriebssystem kopiert
+     * dabei direkt (ohne Umweg über den Heap), soweit die Plattform es unterstützt.
+     *
+     * @param pfad   Der Eintrag aus {@code befund.Pfad}.
+     * @param target Das Ziel; wird nicht geschlossen.
+     * @return Anzahl der übertragenen Bytes.
+     * @throws IOException Wenn nicht gelesen oder geschrieben werden kann.
+     */
+    public long transferTo(String pfad, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(resolve(pfad), StandardOpenOption.READ)) {
+            return transfer(in, target);
+        }
+    }
+
+    /**
+     * Blendet ein Dokument schreibgeschützt in den Speicher ein, z. B. für einen Viewer. Der Inhalt wird erst
+     * beim Zugriff seitenweise vom Betriebssystem geladen und belegt keinen Heap.
+     *
+     * @param pfad Der Eintrag aus {@code befund.Pfad}.
+     * @return Der eingeblendete Inhalt.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder größer als 2 GiB ist.
+     */
+    public MappedByteBuffer map(String pfad) throws IOException {
+        try (FileChannel in = FileChannel.open(resolve(pfad), StandardOpenOption.READ)) {
+            if (in.size() > Integer.MAX_VALUE) {
+                throw new IOException("Dokument zu groß zum Einblenden: " + pfad);
+            }
+            return in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /** @return Der normalisierte Hash einer Referenz {@code sha256:<hash>[/<Dateiname>]}. */
+    private static String hashOf(String pfad) {
+        int slash = pfad.indexOf('/', URI_PREFIX.length());
+        String hash = pfad.substring(URI_PREFIX.length(), slash >= 0 ? slash : pfad.length());
+        String normalized = hash.toLowerCase(Locale.ROOT);
+        if (normalized.length() != 64 || !normalized.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Ungültige Dokumentreferenz: " + pfad);
+        }
+        return normalized;
+    }
+
+    /**
+     * Entfernt aus einem Dateinamen Zeichen, die unter Windows oder in Pfaden nicht erlaubt sind, und kürzt ihn
+     * unter Beibehaltung der Endung.
+     */
+    private static String safeFileName(String name) {
+        String cleaned = name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+        // Führende Punkte verstecken die Datei, abschließende Punkte entfernt Windows stillschweigend
+        while (cleaned.startsWith(".")) {
+            cleaned = cleaned.substring(1);
+        }
+        while (cleaned.endsWith(".")) {
+            cleaned = cleaned.substring(0, cleaned.length() - 1);
+        }
+        if (cleaned.length() <= MAX_NAME_LENGTH) {
+            return cleaned;
+        }
+        int dot = cleaned.lastIndexOf('.');
+        String extension = dot > 0 && cleaned.length() - dot <= 16 ? cleaned.substring(dot) : "";
+        return cleaned.substring(0, MAX_NAME_LENGTH - extension.length()) + extension;
+    }
+
+    /** Berechnet den Hash über schreibgeschützt eingeblendete Abschnitte der Datei. */
+    private static String hash(FileChannel in) throws IOException {
+        MessageDigest digest = newDigest();
+        long size = in.size();
+        for (long position = 0; position < size; position += MAP_CHUNK) {
+            MappedByteBuffer chunk = in.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK, size - position));
+            digest.update(chunk);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static long transfer(FileChannel in, WritableByteChannel out) throws IOException {
+        long size = in.size();
+        long position = 0;
+        // transferTo kann weniger als angefordert übertragen
+        while (position < size) {
+            position += in.transferTo(position, size - position, out);
+        }
+        return size;
+    }
+
+    private Path createTemp() throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload", ".tmp");
+        restrictToOwner(tmp);
+        return tmp;
+    }
+
+    /** Verschiebt eine fertig geschriebene Datei atomar an ihren endgültigen Platz. */
+    private static void publish(Path tmp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Gleichzeitig mit identischem Inhalt gespeichert
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " ist nicht verfügbar.", e);
+        }
+    }
+
+    private static void restrictToOwner(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Nicht-POSIX-Dateisystem (z. B. Windows): die Datei liegt ohnehin im Benutzerverzeichnis
+        }
+    }
+}
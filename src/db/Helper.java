@@ -7,6 +7,64 @@ import java.sql.*;
 
 public class Helper {
 
+    /** Anzeigename für Referenz-IDs ohne passenden Eintrag. */
+    public static final String UNKNOWN_NAME = "Unbekannt";
+
+    /**
+     * Liest Patienten samt aufgelösten Namen von Bundesland, Geschlecht und Krankenkasse in einer Abfrage.
+     * Aufrufer können eine WHERE- oder ORDER-BY-Klausel anhängen; Patientenspalten sind mit {@code p.} qualifiziert.
+     */
+    public static final String SELECT_PATIENT_SQL = """
+        SELECT p.*,
+               b.Bezeichnung AS BundeslandName,
+               g.Bezeichnung AS GeschlechtName,
+               k.Bezeichnung AS KrankenkasseName
+        FROM Patient p
+        LEFT JOIN bundesland b ON b.BundeslandID = p.BundeslandID
+        LEFT JOIN geschlecht g ON g.GeschlechtID = p.GeschlechtID
+        LEFT JOIN krankenkasse k ON k.KrankenkasseID = p.KrankenkasseID
+        """;
+
+    /**
+     * Größen der IN-Listen für Abfragen über viele IDs. Kürzere Listen werden auf die nächste Größe aufgefüllt,
+     * damit nur wenige verschiedene Statements entstehen und diese im Statement-Cache bleiben.
+     */
+    private static final int[] IN_LIST_SIZES = {1, 8, 64, 500};
+
+    /** Maximale Anzahl der IDs pro IN-Liste; längere Listen werden in Abschnitte geteilt. */
+    static final int MAX_IN_LIST_SIZE = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+
+    /**
+     * @param count Anzahl der IDs (höchstens {@link #MAX_IN_LIST_SIZE}).
+     * @return Die Anzahl der Platzhalter, mit der diese IDs abgefragt werden.
+     */
+    static int inListSize(int count) {
+        for (int size : IN_LIST_SIZES) {
+            if (count <= size) {
+                return size;
+            }
+        }
+        return MAX_IN_LIST_SIZE;
+    }
+
+    /** @return {@code size} durch Komma getrennte Platzhalter für eine IN-Liste. */
+    static String placeholders(int size) {
+        return "?,".repeat(size - 1) + "?";
+    }
+
+    /**
+     * Bindet {@code count} IDs ab {@code ids[from]} an eine IN-Liste mit {@code size} Platzhaltern.
+     * Überzählige Platzhalter erhalten die letzte ID des Abschnitts, was das Ergebnis nicht ändert.
+     *
+     * @return Der nächste freie Parameterindex.
+     */
+    static int bindInList(PreparedStatement stmt, int index, int[] ids, int from, int count, int size) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            stmt.setInt(index++, ids[from + Math.min(i, count - 1)]);
+        }
+        return index;
+    }
+
     /**
      * Setzt die Parameter eines PreparedStatements basierend auf einem Patient-Objekt.
      *
@@ -37,58 +95,65 @@ public class Helper {
     }
 
     /**
-     * Mappt ein ResultSet auf ein Patient-Objekt.
+     * Setzt einen einzelnen Spaltenwert eines Patienten, z. B. für ein UPDATE nur der geänderten Felder.
      *
-     * @param rs            Das ResultSet, das Daten aus der Datenbank enthält.
-     * @param patient       Ein existierendes Patient-Objekt oder null.
-     * @param connection    Die aktive Datenbankverbindung.
+     * @param stmt    Das PreparedStatement.
+     * @param index   Der Parameterindex.
+     * @param field   Das zu setzende Feld.
+     * @param patient Das Patient-Objekt.
+     * @throws SQLException Falls ein SQL-Fehler auftritt.
+     */
+    public static void setFieldParameter(PreparedStatement stmt, int index, Patient.Field field, Patient patient) throws SQLException {
+        switch (field) {
+            case VORNAME -> stmt.setString(index, patient.getVorname());
+            case NACHNAME -> stmt.setString(index, patient.getNachname());
+            case ANREDE -> stmt.setString(index, patient.getAnrede());
+            case GEBURTSDATUM -> stmt.setDate(index, patient.getGeburtsdatum() != null ? java.sql.Date.valueOf(patient.getGeburtsdatum()) : null);
+            case STRASSE -> stmt.setString(index, patient.getStrasse());
+            case PLZ -> stmt.setString(index, patient.getPlz());
+            case ORT -> stmt.setString(index, patient.getOrt());
+            case BUNDESLAND_ID -> stmt.setInt(index, patient.getBundeslandID());
+            case TELEFON -> stmt.setString(index, patient.getTelefon());
+            case GESCHLECHT_ID -> stmt.setInt(index, patient.getGeschlechtID());
+            case KRANKENKASSE_ID -> stmt.setInt(index, patient.getKrankenkasseID());
+            case SONSTIGES -> stmt.setString(index, patient.getSonstiges());
+        }
+    }
+
+    /**
+     * Mappt eine Zeile aus {@link #SELECT_PATIENT_SQL} auf ein Patient-Objekt.
+     * Die Namen von Bundesland, Geschlecht und Krankenkasse werden aus den gejointen Spalten gelesen,
+     * es sind also keine weiteren Abfragen pro Zeile nötig.
+     *
+     * @param rs Das ResultSet, positioniert auf der zu lesenden Zeile.
      * @return Ein Patient-Objekt, das mit den Daten aus dem ResultSet befüllt ist.
      * @throws SQLException Wenn ein Fehler beim Lesen der Daten auftritt.
      */
-    public static Patient mapResultSetToPatient(ResultSet rs, Patient patient, Connection connection) throws SQLException {
+    public static Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
         try {
-            Logger.log(Logger.LogLevel.DEBUG, "Patient wird aus ResultSet gemappt.");
-            Logger.log(Logger.LogLevel.DEBUG, "Eingehendes Patient-Objekt: " + (patient == null ? "null" : patient.toString()));
-            // Falls kein bestehendes Patient-Objekt übergeben wird, ein neues erstellen
-            if (patient == null) {
-                patient = new Patient();
-                Logger.log(Logger.LogLevel.WARN, "Es wird ein neuer Patient erstellt.");
-            }
-            if (patient.getPatientID() != 0) {
-                Logger.log(Logger.LogLevel.WARN, "Ein bereits initialisierter Patient wird überschrieben. Überprüfen Sie den Aufruf!");
+            Patient patient = new Patient();
+            patient.setPatientID(rs.getInt("PatientID"));
+            patient.setVorname(rs.getString("Vorname"));
+            patient.setNachname(rs.getString("Nachname"));
+            patient.setAnrede(rs.getString("Anrede"));
+            Date geburtsdatum = rs.getDate("Geburtsdatum");
+            if (geburtsdatum != null) {
+                patient.setGeburtsdatum(geburtsdatum.toLocalDate());
             }
+            patient.setStrasse(rs.getString("Strasse"));
+            patient.setPlz(rs.getString("PLZ"));
+            patient.setOrt(rs.getString("Ort"));
+            patient.setBundeslandID(rs.getInt("BundeslandID"));
+            patient.setTelefon(rs.getString("Telefon"));
+            patient.setGeschlechtID(rs.getInt("GeschlechtID"));
+            patient.setKrankenkasseID(rs.getInt("KrankenkasseID"));
+            patient.setSonstiges(rs.getString("Sonstiges"));
 
-            // Werte setzen nur, wenn sie aktuell leer sind
-            if (patient.getPatientID() == 0) patient.setPatientID(rs.getInt("patientID"));
-            if (patient.getVorname() == null) patient.setVorname(rs.getString("vorname"));
-            if (patient.getNachname() == null) patient.setNachname(rs.getString("nachname"));
-            if (patient.getAnrede() == null) patient.setAnrede(rs.getString("anrede"));
-            if (patient.getGeburtsdatum() == null && rs.getDate("geburtsdatum") != null) {
-                patient.setGeburtsdatum(rs.getDate("geburtsdatum").toLocalDate());
-            }
-            if (patient.getStrasse() == null) patient.setStrasse(rs.getString("strasse"));
-            if (patient.getPlz() == null) patient.setPlz(rs.getString("plz"));
-            if (patient.getOrt() == null) patient.setOrt(rs.getString("ort"));
-            if (patient.getBundeslandID() == 0) patient.setBundeslandID(rs.getInt("bundeslandID"));
-            if (patient.getTelefon() == null) patient.setTelefon(rs.getString("telefon"));
-            if (patient.getGeschlechtID() == 0) patient.setGeschlechtID(rs.getInt("geschlechtID"));
-            if (patient.getKrankenkasseID() == 0) patient.setKrankenkasseID(rs.getInt("krankenkasseID"));
-            if (patient.getSonstiges() == null) patient.setSonstiges(rs.getString("sonstiges"));
-
-            // IDs in Namen übersetzen (nur falls noch nicht gesetzt)
-            if (connection != null) {
-                if (patient.getBundeslandName() == null) {
-                    patient.setBundeslandName(getBundeslandName(connection, patient.getBundeslandID()));
-                }
-                if (patient.getGeschlechtName() == null) {
-                    patient.setGeschlechtName(getGeschlechtName(connection, patient.getGeschlechtID()));
-                }
-                if (patient.getKrankenkasseName() == null) {
-                    patient.setKrankenkasseName(getKrankenkasseName(connection, patient.getKrankenkasseID()));
-                }
-            }
-
-            Logger.log(Logger.LogLevel.DEBUG, "Patient erfolgreich gemappt: " + patient);
+            patient.setBundeslandName(nameOrUnknown(rs.getString("BundeslandName")));
+            patient.setGeschlechtName(nameOrUnknown(rs.getString("GeschlechtName")));
+            patient.setKrankenkasseName(nameOrUnknown(rs.getString("KrankenkasseName")));
+            patient.setVersion(rs.getInt("Version"));
+            patient.clearDirty();
             return patient;
         } catch (SQLException e) {
             Logger.log(Logger.LogLevel.ERROR, "Fehler beim Mappen des ResultSet zu Patient.", e);
@@ -96,8 +161,13 @@ public class Helper {
         }
     }
 
+    private static String nameOrUnknown(String name) {
+        return name != null ? name : UNKNOWN_NAME;
+    }
+
     /**
      * Gibt den Namen eines Bundeslandes basierend auf seiner ID zurück.
+     * Der Name wird aus {@link ReferenceData} gelesen; nur unbekannte IDs werden in der Datenbank nachgeschlagen.
      *
      * @param connection    Die aktive Datenbankverbindung.
      * @param bundeslandID  Die ID des Bundeslandes.
@@ -105,6 +175,10 @@ public class Helper {
      * @throws SQLException Wenn ein Fehler beim Abrufen des Namens auftritt.
      */
     public static String getBundeslandName(Connection connection, int bundeslandID) throws SQLException {
+        String cached = ReferenceData.bundeslaender().getName(bundeslandID);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT Bezeichnung FROM bundesland WHERE BundeslandID = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, bundeslandID);
@@ -114,11 +188,12 @@ public class Helper {
                 }
             }
         }
-        return "Unbekannt";
+        return UNKNOWN_NAME;
     }
 
     /**
      * Gibt den Namen eines Geschlechts basierend auf seiner ID zurück.
+     * Der Name wird aus {@link ReferenceData} gelesen; nur unbekannte IDs werden in der Datenbank nachgeschlagen.
      *
      * @param connection   Die aktive Datenbankverbindung.
      * @param geschlechtID Die ID des Geschlechts.
@@ -126,6 +201,10 @@ public class Helper {
      * @throws SQLException Wenn ein Fehler beim Abrufen des Namens auftritt.
      */
     public static String getGeschlechtName(Connection connection, int geschlechtID) throws SQLException {
+        String cached = ReferenceData.geschlechter().getName(geschlechtID);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT Bezeichnung FROM geschlecht WHERE GeschlechtID = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, geschlechtID);
@@ -135,11 +214,12 @@ public class Helper {
                 }
             }
         }
-        return "Unbekannt";
+        return UNKNOWN_NAME;
     }
 
     /**
      * Gibt den Namen einer Krankenkasse basierend auf ihrer ID zurück.
+     * Der Name wird aus {@link ReferenceData} gelesen; nur unbekannte IDs werden in der Datenbank nachgeschlagen.
      *
      * @param connection       Die aktive Datenbankverbindung.
      * @param krankenkasseID   Die ID der Krankenkasse.
@@ -147,6 +227,10 @@ public class Helper {
      * @throws SQLException Wenn ein Fehler beim Abrufen des Namens auftritt.
      */
     public static String getKrankenkasseName(Connection connection, int krankenkasseID) throws SQLException {
+        String cached = ReferenceData.krankenkassen().getName(krankenkasseID);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT Bezeichnung FROM krankenkasse WHERE KrankenkasseID = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, krankenkasseID);
@@ -156,6 +240,6 @@ public class Helper {
                 }
             }
         }
-        return "Unbekannt";
+        return UNKNOWN_NAME;
     }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package db;
+
+import model.Patient;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link PatientStore} im Arbeitsspeicher, z. B. für Last- und Durchsatztests ohne MySQL.
+ * <p>
+ * Die Zeilen liegen in einer {@link ConcurrentSkipListMap} nach ID, Lesen und Scannen kommen also ohne
+ * Sperren aus und sind nach ID sortiert. Gespeicherte Objekte werden nie verändert: ein Update legt eine
+ * geänderte Kopie an und ersetzt die alte Zeile (Copy-on-Write). Schreibvorgänge auf dieselbe ID werden
+ * über eine von {@value #STRIPES} Sperren serialisiert, Schreibvorgänge auf verschiedene IDs laufen meist parallel.
+ * <p>
+ * Suche, Versionsprüfung und Referenznamen verhalten sich wie bei {@link JdbcPatientStore}; Fremdschlüssel
+ * werden nicht geprüft. Die Referenznamen stammen aus {@link ReferenceData}, sofern diese geladen oder über
+ * {@link ReferenceData#install} gesetzt wurden; andernfalls bleiben die Namen des geschriebenen Objekts erhalten,
+ * damit ohne Datenbank kein Verbindungsversuch entsteht.
+ */
+public class InMemoryPatientStore implements PatientStore {
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentSkipListMap<Integer, Patient> rows = new ConcurrentSkipListMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    public InMemoryPatientStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public int insert(Patient patient) {
+        int id = lastId.incrementAndGet();
+        Patient row = new Patient(patient);
+        row.setPatientID(id);
+        row.setVersion(0);
+        store(row);
+        patient.setPatientID(id);
+        patient.setVersion(0);
+        patient.clearDirty();
+        return id;
+    }
+
+    @Override
+    public BatchResult insertAll(List<Patient> patients, int batchSize) {
+        checkBatchSize(batchSize);
+        BatchResult result = new BatchResult(patients.size());
+        for (int i = 0; i < patients.size(); i++) {
+            insert(patients.get(i));
+            result.markSuccess(i);
+        }
+        return result;
+    }
+
+    @Override
+    public Patient findById(int id) {
+        Patient row = rows.get(id);
+        return row != null ? new Patient(row) : null;
+    }
+
+    @Override
+    public List<Patient> findByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .distinct()
+                .sorted()
+                .map(rows::get)
+                .filter(row -> row != null)
+                .map(Patient::new)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Map<Integer, Integer> versions() {
+        Map<Integer, Integer> versions = new LinkedHashMap<>();
+        rows.forEach((id, row) -> versions.put(id, row.getVersion()));
+        return versions;
+    }
+
+    @Override
+    public Stream<Patient> scan(int afterId, int fetchSize) {
+        return rows.tailMap(afterId, false).values().stream().map(Patient::new);
+    }
+
+    @Override
+    public List<Patient> page(int afterId, int limit) {
+        return rows.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(Patient::new)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Sortiert bei jedem Aufruf alle Zeilen (außer nach aufsteigender ID); für Tests ausreichend.
+     */
+    @Override
+    public List<Patient> page(PatientSort sort, PatientSort.Key after, int limit) {
+        if (sort.equals(PatientSort.BY_ID)) {
+            return page(after != null ? after.id() : 0, limit);
+        }
+        Comparator<PatientSort.Key> order = sort.keyComparator();
+        return rows.values().stream()
+                .filter(row -> after == null || order.compare(sort.keyOf(row), after) > 0)
+                .sorted(Comparator.comparing(sort::keyOf, order))
+                .limit(limit)
+                .map(Patient::new)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<Patient> pageAt(PatientSort sort, int offset, int limit) {
+        return rows.values().stream()
+                .sorted(Comparator.comparing(sort::keyOf, sort.keyComparator()))
+                .skip(offset)
+                .limit(limit)
+                .map(Patient::new)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public int count() {
+        return rows.size();
+    }
+
+    @Override
+    public List<Patient> search(Map<String, String> criteria) {
+        SearchQuery query = SearchQuery.compile(criteria);
+        return rows.values().stream()
+                .filter(query::matches)
+                .map(Patient::new)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Stream<Patient> searchStream(Map<String, String> criteria, int fetchSize) {
+        SearchQuery query = SearchQuery.compile(criteria);
+        return rows.values().stream().filter(query::matches).map(Patient::new);
+    }
+
+    @Override
+    public Patient update(Patient patient) throws OptimisticLockException {
+        return new Patient(write(patient, false));
+    }
+
+    @Override
+    public BatchResult updateAll(List<Patient> patients, int batchSize) {
+        checkBatchSize(batchSize);
+        BatchResult result = new BatchResult(patients.size());
+        for (int i = 0; i < patients.size(); i++) {
+            try {
+                write(patients.get(i), true);
+                result.markSuccess(i);
+            } catch (OptimisticLockException e) {
+                result.markFailure(i, e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return rows.remove(id) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public BatchResult deleteAll(List<Integer> ids, int batchSize) {
+        checkBatchSize(batchSize);
+        BatchResult result = new BatchResult(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (delete(ids.get(i))) {
+                result.markSuccess(i);
+            } else {
+                result.markFailure(i, new SQLException("Keine Zeile betroffen für: " + ids.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /** @return Anzahl der gespeicherten Patienten. */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Ersetzt die Zeile eines Patienten durch eine Kopie mit seinen Änderungen.
+     *
+     * @param allColumns {@code true}, um alle Felder zu übernehmen, sonst nur die geänderten.
+     * @return Die neue, gespeicherte Zeile.
+     */
+    private Patient write(Patient patient, boolean allColumns) throws OptimisticLockException {
+        int id = patient.getPatientID();
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Patient current = rows.get(id);
+            if (current == null || current.getVersion() != patient.getVersion()) {
+                throw new OptimisticLockException(id, patient.getVersion());
+            }
+            Patient row;
+            if (allColumns) {
+                row = new Patient(patient);
+            } else {
+                row = new Patient(current);
+                row.applyChanges(patient);
+            }
+            row.setVersion(current.getVersion() + 1);
+            store(row);
+            patient.setVersion(row.getVersion());
+            patient.clearDirty();
+            return row;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Löst die Referenznamen wie der JOIN der SQL-Abfrage auf und legt die Zeile ab. */
+    private void store(Patient row) {
+        if (ReferenceData.isLoaded()) {
+            row.setBundeslandName(referenceName(ReferenceData.bundeslaender().getName(row.getBundeslandID())));
+            row.setGeschlechtName(referenceName(ReferenceData.geschlechter().getName(row.getGeschlechtID())));
+            row.setKrankenkasseName(referenceName(ReferenceData.krankenkassen().getName(row.getKrankenkasseID())));
+        } else {
+            row.setBundeslandName(referenceName(row.getBundeslandName()));
+            row.setGeschlechtName(referenceName(row.getGeschlechtName()));
+            row.setKrankenkasseName(referenceName(row.getKrankenkasseName()));
+        }
+        row.clearDirty();
+        rows.put(row.getPatientID(), row);
+    }
+
+    private static String referenceName(String name) {
+        return name != null ? name : Helper.UNKNOWN_NAME;
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return locks[Math.floorMod(id, STRIPES)];
+    }
+
+    private static void checkBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batchgröße muss positiv sein: " + batchSize);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link PatientStore} auf MySQL über den {@link ConnectionPool} von {@link DBConnection}.
+ * <p>
+ * Gelesen wird über {@link Helper#SELECT_PATIENT_SQL} mit gejointen Referenznamen, große Mengen über
+ * einen Server-Cursor. Stapeloperationen laufen als JDBC-Batches in Transaktionen zu je {@code batchSize} Zeilen.
+ */
+public class JdbcPatientStore implements PatientStore {
+
+    private static final String INSERT_SQL =
+            """
+            INSERT INTO Patient (
+                vorname,
+                nachname,
+                anrede,
+                geburtsdatum,
+                strasse,
+                plz,
+                ort,
+                bundeslandID,
+                telefon,
+                geschlechtID,
+                krankenkasseID,
+                sonstiges
+            )
+            VALUES (?,?,?,?,?,?,?,?,?,?,?,?)
+            """;
+
+    private static final String SELECT_ALL_SQL = Helper.SELECT_PATIENT_SQL + "ORDER BY p.PatientID";
+
+    private static final String SELECT_AFTER_ID_SQL = Helper.SELECT_PATIENT_SQL + "WHERE p.PatientID > ? ORDER BY p.PatientID";
+
+    private static final String SELECT_PAGE_SQL = SELECT_AFTER_ID_SQL + " LIMIT ?";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM Patient";
+
+    private static final String SELECT_VERSIONS_SQL = "SELECT PatientID, Version FROM Patient ORDER BY PatientID";
+
+    private static final String SELECT_BY_ID_SQL = Helper.SELECT_PATIENT_SQL + "WHERE p.PatientID = ?";
+
+    private static final String UPDATE_SQL = """
+        UPDATE Patient
+        SET Vorname = ?,
+            Nachname = ?,
+            Anrede = ?,
+            Geburtsdatum = ?,
+            Strasse = ?,
+            PLZ = ?,
+            Ort = ?,
+            BundeslandID = ?,
+            Telefon = ?,
+            GeschlechtID = ?,
+            KrankenkasseID = ?,
+            Sonstiges = ?,
+            Version = Version + 1
+        WHERE PatientID = ? AND Version = ?
+        """;
+
+    private static final String DELETE_SQL = "DELETE FROM Patient WHERE PatientID = ?";
+
+    /** UPDATE-Statements für nur einen Teil der Spalten, je Menge geänderter Felder einmal erzeugt. */
+    private static final Map<Set<Patient.Field>, String> PARTIAL_UPDATE_SQL = new ConcurrentHashMap<>();
+
+    /**
+     * Bindet die Parameter eines Elements an ein PreparedStatement.
+     */
+    @FunctionalInterface
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    /**
+     * Übernimmt einen generierten Schlüssel in das zugehörige Element.
+     */
+    @FunctionalInterface
+    private interface KeyConsumer<T> {
+        void accept(T item, int key);
+    }
+
+
+    @Override
+    public int insert(Patient patient) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            Helper.setPatientParameters(stmt, patient);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    patient.setPatientID(keys.getInt(1));
+                }
+            }
+            patient.setVersion(0);
+            patient.clearDirty();
+            return patient.getPatientID();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            Logger.log(Logger.LogLevel.WARN, "Ungültige Eingabe für Patient: " + patient, e);
+            throw new IllegalArgumentException("Ungültige Eingabe. Überprüfen Sie die IDs oder doppelte Daten!", e);
+        }
+    }
+
+    @Override
+    public BatchResult insertAll(List<Patient> patients, int batchSize) throws SQLException {
+        BatchResult result = executeBatch(INSERT_SQL, patients, batchSize,
+                patient -> new SQLException("Keine Zeile betroffen für: " + patient),
+                Helper::setPatientParameters, (patient, id) -> patient.setPatientID(id));
+        for (int i = 0; i < patients.size(); i++) {
+            if (result.isSuccess(i)) {
+                patients.get(i).setVersion(0);
+                patients.get(i).clearDirty();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Patient findById(int id) throws SQLException {
+        try (Connection connection = DBConnection.getConnection()) {
+            return findById(connection, id);
+        }
+    }
+
+    private static Patient findById(Connection connection, int id) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Helper.mapResultSetToPatient(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Patient> findByIds(Collection<Integer> ids) throws SQLException {
+        int[] sorted = ids.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        List<Patient> patients = new ArrayList<>(sorted.length);
+        if (sorted.length == 0) {
+            return patients;
+        }
+        try (Connection connection = DBConnection.getConnection()) {
+            for (int from = 0; from < sorted.length; from += Helper.MAX_IN_LIST_SIZE) {
+                int count = Math.min(Helper.MAX_IN_LIST_SIZE, sorted.length - from);
+                int size = Helper.inListSize(count);
+                try (PreparedStatement stmt = connection.prepareStatement(selectByIdsSql(size))) {
+                    Helper.bindInList(stmt, 1, sorted, from, count, size);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            patients.add(Helper.mapResultSetToPatient(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return patients;
+    }
+
+    private static String selectByIdsSql(int size) {
+        return Helper.SELECT_PATIENT_SQL + "WHERE p.PatientID IN (" + Helper.placeholders(size) + ") ORDER BY p.PatientID";
+    }
+
+    @Override
+    public Map<Integer, Integer> versions() throws SQLException {
+        Map<Integer, Integer> versions = new LinkedHashMap<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_VERSIONS_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(DAO.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Liest über einen Server-Cursor in Portionen von {@code fetchSize}; der Speicherbedarf bleibt
+     * unabhängig von der Tabellengröße konstant. Der Stream hält eine Datenbankverbindung.
+     */
+    @Override
+    public Stream<Patient> scan(int afterId, int fetchSize) throws SQLException {
+        return stream(SELECT_AFTER_ID_SQL, fetchSize, (stmt, id) -> stmt.setInt(1, id), afterId);
+    }
+
+    /**
+     * Führt die Suche wie {@link #search(Map)} aus, liest das Ergebnis aber wie {@link #scan} über einen Server-Cursor.
+     */
+    @Override
+    public Stream<Patient> searchStream(Map<String, String> criteria, int fetchSize) throws SQLException {
+        SearchQuery query = SearchQuery.compile(criteria);
+        Logger.log(Logger.LogLevel.DEBUG, "Auszuführendes SQL-Statement: " + query.getSql());
+        return stream(query.getSql(), fetchSize, (stmt, q) -> q.bind(stmt), query);
+    }
+
+    private <T> Stream<Patient> stream(String sql, int fetchSize, StatementBinder<T> binder, T argument) throws SQLException {
+        Connection connection = DBConnection.getConnection();
+        try {
+            PreparedStatement stmt = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            binder.bind(stmt, argument);
+            ResultSet rs = stmt.executeQuery();
+
+            Spliterator<Patient> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Patient> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        action.accept(Helper.mapResultSetToPatient(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Fehler beim Lesen der Patienten.", e);
+                    }
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(rs, stmt, connection));
+        } catch (SQLException e) {
+            closeQuietly(null, null, connection);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(ResultSet rs, Statement stmt, Connection connection) {
+        try (connection; stmt; rs) {
+            Logger.log(Logger.LogLevel.DEBUG, "Patienten-Stream geschlossen.");
+        } catch (SQLException e) {
+            Logger.log(Logger.LogLevel.WARN, "Fehler beim Schließen des Patienten-Streams.", e);
+        }
+    }
+
+    @Override
+    public List<Patient> page(int afterId, int limit) throws SQLException {
+        List<Patient> patients = new ArrayList<>(Math.min(limit, DAO.DEFAULT_FETCH_SIZE));
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_PAGE_SQL)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(Helper.mapResultSetToPatient(rs));
+                }
+            }
+        }
+        return patients;
+    }
+
+    @Override
+    public List<Patient> page(PatientSort sort, PatientSort.Key after, int limit) throws SQLException {
+        String sql = Helper.SELECT_PATIENT_SQL + (after != null ? "WHERE " + sort.afterCondition(after) : "")
+                + sort.orderBy() + " LIMIT ?";
+        return readPage(sql, (stmt, index) -> {
+            int next = after != null ? sort.bindAfter(stmt, index, after) : index;
+            stmt.setInt(next, limit);
+        }, limit);
+    }
+
+    @Override
+    public List<Patient> pageAt(PatientSort sort, int offset, int limit) throws SQLException {
+        return readPage(Helper.SELECT_PATIENT_SQL + sort.orderBy() + " LIMIT ? OFFSET ?", (stmt, index) -> {
+            stmt.setInt(index, limit);
+            stmt.setInt(index + 1, offset);
+        }, limit);
+    }
+
+    private List<Patient> readPage(String sql, StatementBinder<Integer> binder, int limit) throws SQLException {
+        List<Patient> patients = new ArrayList<>(Math.min(limit, DAO.DEFAULT_FETCH_SIZE));
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            binder.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(Helper.mapResultSetToPatient(rs));
+                }
+            }
+        }
+        return patients;
+    }
+
+    @Override
+    public int count() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(COUNT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public List<Patient> search(Map<String, String> criteria) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        SearchQuery query = SearchQuery.compile(criteria);
+        Logger.log(Logger.LogLevel.DEBUG, "Auszuführendes SQL-Statement: " + query.getSql());
+
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(query.getSql())) {
+            query.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(Helper.mapResultSetToPatient(rs));
+                }
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Schreibt nur die geänderten Spalten; das Statement wird je Menge geänderter Felder einmal erzeugt.
+     * Die geschriebene Zeile wird auf derselben Verbindung neu gelesen.
+     */
+    @Override
+    public Patient update(Patient patient) throws SQLException {
+        Set<Patient.Field> dirty = patient.getDirtyFields();
+        String sql = PARTIAL_UPDATE_SQL.computeIfAbsent(dirty, JdbcPatientStore::buildPartialUpdate);
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (Patient.Field field : dirty) {
+                Helper.setFieldParameter(stmt, index++, field, patient);
+            }
+            stmt.setInt(index++, patient.getPatientID());
+            stmt.setInt(index, patient.getVersion());
+            if (stmt.executeUpdate() == 0) {
+                throw new OptimisticLockException(patient.getPatientID(), patient.getVersion());
+            }
+            markSaved(patient);
+            return findById(connection, patient.getPatientID());
+        }
+    }
+
+    private static String buildPartialUpdate(Set<Patient.Field> fields) {
+        StringBuilder sql = new StringBuilder("UPDATE Patient SET ");
+        for (Patient.Field field : fields) {
+            sql.append(field.getColumn()).append(" = ?, ");
+        }
+        return sql.append("Version = Version + 1 WHERE PatientID = ? AND Version = ?").toString();
+    }
+
+    /** Übernimmt die nach einem erfolgreichen UPDATE gültige Version und setzt die Änderungsmarkierungen zurück. */
+    private static void markSaved(Patient patient) {
+        patient.setVersion(patient.getVersion() + 1);
+        patient.clearDirty();
+    }
+
+    /**
+     * Schreibt alle Spalten, damit alle Zeilen eines Stapels dasselbe Statement nutzen.
+     */
+    @Override
+    public BatchResult updateAll(List<Patient> patients, int batchSize) throws SQLException {
+        BatchResult result = executeBatch(UPDATE_SQL, patients, batchSize,
+                patient -> new OptimisticLockException(patient.getPatientID(), patient.getVersion()), (stmt, patient) -> {
+            Helper.setPatientParameters(stmt, patient);
+            stmt.setInt(13, patient.getPatientID());
+            stmt.setInt(14, patient.getVersion());
+        }, null);
+        for (int i = 0; i < patients.size(); i++) {
+            if (result.isSuccess(i)) {
+                markSaved(patients.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DELETE_SQL)) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public BatchResult deleteAll(List<Integer> ids, int batchSize) throws SQLException {
+        return executeBatch(DELETE_SQL, ids, batchSize, id -> new SQLException("Keine Zeile betroffen für: " + id),
+                (stmt, id) -> stmt.setInt(1, id), null);
+    }
+
+    /**
+     * Führt ein Statement für alle Elemente aus, aufgeteilt in Transaktionen zu je {@code batchSize} Zeilen.
+     * <p>
+     * Jeder Abschnitt wird als ein JDBC-Batch gesendet (der Treiber fasst ihn dank
+     * {@code rewriteBatchedStatements} zu wenigen Statements zusammen) und danach committet.
+     * Schlägt ein Abschnitt fehl, wird er zurückgerollt und zeilenweise wiederholt,
+     * damit nur die fehlerhaften Zeilen als fehlgeschlagen gemeldet werden.
+     *
+     * @param noRowError  Liefert den Fehler für ein Element, das keine Zeile betroffen hat,
+     *                    oder {@code null}, wenn das kein Fehler ist.
+     * @param keyConsumer Empfängt generierte Schlüssel pro Element oder {@code null}, wenn keine benötigt werden.
+     */
+    private <T> BatchResult executeBatch(String sql, List<T> items, int batchSize, Function<T, SQLException> noRowError,
+                                         StatementBinder<T> binder, KeyConsumer<T> keyConsumer) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batchgröße muss positiv sein: " + batchSize);
+        }
+        BatchResult result = new BatchResult(items.size());
+        int keys = keyConsumer != null ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql, keys)) {
+            connection.setAutoCommit(false);
+            for (int from = 0; from < items.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, items.size());
+                try {
+                    for (int i = from; i < to; i++) {
+                        binder.bind(stmt, items.get(i));
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    if (keyConsumer != null) {
+                        readGeneratedKeys(stmt, items, from, to, keyConsumer);
+                    }
+                    connection.commit();
+                    for (int i = from; i < to; i++) {
+                        if (noRowError == null || counts[i - from] != 0) {
+                            result.markSuccess(i);
+                        } else {
+                            result.markFailure(i, noRowError.apply(items.get(i)));
+                        }
+                    }
+                } catch (SQLException e) {
+                    Logger.log(Logger.LogLevel.WARN, "Stapel " + from + "-" + (to - 1) + " fehlgeschlagen, Zeilen werden einzeln wiederholt.", e);
+                    stmt.clearBatch();
+                    connection.rollback();
+                    retryRowByRow(connection, stmt, items, from, to, noRowError, binder, keyConsumer, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wiederholt einen fehlgeschlagenen Abschnitt Zeile für Zeile, jede Zeile in ihrer eigenen Transaktion.
+     */
+    private <T> void retryRowByRow(Connection connection, PreparedStatement stmt, List<T> items, int from, int to,
+                                   Function<T, SQLException> noRowError, StatementBinder<T> binder, KeyConsumer<T> keyConsumer,
+                                   BatchResult result) throws SQLException {
+        for (int i = from; i < to; i++) {
+            try {
+                binder.bind(stmt, items.get(i));
+                int count = stmt.executeUpdate();
+                if (keyConsumer != null) {
+                    readGeneratedKeys(stmt, items, i, i + 1, keyConsumer);
+                }
+                connection.commit();
+                if (noRowError != null && count == 0) {
+                    result.markFailure(i, noRowError.apply(items.get(i)));
+                } else {
+                    result.markSuccess(i);
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                result.markFailure(i, e);
+                Logger.log(Logger.LogLevel.WARN, "Zeile im Stapel fehlgeschlagen: " + items.get(i), e);
+            }
+        }
+    }
+
+    private <T> void readGeneratedKeys(PreparedStatement stmt, List<T> items, int from, int to,
+                                       KeyConsumer<T> keyConsumer) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            for (int i = from; i < to && keys.next(); i++) {
+                keyConsumer.accept(items.get(i), keys.getInt(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package db;
+
+import java.sql.SQLException;
+
+/**
+ * Wird geworfen, wenn ein Patient nicht aktualisiert werden konnte, weil sein Datensatz seit dem Laden
+ * von jemand anderem geändert oder gelöscht wurde (die Versionsnummer stimmt nicht mehr überein).
+ */
+public class OptimisticLockException extends SQLException {
+
+    private final int patientID;
+    private final int expectedVersion;
+
+    /**
+     * @param patientID       Die ID des betroffenen Patienten.
+     * @param expectedVersion Die beim Laden gelesene Versionsnummer.
+     */
+    public OptimisticLockException(int patientID, int expectedVersion) {
+        super("Patient " + patientID + " wurde zwischenzeitlich geändert oder gelöscht (erwartete Version "
+                + expectedVersion + ").");
+        this.patientID = patientID;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public int getPatientID() {
+        return patientID;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,158 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-Through-Cache für {@link DAO#getPatientById(int)}.
+ * <p>
+ * Hält höchstens {@code db.patientCache.maxSize} Patienten (Standard 1000) in LRU-Reihenfolge;
+ * ein Eintrag verfällt nach {@code db.patientCache.ttlSeconds} Sekunden (Standard 300), damit auch
+ * Änderungen anderer Arbeitsplätze sichtbar werden. {@link DAO} ersetzt Einträge nach einem Update
+ * durch die neu gelesene Zeile und entfernt sie beim Löschen. Ein- und Ausgabe sind Kopien, Aufrufer
+ * können die Objekte also gefahrlos verändern.
+ * <p>
+ * Damit ein Lesevorgang, der mit einem Schreibvorgang überlappt, keine veraltete Zeile einträgt,
+ * merkt sich der Aufrufer vor dem Lesen {@link #epoch()} und trägt nur ein, wenn seitdem nichts
+ * invalidiert wurde ({@link #putIfUnchanged}).
+ */
+public final class PatientCache {
+
+    private static final int MAX_SIZE = Integer.getInteger("db.patientCache.maxSize", 1000);
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("db.patientCache.ttlSeconds", 300L));
+
+    private static final PatientCache INSTANCE = new PatientCache(MAX_SIZE, TTL_NANOS);
+
+    private record Entry(Patient patient, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final Map<Integer, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private long epoch;
+
+    private PatientCache(int maxSize, long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Erstellt einen eigenen Cache mit der konfigurierten Größe und Lebensdauer, z. B. für ein {@link DAO} auf
+     * einem anderen {@link PatientStore} als dem Standardspeicher.
+     */
+    public PatientCache() {
+        this(MAX_SIZE, TTL_NANOS);
+    }
+
+    /** @return Der Patienten-Cache des Standardspeichers. */
+    public static PatientCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param id Die Patienten-ID.
+     * @return Eine Kopie des gecachten Patienten oder {@code null}, wenn er nicht (mehr) im Cache ist.
+     */
+    public synchronized Patient get(int id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            entries.remove(id);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Patient(entry.patient());
+    }
+
+    /**
+     * @return Der aktuelle Invalidierungsstand; vor dem Lesen aus der Datenbank abzufragen.
+     */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Trägt einen aus der Datenbank gelesenen Patienten ein, sofern seit {@code epoch} nichts invalidiert wurde.
+     *
+     * @param patient Der gelesene Patient.
+     * @param epoch   Der vor dem Lesen abgefragte Stand von {@link #epoch()}.
+     */
+    public synchronized void putIfUnchanged(Patient patient, long epoch) {
+        if (this.epoch == epoch) {
+            store(patient);
+        }
+    }
+
+    /**
+     * Ersetzt den Eintrag durch die nach einem Schreibvorgang gelesene Zeile.
+     *
+     * @param patient Der gespeicherte Patient.
+     */
+    public synchronized void put(Patient patient) {
+        epoch++;
+        store(patient);
+    }
+
+    /**
+     * Entfernt einen Patienten, z. B. nach dem Löschen oder einem fehlgeschlagenen Update.
+     *
+     * @param id Die Patienten-ID.
+     */
+    public synchronized void invalidate(int id) {
+        epoch++;
+        entries.remove(id);
+    }
+
+    /** Leert den Cache vollständig. */
+    public synchronized void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Protokolliert Größe und Trefferquote. */
+    public void logStatistics() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        Logger.log(Logger.LogLevel.INFO, "Patienten-Cache: " + size() + " Einträge, " + hitCount + "/" + total
+                + " Treffer, " + getExpirationCount() + " abgelaufen.");
+    }
+
+    private void store(Patient patient) {
+        if (patient.getPatientID() != 0) {
+            entries.put(patient.getPatientID(), new Entry(new Patient(patient), System.nanoTime() + ttlNanos));
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export von Patienten als CSV oder JSON Lines mit konstantem Speicherbedarf.
+ * <p>
+ * Die Patienten werden über {@link DAO#streamSearch(Map, int)} per Server-Cursor gelesen und Zeile für Zeile
+ * in einen gepufferten Writer geschrieben; es liegt also nie mehr als eine Portion von
+ * {@link DAO#DEFAULT_FETCH_SIZE} Zeilen im Speicher. Mit Suchkriterien wird genau das exportiert, was
+ * {@link Search#searchPatients(Map)} finden würde.
+ * <p>
+ * Die CSV-Datei ist UTF-8 mit Byte Order Mark, Semikolon als Trennzeichen und Kopfzeile, damit Excel sie
+ * direkt und mit korrekten Umlauten öffnet und {@link PatientImporter} sie wieder einlesen kann. JSON Lines
+ * enthält ein Objekt pro Zeile mit denselben Schlüsseln. Dateien mit der Endung {@code .gz} werden komprimiert.
+ */
+public class PatientExporter {
+
+    /** Das Dateiformat. */
+    public enum Format {
+        CSV, JSON_LINES;
+
+        /**
+         * Bestimmt das Format anhand der Dateiendung ({@code .csv}, {@code .jsonl}/{@code .ndjson}, jeweils optional {@code .gz}).
+         *
+         * @throws IllegalArgumentException Wenn die Endung unbekannt ist.
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSON_LINES;
+            }
+            throw new IllegalArgumentException("Unbekanntes Exportformat: " + file.getFileName());
+        }
+    }
+
+    /**
+     * Zwischenstand eines laufenden Exports.
+     *
+     * @param rowsWritten   Bisher geschriebene Patienten.
+     * @param rowsPerSecond Durchsatz seit Beginn.
+     */
+    public record Progress(long rowsWritten, double rowsPerSecond) {
+    }
+
+    /**
+     * Ergebnis eines Exports.
+     *
+     * @param rowsWritten   Geschriebene Patienten.
+     * @param elapsedMillis Dauer in Millisekunden.
+     * @param cancelled     {@code true}, wenn der Export über {@link #cancel()} abgebrochen wurde.
+     */
+    public record Result(long rowsWritten, long elapsedMillis, boolean cancelled) {
+
+        @Override
+        public String toString() {
+            long rate = elapsedMillis > 0 ? rowsWritten * 1000 / elapsedMillis : rowsWritten;
+            return rowsWritten + " Patienten in " + elapsedMillis + " ms (" + rate + " Zeilen/s)"
+                    + (cancelled ? ", abgebrochen" : "");
+        }
+    }
+
+    /** Spalten bzw. JSON-Schlüssel in Ausgabereihenfolge; entsprechen den Spaltennamen des Imports. */
+    private static final String[] COLUMNS = {"PatientID", "Vorname", "Nachname", "Anrede", "Geburtsdatum",
+            "Strasse", "PLZ", "Ort", "BundeslandID", "BundeslandName", "Telefon", "GeschlechtID", "GeschlechtName",
+            "KrankenkasseID", "KrankenkasseName", "Sonstiges", "Version"};
+
+    private static final char CSV_DELIMITER = ';';
+
+    /** Alle wie viele Zeilen der Fortschritt gemeldet wird. */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DAO dao;
+    private volatile boolean cancelled;
+
+    /**
+     * @param dao Das DAO, aus dem gelesen wird.
+     */
+    public PatientExporter(DAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Bricht einen laufenden Export nach der aktuellen Zeile ab.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Exportiert in eine Datei im anhand der Endung bestimmten Format. Geschrieben wird zunächst in eine
+     * temporäre Datei, die erst nach vollständigem Export an ihren Platz verschoben wird; ein abgebrochener
+     * oder fehlgeschlagener Export hinterlässt also keine halbe Datei.
+     *
+     * @param file     Die Zieldatei.
+     * @param criteria Die Suchkriterien; leer für alle Patienten.
+     * @param progress Erhält regelmäßig den Zwischenstand, im exportierenden Thread; darf {@code null} sein.
+     * @return Das Ergebnis.
+     * @throws IOException  Wenn die Datei nicht geschrieben werden kann.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Result exportFile(Path file, Map<String, String> criteria, Consumer<Progress> progress)
+            throws IOException, SQLException {
+        Format format = Format.of(file);
+        boolean gzip = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            Result result;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                result = export(criteria, channel, format, gzip, progress);
+            }
+            if (!result.cancelled()) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Logger.log(Logger.LogLevel.INFO, "Export nach " + file + ": " + result);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Exportiert in einen Kanal, z. B. einen {@link FileChannel} oder einen Socket. Der Kanal wird nicht geschlossen.
+     *
+     * @param criteria Die Suchkriterien; leer für alle Patienten.
+     * @param channel  Das Ziel.
+     * @param format   Das Format.
+     * @param gzip     {@code true}, um die Ausgabe mit gzip zu komprimieren.
+     * @param progress Erhält regelmäßig den Zwischenstand; darf {@code null} sein.
+     * @return Das Ergebnis.
+     * @throws IOException  Wenn nicht geschrieben werden kann.
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public Result export(Map<String, String> criteria, WritableByteChannel channel, Format format, boolean gzip,
+                         Consumer<Progress> progress) throws IOException, SQLException {
+        OutputStream out = new NonClosingOutputStream(Channels.newOutputStream(channel));
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return export(criteria, writer, format, progress);
+        }
+    }
+
+    private Result export(Map<String, String> criteria, Writer writer, Format format, Consumer<Progress> progress)
+            throws IOException, SQLException {
+        cancelled = false;
+        long start = System.nanoTime();
+        long rows = 0;
+        if (format == Format.CSV) {
+            writeCsvHeader(writer);
+        }
+        try (Stream<Patient> patients = dao.streamSearch(criteria, DAO.DEFAULT_FETCH_SIZE)) {
+            Iterator<Patient> iterator = patients.iterator();
+            while (!cancelled && iterator.hasNext()) {
+                Patient patient = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsv(writer, patient);
+                } else {
+                    writeJson(writer, patient);
+                }
+                if (++rows % PROGRESS_INTERVAL == 0 && progress != null) {
+                    progress.accept(new Progress(rows, rate(rows, start)));
+                }
+            }
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw e;
+        }
+        if (progress != null) {
+            progress.accept(new Progress(rows, rate(rows, start)));
+        }
+        return new Result(rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), cancelled);
+    }
+
+    private static Object[] values(Patient p) {
+        return new Object[]{p.getPatientID(), p.getVorname(), p.getNachname(), p.getAnrede(), p.getGeburtsdatum(),
+                p.getStrasse(), p.getPlz(), p.getOrt(), p.getBundeslandID(), p.getBundeslandName(), p.getTelefon(),
+                p.getGeschlechtID(), p.getGeschlechtName(), p.getKrankenkasseID(), p.getKrankenkasseName(),
+                p.getSonstiges(), p.getVersion()};
+    }
+
+    private static void writeCsvHeader(Writer writer) throws IOException {
+        // Ohne BOM liest Excel die Datei in der Systemcodepage; PatientImporter überspringt es
+        writer.write('\uFEFF');
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                writer.write(CSV_DELIMITER);
+            }
+            writer.write(COLUMNS[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    private static void writeCsv(Writer writer, Patient patient) throws IOException {
+        Object[] values = values(patient);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(CSV_DELIMITER);
+            }
+            if (values[i] != null) {
+                writeCsvField(writer, values[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /** Setzt Felder mit Trennzeichen, Anführungszeichen oder Zeilenumbruch in Anführungszeichen (RFC 4180). */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == CSV_DELIMITER || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJson(Writer writer, Patient patient) throws IOException {
+        Object[] values = values(patient);
+        writer.write('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(COLUMNS[i]);
+            writer.write("\":");
+            Object value = values[i];
+            if (value == null) {
+                writer.write("null");
+            } else if (value instanceof Integer) {
+                writer.write(value.toString());
+            } else {
+                writeJsonString(writer, value.toString());
+            }
+        }
+        writer.write("}\n");
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static double rate(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? rows * 1e9 / elapsed : 0;
+    }
+
+    /** Verhindert, dass das Schließen des Writers den Kanal des Aufrufers schließt. */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
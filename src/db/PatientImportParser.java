@@ -0,0 +1,531 @@
+package db;
+
+import model.Patient;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Zeichenweiser Parser für {@link PatientImporter}. Gelesen wird direkt aus einem {@link Reader}, die Datei
+ * wird also nie vollständig in den Speicher geladen.
+ * <p>
+ * {@link #next()} liefert die Rohwerte eines Datensatzes ({@code null} für SQL-{@code NULL} bzw. leere
+ * CSV-Felder), {@link #toPatient(List)} wandelt sie anhand der Spaltenzuordnung in einen Patienten um.
+ * Syntaxfehler, nach denen nicht sicher weitergelesen werden kann, werden als {@link IOException} mit
+ * Zeilennummer gemeldet; ungültige Werte eines einzelnen Datensatzes als {@link IllegalArgumentException}.
+ */
+abstract class PatientImportParser {
+
+    /** Spalten einer Patientenzeile, wie sie in {@code mysqldump} und ohne CSV-Kopfzeile erwartet werden. */
+    private static final String[] DUMP_COLUMNS = {"PatientID", "Vorname", "Nachname", "Anrede", "Geburtsdatum",
+            "Strasse", "PLZ", "Ort", "BundeslandID", "Telefon", "GeschlechtID", "KrankenkasseID", "Sonstiges", "Version"};
+
+    /** Streng, damit z. B. "31.02.1990" abgelehnt und nicht stillschweigend zum 28.02. wird. */
+    private static final DateTimeFormatter GERMAN_DATE =
+            DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final int[] pushback = new int[2];
+    private int pushedBack;
+    private long line = 1;
+
+    /** Spaltenname (klein geschrieben) → Position im Datensatz. */
+    private Map<String, Integer> columns;
+
+    PatientImportParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Parser für {@code INSERT INTO patient VALUES (...), (...);} aus einem {@code mysqldump}. */
+    static PatientImportParser sqlDump(Reader reader) {
+        return new SqlDumpParser(reader);
+    }
+
+    /**
+     * Parser für CSV nach RFC 4180. Beginnt die Datei mit einer Kopfzeile (erkannt an der Spalte
+     * {@code Nachname}), werden die Spalten über ihre Namen zugeordnet, sonst in der Reihenfolge der Tabelle.
+     */
+    static PatientImportParser csv(Reader reader, char delimiter) {
+        return new CsvParser(reader, delimiter);
+    }
+
+    /**
+     * @return Die Werte des nächsten Datensatzes oder {@code null} am Dateiende.
+     * @throws IOException Bei Lesefehlern oder einem nicht behebbaren Syntaxfehler.
+     */
+    abstract List<String> next() throws IOException;
+
+    /** @return Die aktuelle Zeilennummer, für Fehlermeldungen. */
+    long getLine() {
+        return line;
+    }
+
+    /**
+     * Wandelt die Werte eines Datensatzes in einen neuen Patienten um. Eine mitgelieferte ID wird
+     * ignoriert, die Datenbank vergibt neue. Referenzen können als ID oder, über die Kopfzeile, als
+     * Bezeichnung angegeben werden.
+     *
+     * @throws IllegalArgumentException Wenn Pflichtfelder fehlen oder Werte nicht lesbar sind.
+     */
+    Patient toPatient(List<String> values) {
+        if (columns == null) {
+            columns = positionalColumns(values.size());
+        }
+        String vorname = value(values, "vorname");
+        String nachname = value(values, "nachname");
+        if (vorname == null || nachname == null) {
+            throw new IllegalArgumentException("Vorname und Nachname sind Pflichtfelder.");
+        }
+        return Patient.restore(0, 0, vorname, nachname, value(values, "anrede"),
+                date(value(values, "geburtsdatum")), value(values, "strasse"), value(values, "plz"), value(values, "ort"),
+                reference(values, "bundeslandid", "bundeslandname", ReferenceData::bundeslaender), null,
+                value(values, "telefon"),
+                reference(values, "geschlechtid", "geschlechtname", ReferenceData::geschlechter), null,
+                reference(values, "krankenkasseid", "krankenkassename", ReferenceData::krankenkassen), null,
+                value(values, "sonstiges"));
+    }
+
+    /** Ordnet die Spalten über eine Kopfzeile zu. */
+    void useHeader(List<String> header) {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i) != null) {
+                byName.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        columns = byName;
+    }
+
+    private static Map<String, Integer> positionalColumns(int count) {
+        // 12 Spalten: ohne PatientID, sonst wie in der Tabelle (optional mit Version am Ende)
+        int offset = count == DUMP_COLUMNS.length - 2 ? 1 : 0;
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = offset; i < DUMP_COLUMNS.length; i++) {
+            byName.put(DUMP_COLUMNS[i].toLowerCase(Locale.ROOT), i - offset);
+        }
+        return byName;
+    }
+
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private int reference(List<String> values, String idColumn, String nameColumn,
+                          Supplier<ReferenceData.Lookup> lookup) {
+        String id = value(values, idColumn);
+        if (id != null) {
+            try {
+                return Integer.parseInt(id.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültige " + idColumn + ": " + id, e);
+            }
+        }
+        String name = value(values, nameColumn);
+        if (name == null) {
+            return 0;
+        }
+        int resolved = lookup.get().getId(name);
+        if (resolved == 0) {
+            throw new IllegalArgumentException("Unbekannte Bezeichnung in " + nameColumn + ": " + name);
+        }
+        return resolved;
+    }
+
+    private static LocalDate date(String value) {
+        if (value == null || value.startsWith("0000-00-00")) {
+            return null;
+        }
+        String text = value.trim();
+        try {
+            return text.contains(".") ? LocalDate.parse(text, GERMAN_DATE) : LocalDate.parse(text.substring(0, Math.min(10, text.length())));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültiges Geburtsdatum: " + value, e);
+        }
+    }
+
+    int read() throws IOException {
+        int c = pushedBack > 0 ? pushback[--pushedBack] : reader.read();
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /** Legt ein gelesenes Zeichen zurück; es können höchstens zwei Zeichen zurückgelegt werden. */
+    void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        pushback[pushedBack++] = c;
+    }
+
+    IOException syntaxError(String message) {
+        return new IOException("Zeile " + line + ": " + message);
+    }
+
+    /**
+     * Liest Anweisungen eines {@code mysqldump}. Alle Anweisungen außer {@code INSERT} in die Tabelle
+     * {@code patient} werden überlesen (unter Beachtung von Strings und Kommentaren).
+     */
+    private static final class SqlDumpParser extends PatientImportParser {
+
+        private final StringBuilder value = new StringBuilder(64);
+        /** Ob gerade die Wertetupel eines Patienten-INSERTs gelesen werden. */
+        private boolean inInsert;
+
+        private SqlDumpParser(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        List<String> next() throws IOException {
+            while (true) {
+                if (inInsert) {
+                    int c = skipWhitespace();
+                    if (c == '(') {
+                        return tuple();
+                    }
+                    if (c == ',') {
+                        continue;
+                    }
+                    if (c == ';' || c == EOF) {
+                        inInsert = false;
+                        if (c == EOF) {
+                            return null;
+                        }
+                        continue;
+                    }
+                    throw syntaxError("Unerwartetes Zeichen '" + (char) c + "' in INSERT.");
+                }
+                if (!startOfPatientInsert()) {
+                    return null;
+                }
+                inInsert = true;
+            }
+        }
+
+        /**
+         * Überspringt Anweisungen, bis ein {@code INSERT INTO patient ... VALUES} gefunden wurde.
+         *
+         * @return {@code false} am Dateiende.
+         */
+        private boolean startOfPatientInsert() throws IOException {
+            while (true) {
+                int c = skipWhitespace(true);
+                if (c == EOF) {
+                    return false;
+                }
+                List<String> words = new ArrayList<>(3);
+                while (words.size() < 3) {
+                    String word = word();
+                    if (word == null) {
+                        break;
+                    }
+                    words.add(word);
+                    skipWhitespace(true);
+                }
+                if (words.size() == 3
+                        && words.get(0).equalsIgnoreCase("INSERT")
+                        && words.get(1).equalsIgnoreCase("INTO")
+                        && words.get(2).equalsIgnoreCase("patient")) {
+                    c = read();
+                    if (c == '(') {
+                        // mysqldump --complete-insert: Spalten über ihre Namen zuordnen
+                        useHeader(columnList());
+                        skipWhitespace(true);
+                    } else {
+                        unread(c);
+                    }
+                    String values = word();
+                    if (values == null || !values.equalsIgnoreCase("VALUES")) {
+                        throw syntaxError("VALUES erwartet.");
+                    }
+                    return true;
+                }
+                skipStatement();
+            }
+        }
+
+        private List<String> columnList() throws IOException {
+            List<String> names = new ArrayList<>(14);
+            while (true) {
+                skipWhitespace(true);
+                String name = word();
+                if (name == null) {
+                    throw syntaxError("Spaltenname erwartet.");
+                }
+                names.add(name);
+                int c = skipWhitespace();
+                if (c == ')') {
+                    return names;
+                }
+                if (c != ',') {
+                    throw syntaxError("',' oder ')' in Spaltenliste erwartet.");
+                }
+            }
+        }
+
+        /** Liest ein Schlüsselwort oder einen (ggf. mit Backticks quotierten) Bezeichner. */
+        private String word() throws IOException {
+            int c = read();
+            StringBuilder word = new StringBuilder();
+            if (c == '`') {
+                while ((c = read()) != '`' && c != EOF) {
+                    word.append((char) c);
+                }
+                return word.toString();
+            }
+            while (c != EOF && (Character.isLetterOrDigit(c) || c == '_')) {
+                word.append((char) c);
+                c = read();
+            }
+            unread(c);
+            return word.isEmpty() ? null : word.toString();
+        }
+
+        /** Überliest den Rest einer Anweisung bis zum abschließenden Semikolon. */
+        private void skipStatement() throws IOException {
+            int c;
+            while ((c = skipWhitespace()) != EOF && c != ';') {
+                if (c == '\'' || c == '"' || c == '`') {
+                    skipQuoted(c);
+                }
+            }
+        }
+
+        private void skipQuoted(int quote) throws IOException {
+            int c;
+            while ((c = read()) != EOF) {
+                if (c == '\\' && quote != '`') {
+                    read();
+                } else if (c == quote) {
+                    return;
+                }
+            }
+        }
+
+        private List<String> tuple() throws IOException {
+            List<String> values = new ArrayList<>(14);
+            while (true) {
+                int c = skipWhitespace();
+                if (c == '\'') {
+                    values.add(quoted());
+                } else if (c == EOF) {
+                    throw syntaxError("Unerwartetes Dateiende in Wertetupel.");
+                } else {
+                    value.setLength(0);
+                    while (c != ',' && c != ')' && c != EOF && !Character.isWhitespace(c)) {
+                        value.append((char) c);
+                        c = read();
+                    }
+                    unread(c);
+                    String literal = value.toString();
+                    values.add(literal.equalsIgnoreCase("NULL") ? null : literal);
+                }
+                c = skipWhitespace();
+                if (c == ')') {
+                    return values;
+                }
+                if (c != ',') {
+                    throw syntaxError("',' oder ')' in Wertetupel erwartet.");
+                }
+            }
+        }
+
+        /** Liest einen String-Literal mit den Escapes von {@code mysqldump}. */
+        private String quoted() throws IOException {
+            value.setLength(0);
+            while (true) {
+                int c = read();
+                switch (c) {
+                    case EOF -> throw syntaxError("Nicht abgeschlossener String.");
+                    case '\\' -> {
+                        int escaped = read();
+                        value.append(switch (escaped) {
+                            case 'n' -> '\n';
+                            case 'r' -> '\r';
+                            case 't' -> '\t';
+                            case '0' -> '\0';
+                            case 'Z' -> (char) 26;
+                            case EOF -> throw syntaxError("Nicht abgeschlossener String.");
+                            default -> (char) escaped;
+                        });
+                    }
+                    case '\'' -> {
+                        int following = read();
+                        if (following == '\'') {
+                            value.append('\'');
+                        } else {
+                            unread(following);
+                            return value.toString();
+                        }
+                    }
+                    default -> value.append((char) c);
+                }
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            return skipWhitespace(false);
+        }
+
+        /**
+         * Überliest Leerzeichen und Kommentare ({@code -- }, {@code #}, {@code /* *\/}).
+         *
+         * @param pushBack {@code true}, um das erste relevante Zeichen zurückzulegen.
+         * @return Das erste relevante Zeichen.
+         */
+        private int skipWhitespace(boolean pushBack) throws IOException {
+            while (true) {
+                int c = read();
+                if (c == '-') {
+                    int second = read();
+                    if (second == '-') {
+                        skipLine();
+                        continue;
+                    }
+                    unread(second);
+                    if (pushBack) {
+                        unread(c);
+                    }
+                    return c;
+                }
+                if (c == '#') {
+                    skipLine();
+                    continue;
+                }
+                if (c == '/') {
+                    int second = read();
+                    if (second == '*') {
+                        skipBlockComment();
+                        continue;
+                    }
+                    unread(second);
+                    if (pushBack) {
+                        unread(c);
+                    }
+                    return c;
+                }
+                if (c == EOF || !Character.isWhitespace(c)) {
+                    if (pushBack) {
+                        unread(c);
+                    }
+                    return c;
+                }
+            }
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = read()) != EOF && c != '\n') {
+                // überlesen
+            }
+        }
+
+        private void skipBlockComment() throws IOException {
+            int previous = 0;
+            int c;
+            while ((c = read()) != EOF) {
+                if (previous == '*' && c == '/') {
+                    return;
+                }
+                previous = c;
+            }
+        }
+    }
+
+    /** Liest CSV-Datensätze; Felder in Anführungszeichen dürfen Trennzeichen und Zeilenumbrüche enthalten. */
+    private static final class CsvParser extends PatientImportParser {
+
+        private final char delimiter;
+        private final StringBuilder field = new StringBuilder(64);
+        private boolean headerChecked;
+
+        private CsvParser(Reader reader, char delimiter) {
+            super(reader);
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        List<String> next() throws IOException {
+            List<String> record = record();
+            if (!headerChecked) {
+                headerChecked = true;
+                if (record != null && record.stream().anyMatch("Nachname"::equalsIgnoreCase)) {
+                    useHeader(record);
+                    record = record();
+                }
+            }
+            return record;
+        }
+
+        private List<String> record() throws IOException {
+            int c = read();
+            // Leerzeilen überspringen
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            if (c == EOF) {
+                return null;
+            }
+            if (c == '\uFEFF') {
+                c = read();
+            }
+            List<String> record = new ArrayList<>(16);
+            while (true) {
+                field.setLength(0);
+                if (c == '"') {
+                    while (true) {
+                        c = read();
+                        if (c == EOF) {
+                            throw syntaxError("Nicht abgeschlossenes Feld in Anführungszeichen.");
+                        }
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c != delimiter && c != '\n' && c != '\r' && c != EOF) {
+                        field.append((char) c);
+                        c = read();
+                    }
+                }
+                record.add(field.toString());
+                if (c == delimiter) {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                } else if (c != '\n' && c != EOF) {
+                    throw syntaxError("Trennzeichen nach Feld in Anführungszeichen erwartet.");
+                }
+                return record;
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Massenimport von Patienten aus {@code mysqldump}-Dateien ({@code INSERT INTO patient VALUES ...}) und CSV.
+ * <p>
+ * Die Datei wird gestreamt und nie vollständig in den Speicher geladen. Der aufrufende Thread parst und
+ * legt Portionen von {@code batchSize} Patienten in eine begrenzte Warteschlange; mehrere Schreib-Threads
+ * entnehmen sie und schreiben jede Portion über {@link DAO#addPatients(java.util.Collection, int)} als
+ * JDBC-Batch in einer Transaktion. Ist die Datenbank langsamer als der Parser, wartet der Parser, der
+ * Speicherbedarf bleibt also begrenzt.
+ * <p>
+ * IDs aus der Datei werden nicht übernommen, die Datenbank vergibt neue. Datensätze mit ungültigen Werten
+ * werden übersprungen und gezählt; ein Syntaxfehler, nach dem nicht sicher weitergelesen werden kann,
+ * bricht den Import ab. Bereits geschriebene Portionen bleiben dabei erhalten. Dateien mit der Endung
+ * {@code .gz} werden beim Lesen entpackt.
+ */
+public class PatientImporter {
+
+    /** Das Dateiformat. */
+    public enum Format {
+        SQL_DUMP, CSV;
+
+        /**
+         * Bestimmt das Format anhand der Dateiendung ({@code .sql}, {@code .csv}, jeweils optional {@code .gz}).
+         *
+         * @throws IllegalArgumentException Wenn die Endung unbekannt ist.
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            if (name.endsWith(".sql")) {
+                return SQL_DUMP;
+            }
+            if (name.endsWith(".csv") || name.endsWith(".txt")) {
+                return CSV;
+            }
+            throw new IllegalArgumentException("Unbekanntes Importformat: " + file.getFileName());
+        }
+    }
+
+    /**
+     * Zwischenstand eines laufenden Imports.
+     *
+     * @param bytesRead     Bisher gelesene Bytes der Datei.
+     * @param totalBytes    Größe der Datei.
+     * @param rowsImported  Bisher geschriebene Patienten.
+     * @param rowsFailed    Von der Datenbank abgelehnte Patienten.
+     * @param rowsPerSecond Durchsatz seit Beginn.
+     */
+    public record Progress(long bytesRead, long totalBytes, long rowsImported, long rowsFailed, double rowsPerSecond) {
+
+        /** @return Fortschritt in Prozent der gelesenen Bytes. */
+        public int percent() {
+            return totalBytes > 0 ? (int) Math.min(100, bytesRead * 100 / totalBytes) : 0;
+        }
+    }
+
+    /**
+     * Ergebnis eines Imports.
+     *
+     * @param rowsImported Geschriebene Patienten.
+     * @param rowsFailed   Von der Datenbank abgelehnte Patienten (z. B. ungültige Referenz-IDs).
+     * @param rowsSkipped  Wegen ungültiger Werte übersprungene Datensätze.
+     * @param elapsedMillis Dauer in Millisekunden.
+     * @param cancelled    {@code true}, wenn der Import über {@link #cancel()} abgebrochen wurde.
+     */
+    public record Result(long rowsImported, long rowsFailed, long rowsSkipped, long elapsedMillis, boolean cancelled) {
+
+        /** @return Geschriebene Patienten pro Sekunde. */
+        public double rowsPerSecond() {
+            return elapsedMillis > 0 ? rowsImported * 1000.0 / elapsedMillis : rowsImported;
+        }
+
+        @Override
+        public String toString() {
+            return rowsImported + " importiert, " + rowsFailed + " abgelehnt, " + rowsSkipped + " übersprungen in "
+                    + elapsedMillis + " ms (" + Math.round(rowsPerSecond()) + " Zeilen/s)"
+                    + (cancelled ? ", abgebrochen" : "");
+        }
+    }
+
+    /** Höchstzahl der einzeln protokollierten übersprungenen Datensätze. */
+    private static final int MAX_LOGGED_SKIPS = 20;
+
+    /** Alle wie viele geschriebenen Portionen ein Zwischenstand protokolliert wird. */
+    private static final int LOG_EVERY_BATCHES = 20;
+
+    private static final List<Patient> END_OF_INPUT = List.of();
+
+    private final DAO dao;
+    private final int batchSize;
+    private final int writers;
+    private volatile boolean cancelled;
+
+    /**
+     * Erstellt einen Importer mit der Standard-Batchgröße und bis zu vier Schreib-Threads.
+     *
+     * @param dao Das DAO, über das geschrieben wird.
+     */
+    public PatientImporter(DAO dao) {
+        this(dao, DAO.DEFAULT_BATCH_SIZE, Math.max(1, Math.min(4, DBConnection.getMaxPoolSize() / 2)));
+    }
+
+    /**
+     * @param dao       Das DAO, über das geschrieben wird.
+     * @param batchSize Anzahl der Patienten pro Transaktion.
+     * @param writers   Anzahl der parallelen Schreib-Threads.
+     */
+    public PatientImporter(DAO dao, int batchSize, int writers) {
+        if (batchSize < 1 || writers < 1) {
+            throw new IllegalArgumentException("Batchgröße und Anzahl der Schreib-Threads müssen positiv sein.");
+        }
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.writers = writers;
+    }
+
+    /**
+     * Bricht einen laufenden Import nach den gerade geschriebenen Portionen ab.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Importiert eine Datei im anhand der Endung bestimmten Format.
+     *
+     * @see #importFile(Path, Format, Consumer)
+     */
+    public Result importFile(Path file, Consumer<Progress> progress) throws IOException, SQLException {
+        return importFile(file, Format.of(file), progress);
+    }
+
+    /**
+     * Importiert eine Datei. Blockiert, bis alle Portionen geschrieben sind.
+     *
+     * @param file     Die Datei.
+     * @param format   Das Format der Datei.
+     * @param progress Erhält nach jeder geschriebenen Portion den Zwischenstand; wird von den Schreib-Threads aufgerufen.
+     * @return Das Ergebnis.
+     * @throws IOException  Wenn die Datei nicht gelesen werden kann oder einen Syntaxfehler enthält.
+     * @throws SQLException Wenn die Datenbank nicht erreichbar ist.
+     */
+    public Result importFile(Path file, Format format, Consumer<Progress> progress) throws IOException, SQLException {
+        cancelled = false;
+        long totalBytes = Files.size(file);
+        long start = System.nanoTime();
+        Logger.log(Logger.LogLevel.INFO, "Import gestartet: " + file + " (" + format + ", " + totalBytes + " Bytes, "
+                + writers + " Schreib-Threads, Batchgröße " + batchSize + ").");
+
+        CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+        BlockingQueue<List<Patient>> queue = new ArrayBlockingQueue<>(writers * 2);
+        AtomicLong imported = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong batches = new AtomicLong();
+        // SQLException oder RuntimeException des ersten fehlgeschlagenen Schreib-Threads
+        AtomicReference<Exception> writeError = new AtomicReference<>();
+        long skipped = 0;
+
+        List<Thread> writerThreads = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            writerThreads.add(Thread.ofVirtual().name("patient-import-writer-" + i).start(() -> {
+                while (true) {
+                    List<Patient> chunk;
+                    try {
+                        chunk = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (chunk == END_OF_INPUT) {
+                        return;
+                    }
+                    if (writeError.get() != null || cancelled) {
+                        continue; // Restliche Portionen verwerfen, damit der Parser nicht blockiert
+                    }
+                    // Auch bei Fehlern weiterlaufen und die Queue leeren, sonst blockiert der Parser in put()
+                    try {
+                        BatchResult result = dao.addPatients(chunk, batchSize);
+                        imported.addAndGet(result.getSuccessCount());
+                        failed.addAndGet(result.getFailureCount());
+                        Progress current = new Progress(counter.getCount(), totalBytes, imported.get(), failed.get(),
+                                rate(imported.get(), start));
+                        if (batches.incrementAndGet() % LOG_EVERY_BATCHES == 0) {
+                            Logger.log(Logger.LogLevel.INFO, "Import: " + current.rowsImported() + " Zeilen, "
+                                    + current.percent() + " %, " + Math.round(current.rowsPerSecond()) + " Zeilen/s.");
+                        }
+                        if (progress != null) {
+                            progress.accept(current);
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        writeError.compareAndSet(null, e);
+                    }
+                }
+            }));
+        }
+
+        InputStream in;
+        try {
+            in = open(file, counter);
+        } catch (IOException e) {
+            counter.close();
+            finish(queue, writerThreads);
+            throw e;
+        }
+        try (in;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            PatientImportParser parser = format == Format.CSV
+                    ? PatientImportParser.csv(reader, detectDelimiter(reader))
+                    : PatientImportParser.sqlDump(reader);
+            List<Patient> chunk = new ArrayList<>(batchSize);
+            List<String> values;
+            while (!cancelled && writeError.get() == null && (values = parser.next()) != null) {
+                try {
+                    chunk.add(parser.toPatient(values));
+                } catch (IllegalArgumentException e) {
+                    if (++skipped <= MAX_LOGGED_SKIPS) {
+                        Logger.log(Logger.LogLevel.WARN, "Import: Datensatz vor Zeile " + parser.getLine()
+                                + " übersprungen: " + e.getMessage());
+                    }
+                    continue;
+                }
+                if (chunk.size() == batchSize) {
+                    queue.put(chunk);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty() && !cancelled) {
+                queue.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } finally {
+            finish(queue, writerThreads);
+        }
+
+        Exception error = writeError.get();
+        if (error != null) {
+            Logger.log(Logger.LogLevel.ERROR, "Import nach " + imported.get() + " Zeilen abgebrochen.", error);
+            if (error instanceof SQLException sqlError) {
+                throw sqlError;
+            }
+            throw (RuntimeException) error;
+        }
+        Result result = new Result(imported.get(), failed.get(), skipped,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), cancelled);
+        Logger.log(Logger.LogLevel.INFO, "Import beendet: " + result);
+        return result;
+    }
+
+    /** Signalisiert allen Schreib-Threads das Ende und wartet, bis sie ihre Portionen geschrieben haben. */
+    private void finish(BlockingQueue<List<Patient>> queue, List<Thread> writerThreads) {
+        boolean interrupted = false;
+        for (int i = 0; i < writerThreads.size(); i++) {
+            while (true) {
+                try {
+                    queue.put(END_OF_INPUT);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        for (Thread thread : writerThreads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static InputStream open(Path file, InputStream counted) throws IOException {
+        InputStream in = new BufferedInputStream(counted, 1 << 16);
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return in;
+    }
+
+    /** Bestimmt das CSV-Trennzeichen anhand der ersten Zeile: Semikolon (Excel), Tabulator oder Komma. */
+    private static char detectDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(1 << 15);
+        char[] head = new char[1 << 14];
+        int length = reader.read(head, 0, head.length);
+        reader.reset();
+        int semicolons = 0;
+        int tabs = 0;
+        int commas = 0;
+        boolean quoted = false;
+        for (int i = 0; i < Math.max(length, 0); i++) {
+            char c = head[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!quoted) {
+                switch (c) {
+                    case ';' -> semicolons++;
+                    case '\t' -> tabs++;
+                    case ',' -> commas++;
+                    default -> {
+                    }
+                }
+            }
+        }
+        if (semicolons >= commas && semicolons >= tabs && semicolons > 0) {
+            return ';';
+        }
+        return tabs > commas ? '\t' : ',';
+    }
+
+    private static double rate(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? rows * 1e9 / elapsed : 0;
+    }
+
+    /** Zählt die gelesenen Bytes für die Fortschrittsanzeige. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
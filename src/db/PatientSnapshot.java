@@ -0,0 +1,320 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Lokaler Snapshot aller Patienten für einen schnellen Programmstart.
+ * <p>
+ * Beim Start wird die Datei per {@code FileChannel.map} eingeblendet und ohne Datenbankzugriff dekodiert,
+ * sodass die Tabelle sofort gefüllt ist. Danach gleicht {@link #reconcile} den Stand im Hintergrund ab:
+ * statt alle Zeilen neu zu lesen, werden nur ID und Version aller Patienten geholt und anschließend die
+ * neuen oder geänderten Patienten gezielt nachgeladen; fehlende IDs gelten als gelöscht.
+ * <p>
+ * Die Datei liegt unter {@code -Dsnapshot.file} (Standard {@code ~/.patientenverwaltung/patients.snapshot})
+ * und wird mit {@code -Dsnapshot.enabled=false} abgeschaltet. Sie enthält Patientendaten und wird daher,
+ * soweit das Dateisystem es unterstützt, nur für den Benutzer lesbar angelegt. Geschrieben wird in eine
+ * temporäre Datei, die anschließend atomar umbenannt wird; eine beschädigte oder veraltete Datei
+ * (Prüfsumme, Formatversion) wird ignoriert.
+ * <p>
+ * Format (Big Endian): Magic, Formatversion, Erstellungszeitpunkt, die drei Referenztabellen, die Anzahl
+ * der Patienten und die Patienten selbst, zuletzt eine CRC32 über alles davor. Texte werden als Länge
+ * ({@code -1} für {@code null}) und UTF-8-Bytes abgelegt, das Geburtsdatum als Epochentag.
+ */
+public final class PatientSnapshot {
+
+    /** Ob der Snapshot verwendet werden soll. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("snapshot.enabled", "true"));
+
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+
+    /** Ergebnis eines Abgleichs mit der Datenbank. */
+    public record Delta(List<Patient> changed, List<Integer> removed, List<Patient> patients) {
+
+        /** @return {@code true}, wenn der Snapshot aktuell war. */
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private PatientSnapshot() {
+    }
+
+    /** @return Der Pfad der Snapshot-Datei. */
+    public static Path file() {
+        String configured = System.getProperty("snapshot.file");
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".patientenverwaltung", "patients.snapshot");
+    }
+
+    /**
+     * Liest den Snapshot. Sind noch keine Referenzdaten geladen, werden die im Snapshot gespeicherten
+     * installiert, damit der Start ohne Datenbank auskommt.
+     *
+     * @param file Die Snapshot-Datei.
+     * @return Die Patienten, aufsteigend nach ID, oder {@code null}, wenn kein gültiger Snapshot vorliegt.
+     */
+    public static List<Patient> read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 * Integer.BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                Logger.log(Logger.LogLevel.WARN, "Snapshot hat eine ungültige Größe und wird ignoriert: " + file);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<Patient> patients = decode(buffer, file);
+            if (patients != null) {
+                Logger.log(Logger.LogLevel.INFO, "Snapshot gelesen: " + patients.size() + " Patienten in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            }
+            return patients;
+        } catch (IOException | RuntimeException e) {
+            Logger.log(Logger.LogLevel.WARN, "Snapshot konnte nicht gelesen werden: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Schreibt den Snapshot mit den aktuell geladenen Referenzdaten.
+     *
+     * @param file     Die Snapshot-Datei.
+     * @param patients Die Patienten in beliebiger Reihenfolge.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann.
+     */
+    public static void write(Path file, Collection<Patient> patients) throws IOException {
+        long start = System.nanoTime();
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            restrictToOwner(tmp);
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                writeLookup(out, ReferenceData.bundeslaender());
+                writeLookup(out, ReferenceData.geschlechter());
+                writeLookup(out, ReferenceData.krankenkassen());
+                out.writeInt(patients.size());
+                for (Patient patient : patients) {
+                    writePatient(out, patient);
+                }
+                out.flush();
+                // Die Prüfsumme selbst gehört nicht zum geprüften Bereich und geht daher direkt in den Rohstrom
+                new DataOutputStream(raw).writeLong(crc.getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        Logger.log(Logger.LogLevel.INFO, "Snapshot geschrieben: " + patients.size() + " Patienten in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Gleicht einen gelesenen Snapshot über die Versionsnummern mit der Datenbank ab.
+     *
+     * @param dao      Das DAO für den Datenbankzugriff.
+     * @param snapshot Die Patienten aus dem Snapshot.
+     * @return Neue oder geänderte Patienten, gelöschte IDs und der abgeglichene Gesamtstand (aufsteigend nach ID).
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public static Delta reconcile(DAO dao, List<Patient> snapshot) throws SQLException {
+        long start = System.nanoTime();
+        Map<Integer, Integer> versions = dao.getPatientVersions();
+
+        TreeMap<Integer, Patient> merged = new TreeMap<>();
+        Map<Integer, Integer> localVersions = new HashMap<>(snapshot.size() * 2);
+        for (Patient patient : snapshot) {
+            merged.put(patient.getPatientID(), patient);
+            localVersions.put(patient.getPatientID(), patient.getVersion());
+        }
+
+        List<Integer> changedIds = new ArrayList<>();
+        versions.forEach((id, version) -> {
+            Integer local = localVersions.remove(id);
+            if (local == null || local.intValue() != version) {
+                changedIds.add(id);
+            }
+        });
+        List<Integer> removed = new ArrayList<>(localVersions.keySet());
+        removed.sort(null);
+        removed.forEach(merged::remove);
+
+        List<Patient> changed = changedIds.isEmpty() ? List.of() : dao.getPatientsByIds(changedIds);
+        for (Patient patient : changed) {
+            merged.put(patient.getPatientID(), patient);
+        }
+        Logger.log(Logger.LogLevel.INFO, "Snapshot abgeglichen: " + changed.size() + " neu/geändert, "
+                + removed.size() + " gelöscht, " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        return new Delta(changed, removed, new ArrayList<>(merged.values()));
+    }
+
+    private static List<Patient> decode(ByteBuffer buffer, Path file) {
+        int bodyLength = buffer.limit() - Long.BYTES;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            Logger.log(Logger.LogLevel.WARN, "Snapshot hat ein unbekanntes Format und wird ignoriert: " + file);
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, bodyLength));
+        if (crc.getValue() != buffer.getLong(bodyLength)) {
+            Logger.log(Logger.LogLevel.WARN, "Snapshot ist beschädigt (Prüfsumme) und wird ignoriert: " + file);
+            return null;
+        }
+
+        buffer.position(2 * Integer.BYTES + Long.BYTES);
+        Decoder decoder = new Decoder(buffer);
+        Map<Integer, String> bundeslaender = decoder.lookup();
+        Map<Integer, String> geschlechter = decoder.lookup();
+        Map<Integer, String> krankenkassen = decoder.lookup();
+        if (!ReferenceData.isLoaded()) {
+            ReferenceData.install(bundeslaender, geschlechter, krankenkassen);
+        }
+
+        int count = buffer.getInt();
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = buffer.getInt();
+            int version = buffer.getInt();
+            String vorname = decoder.string();
+            String nachname = decoder.string();
+            String anrede = decoder.string();
+            int epochDay = buffer.getInt();
+            String strasse = decoder.string();
+            String plz = decoder.string();
+            String ort = decoder.string();
+            int bundeslandID = buffer.getInt();
+            String telefon = decoder.string();
+            int geschlechtID = buffer.getInt();
+            int krankenkasseID = buffer.getInt();
+            String sonstiges = decoder.string();
+            patients.add(Patient.restore(id, version, vorname, nachname, anrede,
+                    epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), strasse, plz, ort,
+                    bundeslandID, name(bundeslaender, bundeslandID), telefon,
+                    geschlechtID, name(geschlechter, geschlechtID),
+                    krankenkasseID, name(krankenkassen, krankenkasseID), sonstiges));
+        }
+        if (buffer.position() != bodyLength) {
+            Logger.log(Logger.LogLevel.WARN, "Snapshot hat eine unerwartete Länge und wird ignoriert: " + file);
+            return null;
+        }
+        return patients;
+    }
+
+    private static String name(Map<Integer, String> lookup, int id) {
+        return lookup.getOrDefault(id, Helper.UNKNOWN_NAME);
+    }
+
+    /** Liest Texte aus dem Puffer und verwendet dabei einen gemeinsamen Zwischenpuffer. */
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[256];
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private String string() {
+            int length = buffer.getInt();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private Map<Integer, String> lookup() {
+            int count = buffer.getInt();
+            Map<Integer, String> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getInt();
+                entries.put(id, string());
+            }
+            return entries;
+        }
+    }
+
+    private static void writeLookup(DataOutputStream out, ReferenceData.Lookup lookup) throws IOException {
+        Map<Integer, String> entries = lookup.getEntries();
+        out.writeInt(entries.size());
+        for (Map.Entry<Integer, String> entry : entries.entrySet()) {
+            out.writeInt(entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void writePatient(DataOutputStream out, Patient patient) throws IOException {
+        out.writeInt(patient.getPatientID());
+        out.writeInt(patient.getVersion());
+        writeString(out, patient.getVorname());
+        writeString(out, patient.getNachname());
+        writeString(out, patient.getAnrede());
+        out.writeInt(patient.getGeburtsdatum() != null ? (int) patient.getGeburtsdatum().toEpochDay() : NO_DATE);
+        writeString(out, patient.getStrasse());
+        writeString(out, patient.getPlz());
+        writeString(out, patient.getOrt());
+        out.writeInt(patient.getBundeslandID());
+        writeString(out, patient.getTelefon());
+        out.writeInt(patient.getGeschlechtID());
+        out.writeInt(patient.getKrankenkasseID());
+        writeString(out, patient.getSonstiges());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void restrictToOwner(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Nicht-POSIX-Dateisystem (z. B. Windows): die Datei liegt ohnehin im Benutzerverzeichnis
+        }
+    }
+}
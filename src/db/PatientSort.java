@@ -0,0 +1,139 @@
+package db;
+
+import model.Patient;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Sortierung für das seitenweise Lesen der Patienten ({@link PatientStore#page(PatientSort, Key, int)}).
+ * <p>
+ * Sortiert wird nach einer indizierten Spalte und danach nach der Patienten-ID, die Reihenfolge ist also
+ * eindeutig. Eine Seite beginnt hinter dem {@link Key} (Spaltenwert und ID) der letzten Zeile der vorherigen
+ * Seite; die Datenbank kann so direkt über den Index einsteigen, statt {@code OFFSET} Zeilen zu überspringen.
+ * InnoDB hängt den Primärschlüssel an jeden Sekundärindex an, die Indizes aus
+ * {@code sql/patient_search_indexes.sql} und {@code sql/patient_sort_indexes.sql} decken (Spalte, ID) also ab.
+ * Wie bei MySQL stehen {@code NULL}-Werte aufsteigend vorn und absteigend hinten.
+ *
+ * @param column     Die Sortierspalte.
+ * @param descending {@code true} für absteigende Sortierung (auch der ID).
+ */
+public record PatientSort(Column column, boolean descending) {
+
+    /** Aufsteigend nach ID, wie {@link PatientStore#page(int, int)}. */
+    public static final PatientSort BY_ID = new PatientSort(Column.ID, false);
+
+    /**
+     * Die Spalten, nach denen sortiert werden kann.
+     */
+    public enum Column {
+        ID("p.PatientID", null),
+        VORNAME("p.Vorname", Patient::getVorname),
+        NACHNAME("p.Nachname", Patient::getNachname),
+        GEBURTSDATUM("p.Geburtsdatum", Patient::getGeburtsdatum),
+        PLZ("p.PLZ", Patient::getPlz),
+        ORT("p.Ort", Patient::getOrt);
+
+        private final String sql;
+        private final Function<Patient, Comparable<?>> value;
+
+        Column(String sql, Function<Patient, Comparable<?>> value) {
+            this.sql = sql;
+            this.value = value;
+        }
+
+        /** @return Der qualifizierte Spaltenname für {@code ORDER BY}. */
+        public String getSql() {
+            return sql;
+        }
+    }
+
+    /**
+     * Position eines Patienten in einer Sortierung.
+     *
+     * @param value Der Wert der Sortierspalte ({@code null} bei fehlendem Wert und bei Sortierung nach ID).
+     * @param id    Die Patienten-ID.
+     */
+    public record Key(Object value, int id) {
+    }
+
+    /** @return Dieselbe Spalte in umgekehrter Richtung; liest man damit ab einem Key, erhält man die Zeilen davor. */
+    public PatientSort reversed() {
+        return new PatientSort(column, !descending);
+    }
+
+    /**
+     * @param patient Ein Patient.
+     * @return Seine Position in dieser Sortierung.
+     */
+    public Key keyOf(Patient patient) {
+        return new Key(column.value != null ? column.value.apply(patient) : null, patient.getPatientID());
+    }
+
+    /**
+     * @return Die {@code ORDER BY}-Klausel dieser Sortierung.
+     */
+    String orderBy() {
+        String direction = descending ? " DESC" : "";
+        return column == Column.ID
+                ? " ORDER BY p.PatientID" + direction
+                : " ORDER BY " + column.sql + direction + ", p.PatientID" + direction;
+    }
+
+    /**
+     * Die Bedingung für "hinter {@code after}" in dieser Sortierung; Parameter werden mit {@link #bindAfter} gesetzt.
+     *
+     * @param after Die Position der letzten gelesenen Zeile.
+     * @return Die Bedingung ohne {@code WHERE}.
+     */
+    String afterCondition(Key after) {
+        String id = descending ? "p.PatientID < ?" : "p.PatientID > ?";
+        if (column == Column.ID) {
+            return id;
+        }
+        String c = column.sql;
+        if (after.value() == null) {
+            // NULL steht aufsteigend vorn: danach kommen alle Werte; absteigend hinten: danach nur weitere NULLs
+            return descending
+                    ? "(" + c + " IS NULL AND " + id + ")"
+                    : "(" + c + " IS NOT NULL OR (" + c + " IS NULL AND " + id + "))";
+        }
+        String beyond = descending ? c + " < ?" : c + " > ?";
+        String condition = "(" + beyond + " OR (" + c + " = ? AND " + id + ")";
+        return descending ? condition + " OR " + c + " IS NULL)" : condition + ")";
+    }
+
+    /**
+     * Bindet die Parameter von {@link #afterCondition}.
+     *
+     * @return Der nächste freie Parameterindex.
+     */
+    int bindAfter(PreparedStatement stmt, int index, Key after) throws SQLException {
+        if (column != Column.ID && after.value() != null) {
+            stmt.setObject(index++, sqlValue(after.value()));
+            stmt.setObject(index++, sqlValue(after.value()));
+        }
+        stmt.setInt(index++, after.id());
+        return index;
+    }
+
+    private static Object sqlValue(Object value) {
+        return value instanceof LocalDate date ? Date.valueOf(date) : value;
+    }
+
+    /**
+     * Vergleicht Positionen in dieser Sortierung, wie es die Datenbank tut (für {@link InMemoryPatientStore}).
+     * Zeichenketten werden wie bei der Standard-Kollation ohne Beachtung der Groß-/Kleinschreibung verglichen.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Comparator<Key> keyComparator() {
+        Comparator<Comparable> values = (a, b) -> a instanceof String s ? s.compareToIgnoreCase((String) b) : a.compareTo(b);
+        Comparator<Key> order = Comparator.comparing(key -> (Comparable) key.value(), Comparator.nullsFirst(values));
+        order = order.thenComparingInt(Key::id);
+        return descending ? order.reversed() : order;
+    }
+}
@@ -0,0 +1,142 @@
+package db;
+
+import model.Patient;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Speicherschnittstelle für Patienten hinter {@link DAO} und {@link Search}.
+ * <p>
+ * Implementierungen kümmern sich nur um das Lesen und Schreiben; Cache, Suchindex und Protokollierung
+ * der fachlichen Vorgänge bleiben im {@link DAO}. Alle Implementierungen haben dieselbe Semantik:
+ * <ul>
+ *     <li>Gelesene Patienten sind eigene Objekte mit aufgelösten Referenznamen, Version und ohne Änderungsmarkierungen.</li>
+ *     <li>Nach erfolgreichem Einfügen trägt das übergebene Objekt die neue ID und Version 0.</li>
+ *     <li>Updates prüfen die Version; danach trägt das übergebene Objekt die nächste Version.</li>
+ *     <li>Listen, Seiten und Scans sind aufsteigend nach Patienten-ID sortiert, sofern keine {@link PatientSort} angegeben ist.</li>
+ * </ul>
+ * Mitgeliefert werden {@link JdbcPatientStore} (MySQL) und {@link InMemoryPatientStore}.
+ */
+public interface PatientStore {
+
+    /**
+     * Fügt einen neuen Patienten ein.
+     *
+     * @param patient Der neue Patient; erhält die generierte ID.
+     * @return Die generierte ID.
+     * @throws IllegalArgumentException Wenn die Daten gegen Integritätsbedingungen verstoßen.
+     */
+    int insert(Patient patient) throws SQLException;
+
+    /**
+     * Fügt mehrere Patienten ein, jeweils {@code batchSize} pro Transaktion.
+     *
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     */
+    BatchResult insertAll(List<Patient> patients, int batchSize) throws SQLException;
+
+    /**
+     * @param id Die Patienten-ID.
+     * @return Der Patient oder {@code null}, wenn keiner mit dieser ID existiert.
+     */
+    Patient findById(int id) throws SQLException;
+
+    /**
+     * Liest mehrere Patienten anhand ihrer IDs; nicht vorhandene IDs werden übergangen.
+     *
+     * @param ids Die Patienten-IDs.
+     * @return Die gefundenen Patienten, aufsteigend nach ID.
+     */
+    List<Patient> findByIds(Collection<Integer> ids) throws SQLException;
+
+    /**
+     * Liest nur ID und Version aller Patienten, z. B. um einen lokalen Stand abzugleichen.
+     *
+     * @return Version nach Patienten-ID, aufsteigend nach ID.
+     */
+    Map<Integer, Integer> versions() throws SQLException;
+
+    /**
+     * Liest alle Patienten mit einer ID größer als {@code afterId}. Der Stream muss geschlossen werden;
+     * Fehler während des Lesens werden als {@link IllegalStateException} gemeldet.
+     *
+     * @param afterId   Die zuletzt verarbeitete ID ({@code 0} für den Anfang).
+     * @param fetchSize Anzahl der Zeilen pro Abruf, sofern die Implementierung portionsweise liest.
+     */
+    Stream<Patient> scan(int afterId, int fetchSize) throws SQLException;
+
+    /**
+     * Liest höchstens {@code limit} Patienten mit einer ID größer als {@code afterId} (Keyset-Paginierung).
+     */
+    List<Patient> page(int afterId, int limit) throws SQLException;
+
+    /**
+     * Liest höchstens {@code limit} Patienten, die in der Sortierung {@code sort} hinter {@code after} stehen
+     * (Keyset-Paginierung auf einer beliebigen {@link PatientSort.Column}).
+     *
+     * @param after Die Position der letzten Zeile der vorherigen Seite oder {@code null} für den Anfang.
+     */
+    List<Patient> page(PatientSort sort, PatientSort.Key after, int limit) throws SQLException;
+
+    /**
+     * Liest höchstens {@code limit} Patienten ab Zeile {@code offset} der Sortierung {@code sort}.
+     * Langsamer als {@link #page(PatientSort, PatientSort.Key, int)}, da die übersprungenen Zeilen gelesen werden;
+     * nur für Sprünge zu einer Position, deren Vorgänger nicht bekannt ist.
+     */
+    List<Patient> pageAt(PatientSort sort, int offset, int limit) throws SQLException;
+
+    /**
+     * @return Die Anzahl der Patienten.
+     */
+    int count() throws SQLException;
+
+    /**
+     * Sucht Patienten mit der Semantik von {@link SearchQuery}.
+     *
+     * @param criteria Kriterien wie bei {@link Search#searchPatients(Map)}.
+     */
+    List<Patient> search(Map<String, String> criteria) throws SQLException;
+
+    /**
+     * Sucht wie {@link #search(Map)}, liefert die Treffer aber als Stream, ohne sie alle im Speicher zu halten.
+     * Der Stream muss geschlossen werden; Fehler während des Lesens werden als {@link IllegalStateException} gemeldet.
+     *
+     * @param fetchSize Anzahl der Zeilen pro Abruf, sofern die Implementierung portionsweise liest.
+     */
+    Stream<Patient> searchStream(Map<String, String> criteria, int fetchSize) throws SQLException;
+
+    /**
+     * Schreibt die geänderten Felder eines Patienten, sofern seine Version noch aktuell ist.
+     *
+     * @param patient Der geänderte Patient.
+     * @return Der Patient, wie er danach gespeichert ist, oder {@code null}, wenn er nicht mehr gelesen werden konnte.
+     * @throws OptimisticLockException Wenn der Patient zwischenzeitlich geändert oder gelöscht wurde.
+     */
+    Patient update(Patient patient) throws SQLException;
+
+    /**
+     * Schreibt alle Felder mehrerer Patienten mit Versionsprüfung, jeweils {@code batchSize} pro Transaktion.
+     * Versionskonflikte werden pro Zeile als {@link OptimisticLockException} gemeldet.
+     *
+     * @return Erfolg oder Fehler pro Patient, in Eingabereihenfolge.
+     */
+    BatchResult updateAll(List<Patient> patients, int batchSize) throws SQLException;
+
+    /**
+     * @param id Die Patienten-ID.
+     * @return {@code true}, wenn ein Patient gelöscht wurde.
+     */
+    boolean delete(int id) throws SQLException;
+
+    /**
+     * Löscht mehrere Patienten, jeweils {@code batchSize} pro Transaktion. Nicht vorhandene IDs gelten als
+     * fehlgeschlagen, z. B. weil ein anderer Arbeitsplatz den Patienten bereits gelöscht hat.
+     *
+     * @return Erfolg oder Fehler pro ID, in Eingabereihenfolge.
+     */
+    BatchResult deleteAll(List<Integer> ids, int batchSize) throws SQLException;
+}
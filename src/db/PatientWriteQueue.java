@@ -0,0 +1,229 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Geordnete Schreibwarteschlange für Patienten auf Basis von {@link AsyncDAO}.
+ * <p>
+ * Pro Patienten-ID gibt es eine Spur, in der Schreibvorgänge strikt nacheinander laufen; Spuren
+ * verschiedener Patienten laufen parallel (begrenzt durch {@link AsyncDAO}). Ein Update, das noch
+ * wartet, nimmt weitere Updates desselben Patienten auf, sodass mehrere Bearbeitungen hintereinander
+ * als ein einziges Statement geschrieben werden. Ein Löschen verwirft noch wartende Updates.
+ * Hängt ein Update direkt an einem eigenen, erfolgreich geschriebenen Update, wird seine Version
+ * nachgezogen, damit es nicht an der eigenen Änderung als Konflikt scheitert.
+ */
+public class PatientWriteQueue {
+
+    /** Die Schreibreihenfolge eines Patienten. */
+    private static final class Lane {
+        /** Abschluss des zuletzt eingereihten Schreibvorgangs. */
+        private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+        /** Ein eingereihtes, noch nicht gestartetes Update, das weitere Updates aufnehmen kann. */
+        private PendingUpdate pendingUpdate;
+        /** Anzahl der noch nicht abgeschlossenen Schreibvorgänge. */
+        private int inFlight;
+    }
+
+    private static final class PendingUpdate {
+        private final Patient patient;
+        private final CompletableFuture<Patient> result = new CompletableFuture<>();
+        private boolean started;
+        private boolean superseded;
+
+        private PendingUpdate(Patient patient) {
+            this.patient = patient;
+        }
+    }
+
+    private final AsyncDAO async;
+    private final Map<Integer, Lane> lanes = new HashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param async Die Fassade, über die geschrieben wird.
+     */
+    public PatientWriteQueue(AsyncDAO async) {
+        this.async = async;
+    }
+
+    /**
+     * Fügt einen neuen Patienten ein. Neue Patienten haben noch keine ID und müssen daher
+     * mit nichts geordnet werden.
+     *
+     * @param patient Der neue Patient.
+     * @return Der eingefügte Patient mit seiner generierten ID.
+     */
+    public CompletableFuture<Patient> add(Patient patient) {
+        return async.addPatient(patient);
+    }
+
+    /**
+     * Reiht ein Update ein. Wartet für denselben Patienten bereits ein Update, werden die geänderten
+     * Felder dort übernommen und beide Aufrufer erhalten dasselbe Ergebnis.
+     *
+     * @param patient Der geänderte Patient (mit gültiger ID).
+     * @return Die nach dem Update gelesene Zeile oder {@code null}, wenn der Patient vorher gelöscht wurde.
+     */
+    public synchronized CompletableFuture<Patient> update(Patient patient) {
+        int id = patient.getPatientID();
+        Lane lane = lane(id);
+        PendingUpdate pending = lane.pendingUpdate;
+        if (pending != null && !pending.started) {
+            pending.patient.applyChanges(patient);
+            coalesced.increment();
+            Logger.log(Logger.LogLevel.DEBUG, "Update für Patient " + id + " mit wartendem Update zusammengefasst.");
+            return pending.result;
+        }
+
+        PendingUpdate update = new PendingUpdate(patient);
+        lane.pendingUpdate = update;
+        enqueue(List.of(id), () -> runUpdate(lane, update)).whenComplete((saved, error) -> {
+            if (error != null) {
+                update.result.completeExceptionally(error);
+            } else {
+                update.result.complete(saved);
+            }
+        });
+        return update.result;
+    }
+
+    /**
+     * Reiht das Löschen eines Patienten ein und verwirft ein noch wartendes Update für ihn.
+     *
+     * @param id Die ID des Patienten.
+     * @return Abschluss des Löschvorgangs.
+     */
+    public synchronized CompletableFuture<Void> delete(int id) {
+        supersede(id);
+        return enqueue(List.of(id), () -> async.deletePatient(id));
+    }
+
+    /**
+     * Löscht mehrere Patienten in einem Stapel, nachdem alle zuvor eingereihten Schreibvorgänge
+     * dieser Patienten abgeschlossen sind. Noch wartende Updates werden verworfen.
+     *
+     * @param ids Die IDs der zu löschenden Patienten.
+     * @return Erfolg oder Fehler pro ID, in Eingabereihenfolge.
+     */
+    public synchronized CompletableFuture<BatchResult> deleteAll(Collection<Integer> ids) {
+        List<Integer> copy = List.copyOf(ids);
+        for (int id : copy) {
+            supersede(id);
+        }
+        return enqueue(copy, () -> async.deletePatients(copy));
+    }
+
+    /**
+     * Wartet, bis alle bisher eingereihten Schreibvorgänge abgeschlossen sind, z. B. vor dem Beenden.
+     *
+     * @param timeout Maximale Wartezeit.
+     * @param unit    Einheit der Wartezeit.
+     * @return {@code true}, wenn alle Schreibvorgänge rechtzeitig abgeschlossen wurden.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) {
+        CompletableFuture<?>[] tails;
+        synchronized (this) {
+            tails = lanes.values().stream().map(lane -> lane.tail).toArray(CompletableFuture[]::new);
+        }
+        try {
+            CompletableFuture.allOf(tails).get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            return true; // Fehler wurden bereits an die Aufrufer gemeldet
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** @return Anzahl der Updates, die mit einem wartenden Update zusammengefasst wurden. */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    private Lane lane(int id) {
+        return lanes.computeIfAbsent(id, k -> new Lane());
+    }
+
+    /** Verwirft ein noch nicht gestartetes Update; dessen Aufrufer erhalten {@code null}. */
+    private void supersede(int id) {
+        Lane lane = lanes.get(id);
+        if (lane != null && lane.pendingUpdate != null && !lane.pendingUpdate.started) {
+            lane.pendingUpdate.superseded = true;
+            lane.pendingUpdate = null;
+            Logger.log(Logger.LogLevel.DEBUG, "Wartendes Update für Patient " + id + " durch Löschen verworfen.");
+        }
+    }
+
+    /**
+     * Startet {@code op}, sobald alle vorherigen Schreibvorgänge der betroffenen Spuren abgeschlossen sind
+     * (unabhängig von deren Erfolg), und macht {@code op} zum neuen Ende dieser Spuren.
+     */
+    private <T> CompletableFuture<T> enqueue(List<Integer> ids, Supplier<CompletableFuture<T>> op) {
+        List<Lane> affected = new ArrayList<>(ids.size());
+        CompletableFuture<?>[] previous = new CompletableFuture<?>[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            Lane lane = lane(ids.get(i));
+            affected.add(lane);
+            previous[i] = lane.tail;
+        }
+        CompletableFuture<T> result = CompletableFuture.allOf(previous)
+                .handle((ignored, error) -> null)
+                .thenCompose(ignored -> op.get());
+        for (Lane lane : affected) {
+            lane.tail = result;
+            lane.inFlight++;
+        }
+        result.whenComplete((value, error) -> release(ids));
+        return result;
+    }
+
+    private CompletableFuture<Patient> runUpdate(Lane lane, PendingUpdate update) {
+        synchronized (this) {
+            update.started = true;
+            if (lane.pendingUpdate == update) {
+                lane.pendingUpdate = null;
+            }
+            if (update.superseded) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        int expectedVersion = update.patient.getVersion();
+        return async.updatePatient(update.patient).thenApply(saved -> {
+            rebase(lane, expectedVersion, saved.getVersion());
+            return saved;
+        });
+    }
+
+    /** Zieht die Version eines direkt folgenden Updates auf die gerade selbst geschriebene Version nach. */
+    private synchronized void rebase(Lane lane, int oldVersion, int newVersion) {
+        PendingUpdate next = lane.pendingUpdate;
+        if (next != null && newVersion != oldVersion && next.patient.getVersion() == oldVersion) {
+            next.patient.setVersion(newVersion);
+        }
+    }
+
+    private synchronized void release(List<Integer> ids) {
+        for (int id : ids) {
+            Lane lane = lanes.get(id);
+            if (lane != null && --lane.inFlight == 0) {
+                lanes.remove(id);
+            }
+        }
+    }
+}
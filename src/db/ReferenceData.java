@@ -0,0 +1,247 @@
+package db;
+
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hält die Referenztabellen {@code bundesland}, {@code geschlecht} und {@code krankenkasse} im Speicher.
+ * <p>
+ * Die Tabellen werden einmal vollständig geladen und als unveränderlicher Snapshot abgelegt.
+ * {@link #refresh()} lädt einen neuen Snapshot und tauscht ihn atomar aus; Leser sehen immer
+ * einen vollständigen Stand, ohne zu sperren.
+ * <p>
+ * Schlägt das erste Laden fehl, wird ein leerer Stand abgelegt, damit nicht jeder Zugriff (z. B. beim
+ * Zeichnen der Tabelle auf dem Event Dispatch Thread) erneut auf die Datenbank wartet. Erneut versucht wird
+ * nur über {@link #refresh()}, {@link #preload()} und {@link #startAutoRefresh}.
+ */
+public final class ReferenceData {
+
+    /** Der aktuelle Snapshot; {@code null}, solange noch nicht geladen wurde. */
+    private static volatile Snapshot current;
+
+    /** Ersatz, nachdem das erste Laden fehlgeschlagen ist. */
+    private static final Snapshot EMPTY = new Snapshot(new Lookup(Map.of()), new Lookup(Map.of()), new Lookup(Map.of()));
+
+    private static ScheduledExecutorService refresher;
+    private static ScheduledFuture<?> refreshTask;
+
+    private ReferenceData() {
+    }
+
+    /**
+     * Eine unveränderliche Nachschlagetabelle ID ↔ Bezeichnung.
+     * IDs indizieren direkt ein Array; Namen werden ohne Beachtung der Groß-/Kleinschreibung aufgelöst.
+     */
+    public static final class Lookup {
+        private final String[] namesById;
+        private final Map<String, Integer> idsByName;
+        private final List<String> names;
+
+        private Lookup(Map<Integer, String> entries) {
+            int maxId = entries.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            String[] byId = new String[maxId + 1];
+            Map<String, Integer> byName = new HashMap<>();
+            List<String> ordered = new ArrayList<>();
+            entries.forEach((id, name) -> {
+                byId[id] = name;
+                byName.put(normalize(name), id);
+            });
+            for (String name : byId) {
+                if (name != null) {
+                    ordered.add(name);
+                }
+            }
+            this.namesById = byId;
+            this.idsByName = Collections.unmodifiableMap(byName);
+            this.names = Collections.unmodifiableList(ordered);
+        }
+
+        /**
+         * @param id Die ID des Eintrags.
+         * @return Die Bezeichnung oder {@code null}, wenn die ID unbekannt ist.
+         */
+        public String getName(int id) {
+            return id > 0 && id < namesById.length ? namesById[id] : null;
+        }
+
+        /**
+         * @param name Die Bezeichnung (Groß-/Kleinschreibung und umgebende Leerzeichen werden ignoriert).
+         * @return Die ID oder {@code 0}, wenn die Bezeichnung unbekannt ist.
+         */
+        public int getId(String name) {
+            if (name == null) {
+                return 0;
+            }
+            Integer id = idsByName.get(normalize(name));
+            return id != null ? id : 0;
+        }
+
+        /** @return Alle Einträge als ID → Bezeichnung, aufsteigend nach ID sortiert. */
+        public Map<Integer, String> getEntries() {
+            Map<Integer, String> entries = new LinkedHashMap<>();
+            for (int id = 0; id < namesById.length; id++) {
+                if (namesById[id] != null) {
+                    entries.put(id, namesById[id]);
+                }
+            }
+            return entries;
+        }
+
+        /** @return Alle Bezeichnungen, aufsteigend nach ID sortiert. */
+        public List<String> getNames() {
+            return names;
+        }
+
+        private static String normalize(String name) {
+            return name.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Snapshot(Lookup bundeslaender, Lookup geschlechter, Lookup krankenkassen) {
+    }
+
+    /** @return Die Bundesländer. */
+    public static Lookup bundeslaender() {
+        return snapshot().bundeslaender();
+    }
+
+    /** @return Die Geschlechter. */
+    public static Lookup geschlechter() {
+        return snapshot().geschlechter();
+    }
+
+    /** @return Die Krankenkassen. */
+    public static Lookup krankenkassen() {
+        return snapshot().krankenkassen();
+    }
+
+    /**
+     * Lädt die Referenzdaten, falls das noch nicht geschehen oder bisher fehlgeschlagen ist.
+     * Gedacht für den Programmstart und Hintergrund-Threads, da der Aufruf auf die Datenbank warten kann.
+     */
+    public static void preload() {
+        if (current == null || current == EMPTY) {
+            synchronized (ReferenceData.class) {
+                if (current == null || current == EMPTY) {
+                    load();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true}, wenn bereits Referenzdaten geladen oder installiert wurden.
+     */
+    public static boolean isLoaded() {
+        Snapshot snapshot = current;
+        return snapshot != null && snapshot != EMPTY;
+    }
+
+    /**
+     * Setzt die Referenzdaten direkt, ohne Datenbank, z. B. für Benchmarks mit dem {@link InMemoryPatientStore}.
+     *
+     * @param bundeslaender Bundesländer nach ID.
+     * @param geschlechter  Geschlechter nach ID.
+     * @param krankenkassen Krankenkassen nach ID.
+     */
+    public static void install(Map<Integer, String> bundeslaender, Map<Integer, String> geschlechter,
+                               Map<Integer, String> krankenkassen) {
+        current = new Snapshot(new Lookup(bundeslaender), new Lookup(geschlechter), new Lookup(krankenkassen));
+    }
+
+    /**
+     * Lädt alle drei Referenztabellen neu und ersetzt den aktuellen Snapshot atomar.
+     * Schlägt das Laden fehl, bleibt der bisherige Snapshot erhalten.
+     *
+     * @throws SQLException Wenn ein Fehler beim Zugriff auf die Datenbank auftritt.
+     */
+    public static void refresh() throws SQLException {
+        try (Connection connection = DBConnection.getConnection()) {
+            Snapshot snapshot = new Snapshot(
+                    load(connection, "SELECT BundeslandID, Bezeichnung FROM bundesland"),
+                    load(connection, "SELECT GeschlechtID, Bezeichnung FROM geschlecht"),
+                    load(connection, "SELECT KrankenkasseID, Bezeichnung FROM krankenkasse"));
+            current = snapshot;
+            Logger.log(Logger.LogLevel.INFO, "Referenzdaten geladen: " + snapshot.bundeslaender().getNames().size()
+                    + " Bundesländer, " + snapshot.geschlechter().getNames().size() + " Geschlechter, "
+                    + snapshot.krankenkassen().getNames().size() + " Krankenkassen.");
+        }
+    }
+
+    /**
+     * Aktualisiert die Referenzdaten periodisch im Hintergrund. Ein erneuter Aufruf ersetzt das Intervall.
+     *
+     * @param period Das Intervall.
+     * @param unit   Die Zeiteinheit des Intervalls.
+     */
+    public static synchronized void startAutoRefresh(long period, TimeUnit unit) {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "reference-data-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        refreshTask = refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (SQLException e) {
+                Logger.log(Logger.LogLevel.WARN, "Referenzdaten konnten nicht aktualisiert werden.", e);
+            }
+        }, period, period, unit);
+    }
+
+    private static Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (ReferenceData.class) {
+                if (current == null) {
+                    load();
+                }
+                snapshot = current;
+            }
+        }
+        return snapshot;
+    }
+
+    /** Lädt die Referenzdaten; schlägt das fehl, bleibt ein vorhandener Stand erhalten, sonst gilt {@link #EMPTY}. */
+    private static void load() {
+        try {
+            refresh();
+        } catch (SQLException e) {
+            Logger.log(Logger.LogLevel.ERROR, "Referenzdaten konnten nicht geladen werden.", e);
+            if (current == null) {
+                current = EMPTY;
+            }
+        }
+    }
+
+    private static Lookup load(Connection connection, String sql) throws SQLException {
+        Map<Integer, String> entries = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                entries.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return new Lookup(entries);
+    }
+}
@@ -3,11 +3,7 @@ package db;
 import model.Patient;
 import utils.Logger;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -17,46 +13,55 @@ import java.util.Map;
 public class Search {
 
     /**
-     * Sucht Patienten in der Datenbank basierend auf den übergebenen Kriterien.
+     * Sucht Patienten im Standardspeicher basierend auf den übergebenen Kriterien.
+     * Die Kriterien werden von {@link SearchQuery} in indexfähige Prädikate übersetzt
+     * (z. B. Gleichheit für die ID, Präfix für Namen, Datumsbereich für das Geburtsdatum).
+     * Ist der {@link SearchIndex} aufgebaut, wird die Suche im Speicher beantwortet.
      *
      * @param criteria Eine Map, die Spaltennamen (z. B. "Vorname") den entsprechenden Suchwerten zuordnet.
      * @return Eine Liste der gefundenen Patienten.
      * @throws SQLException Falls ein Fehler bei der Datenbankabfrage auftritt.
      */
     public static List<Patient> searchPatients(Map<String, String> criteria) throws SQLException {
-        List<Patient> patients = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM Patient WHERE 1=1");
-
-        // Dynamisches SQL-Statement basierend auf den Kriterien aufbauen
-        criteria.forEach((column, value) -> {
-            if (value != null && !value.isEmpty()) {
-                sql.append(" AND ").append(column).append(" LIKE ?");
-            }
-        });
-
-        Logger.log(Logger.LogLevel.DEBUG, "Auszuführendes SQL-Statement: " + sql);
-
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
-
-            // Parameter binden
-            int paramIndex = 1;
-            for (String value : criteria.values()) {
-                if (value != null && !value.isEmpty()) {
-                    stmt.setString(paramIndex++, "%" + value.trim() + "%");
-                }
-            }
-
-            // Abfrage ausführen und Ergebnisse verarbeiten
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    patients.add(Helper.mapResultSetToPatient(rs, null, connection));
-                }
-            }
-
-            Logger.log(Logger.LogLevel.INFO, "Gefundene Patienten: " + patients.size());
+        return searchPatients(DAO.getDefaultStore(), criteria);
+    }
+
+    /**
+     * Sucht Patienten in einem bestimmten Speicher, siehe {@link #searchPatients(Map)}. Verwendet wird nur der
+     * Suchindex dieses Speichers, nie der eines anderen.
+     *
+     * @param store    Der zu durchsuchende Speicher.
+     * @param criteria Die Suchkriterien.
+     * @return Eine Liste der gefundenen Patienten.
+     * @throws SQLException Falls ein Fehler bei der Datenbankabfrage auftritt.
+     */
+    public static List<Patient> searchPatients(PatientStore store, Map<String, String> criteria) throws SQLException {
+        return searchPatients(store, DAO.searchIndexOf(store), criteria);
+    }
+
+    /**
+     * Sucht Patienten in einem Speicher und beantwortet die Suche aus dessen Index, sobald er aufgebaut ist.
+     */
+    static List<Patient> searchPatients(PatientStore store, SearchIndex index, Map<String, String> criteria) throws SQLException {
+        if (index.isReady()) {
+            List<Patient> hits = index.search(criteria);
+            Logger.log(Logger.LogLevel.INFO, "Gefundene Patienten (Suchindex): " + hits.size());
+            return hits;
         }
 
+        List<Patient> patients = store.search(criteria);
+        Logger.log(Logger.LogLevel.INFO, "Gefundene Patienten: " + patients.size());
         return patients;
     }
+
+    /**
+     * Normalisiert einen Text so, wie die Suche Feldwerte vergleicht: Kleinschreibung, ohne Akzente und
+     * Umlautpunkte, ß als ss. So findet z. B. der Tabellenfilter "muller" auch "Müller".
+     *
+     * @param value Der Text oder {@code null}.
+     * @return Der normalisierte Text; bei {@code null} ein leerer String.
+     */
+    public static String fold(String value) {
+        return SearchQuery.fold(value);
+    }
 }
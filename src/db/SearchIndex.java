@@ -0,0 +1,377 @@
+package db;
+
+import model.Patient;
+import utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Optionaler In-Memory-Suchindex für {@link Search#searchPatients(Map)}.
+ * <p>
+ * Für die Textfelder eines Patienten wird ein invertierter Trigramm-Index gehalten: zu jedem Trigramm
+ * eines Feldes die sortierte Liste der Patienten-IDs, in deren Wert es vorkommt. Eine Präfix- oder
+ * Teilstring-Suche schneidet die Postinglisten aller Trigramme des Suchbegriffs und prüft die wenigen
+ * verbleibenden Kandidaten anschließend exakt. Die Kriterien werden wie bei der SQL-Suche von
+ * {@link SearchQuery} kompiliert und ausgewertet, die Treffer sind daher dieselben.
+ * <p>
+ * Der Index wird mit {@code -Dsearch.index.enabled=true} aktiviert, beim Programmstart aufgebaut
+ * und von {@link DAO} bei jedem Schreibvorgang inkrementell nachgeführt.
+ */
+public final class SearchIndex {
+
+    /** Ob der Index verwendet werden soll. */
+    public static final boolean ENABLED = Boolean.getBoolean("search.index.enabled");
+
+    private static final SearchIndex INSTANCE = new SearchIndex();
+
+    /**
+     * Die Textfelder; {@code key} entspricht dem Kriterienschlüssel von {@link Search}.
+     * Das Geburtsdatum wird nur für die Teilstring-Suche mit nicht erkennbarem Datum als Text gehalten.
+     */
+    private enum Field {
+        VORNAME("Vorname", true),
+        NACHNAME("Nachname", true),
+        GEBURTSDATUM("Geburtsdatum", false),
+        STRASSE("Strasse", true),
+        PLZ("PLZ", true),
+        ORT("Ort", true),
+        TELEFON("Telefon", true),
+        SONSTIGES("Sonstiges", true);
+
+        private final String key;
+        private final boolean indexed;
+
+        Field(String key, boolean indexed) {
+            this.key = key;
+            this.indexed = indexed;
+        }
+
+        private static Field byKey(String key) {
+            for (Field field : values()) {
+                if (field.key.equals(key)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Ein indizierter Patient mit den bereits normalisierten Feldwerten. */
+    private record Document(Patient patient, String[] values) {
+    }
+
+    /**
+     * Aufsteigend sortierte, wachsende Liste von Patienten-IDs.
+     * IDs kommen überwiegend aufsteigend an, das Einfügen ist dann ein Anhängen.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == 0 || id > ids[size - 1]) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        private void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        private boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /** IDs, die während des Aufbaus geschrieben wurden; ihre Zeilen aus dem Aufbau-Scan sind veraltet. */
+    private Set<Integer> touchedDuringBuild;
+    private volatile boolean ready;
+
+    /**
+     * Erstellt einen eigenen, leeren Index, z. B. für ein {@link DAO} auf einem anderen {@link PatientStore}
+     * als dem Standardspeicher. Aufgebaut wird er mit {@link #build(DAO)} über ein DAO auf diesem Speicher.
+     */
+    public SearchIndex() {
+    }
+
+    /** @return Der Suchindex des Standardspeichers. */
+    public static SearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /** @return {@code true}, wenn der Index aktiviert und vollständig aufgebaut ist. */
+    public boolean isReady() {
+        return ENABLED && ready;
+    }
+
+    /**
+     * Baut den Index aus allen Patienten der Datenbank auf. Schreibvorgänge während des Aufbaus
+     * werden bereits berücksichtigt; Suchen laufen bis zum Ende des Aufbaus weiter über SQL.
+     *
+     * @param dao Das DAO, über das die Patienten gestreamt werden.
+     */
+    public void build(DAO dao) {
+        if (!ENABLED) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            documents.clear();
+            postings.clear();
+            touchedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try (Stream<Patient> patients = dao.streamPatients(0, DAO.DEFAULT_FETCH_SIZE)) {
+            patients.forEach(patient -> {
+                lock.writeLock().lock();
+                try {
+                    if (!touchedDuringBuild.contains(patient.getPatientID())) {
+                        put(patient);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.ERROR, "Suchindex konnte nicht aufgebaut werden, Suche läuft über SQL.", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            touchedDuringBuild = null;
+            ready = true;
+            Logger.log(Logger.LogLevel.INFO, "Suchindex aufgebaut: " + documents.size() + " Patienten, "
+                    + postings.size() + " Trigramme in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt einen eingefügten oder geänderten Patienten in den Index. Gespeichert wird eine Kopie ohne
+     * Änderungsmarkierungen, spätere Änderungen am übergebenen Objekt wirken sich also nicht auf den Index aus.
+     *
+     * @param patient Der gespeicherte Patient (mit gültiger ID).
+     */
+    public void patientSaved(Patient patient) {
+        if (!ENABLED || patient.getPatientID() == 0) {
+            return;
+        }
+        Patient copy = new Patient(patient);
+        copy.clearDirty();
+        lock.writeLock().lock();
+        try {
+            markTouched(copy.getPatientID());
+            removeDocument(copy.getPatientID());
+            put(copy);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entfernt einen gelöschten Patienten aus dem Index.
+     *
+     * @param id Die ID des gelöschten Patienten.
+     */
+    public void patientDeleted(int id) {
+        if (!ENABLED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(id);
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sucht Patienten mit derselben Semantik wie die SQL-Suche (siehe {@link SearchQuery}).
+     *
+     * @param criteria Kriterien wie bei {@link Search#searchPatients(Map)}.
+     * @return Kopien der Treffer aufsteigend nach ID, wie sie auch {@link PatientStore#search(Map)} liefert.
+     */
+    public List<Patient> search(Map<String, String> criteria) {
+        List<SearchQuery.Criterion> compiled = SearchQuery.compile(criteria).getCriteria();
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = null;
+            for (SearchQuery.Criterion criterion : compiled) {
+                Field field = Field.byKey(criterion.key());
+                switch (criterion.kind()) {
+                    case NO_MATCH -> candidates = new int[0];
+                    case ID_EQUALS -> candidates = restrict(candidates,
+                            documents.containsKey(criterion.id()) ? new int[]{criterion.id()} : new int[0]);
+                    case PREFIX, CONTAINS -> {
+                        if (field != null && field.indexed && criterion.text().length() >= 3) {
+                            candidates = intersect(candidates, field, criterion.text());
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                if (candidates != null && candidates.length == 0) {
+                    return new ArrayList<>();
+                }
+            }
+            if (candidates == null) {
+                candidates = documents.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+
+            List<Patient> result = new ArrayList<>();
+            for (int id : candidates) {
+                if (matches(documents.get(id), compiled)) {
+                    result.add(new Patient(documents.get(id).patient()));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matches(Document document, List<SearchQuery.Criterion> criteria) {
+        for (SearchQuery.Criterion criterion : criteria) {
+            Field field = Field.byKey(criterion.key());
+            String text = field != null ? document.values()[field.ordinal()] : "";
+            if (!SearchQuery.matches(criterion, document.patient(), text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Schneidet zwei aufsteigend sortierte ID-Listen; {@code null} steht für "alle". */
+    private static int[] restrict(int[] candidates, int[] ids) {
+        if (candidates == null) {
+            return ids;
+        }
+        return Arrays.stream(ids).filter(id -> Arrays.binarySearch(candidates, id) >= 0).toArray();
+    }
+
+    /**
+     * Schneidet die Kandidaten mit den Postinglisten aller Trigramme von {@code needle}.
+     */
+    private int[] intersect(int[] candidates, Field field, String needle) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Postings list = postings.get(trigramKey(field, needle, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = candidates;
+        int from = 0;
+        if (result == null) {
+            result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            from = 1;
+        }
+        for (int l = from; l < lists.size() && result.length > 0; l++) {
+            Postings list = lists.get(l);
+            int count = 0;
+            for (int id : result) {
+                if (list.contains(id)) {
+                    result[count++] = id;
+                }
+            }
+            result = Arrays.copyOf(result, count);
+        }
+        return result;
+    }
+
+    private void put(Patient patient) {
+        Field[] fields = Field.values();
+        String[] values = new String[fields.length];
+        for (Field field : fields) {
+            String value = SearchQuery.fold(SearchQuery.fieldText(field.key, patient));
+            values[field.ordinal()] = value;
+            if (field.indexed) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    postings.computeIfAbsent(trigramKey(field, value, i), k -> new Postings()).add(patient.getPatientID());
+                }
+            }
+        }
+        documents.put(patient.getPatientID(), new Document(patient, values));
+    }
+
+    private void removeDocument(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            if (!field.indexed) {
+                continue;
+            }
+            String value = document.values()[field.ordinal()];
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                long key = trigramKey(field, value, i);
+                Postings list = postings.get(key);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.size == 0) {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private void markTouched(int id) {
+        if (touchedDuringBuild != null) {
+            touchedDuringBuild.add(id);
+        }
+    }
+
+    /** Kodiert Feld und drei Zeichen verlustfrei in einen {@code long}. */
+    private static long trigramKey(Field field, String value, int offset) {
+        return ((long) field.ordinal() << 48)
+                | ((long) value.charAt(offset) << 32)
+                | ((long) value.charAt(offset + 1) << 16)
+                | value.charAt(offset + 2);
+    }
+}
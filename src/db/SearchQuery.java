@@ -0,0 +1,326 @@
+package db;
+
+import model.Patient;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Übersetzt Suchkriterien in eine Patientenabfrage mit indexfähigen Prädikaten.
+ * <p>
+ * Jedes Kriterium wird auf das günstigste Prädikat abgebildet:
+ * <ul>
+ *     <li>{@code PatientID}: Gleichheit,</li>
+ *     <li>{@code Geburtsdatum}: Datumsbereich (Tag, Monat oder Jahr, z. B. {@code 1985-06-15}, {@code 15.06.1985},
+ *     {@code 1985-06}, {@code 1985}),</li>
+ *     <li>{@code Vorname}, {@code Nachname}, {@code PLZ}: Präfix ({@code LIKE 'wert%'}),</li>
+ *     <li>Bundesland, Geschlecht, Krankenkasse: die passenden IDs aus {@link ReferenceData} ({@code IN (...)}),</li>
+ *     <li>übrige Textfelder: Teilstring ({@code LIKE '%wert%'}).</li>
+ * </ul>
+ * Das erzeugte SQL hängt nur von der Form der Kriterien ab (welche Felder, welche Prädikate, wie viele IDs)
+ * und wird pro Form gecacht. Dieselben Prädikate wertet {@link #matches(Patient)} im Speicher aus,
+ * damit {@link SearchIndex} dieselben Treffer liefert wie die Datenbank.
+ */
+final class SearchQuery {
+
+    /** Art des Prädikats eines Kriteriums. */
+    enum Kind {
+        ID_EQUALS, DATE_RANGE, PREFIX, CONTAINS, REFERENCE, NO_MATCH
+    }
+
+    /**
+     * Ein kompiliertes Kriterium.
+     *
+     * @param key    Der Kriterienschlüssel, z. B. "Nachname".
+     * @param kind   Die Art des Prädikats.
+     * @param text   Der normalisierte Suchtext bei {@link Kind#PREFIX} und {@link Kind#CONTAINS}.
+     * @param id     Die gesuchte ID bei {@link Kind#ID_EQUALS}.
+     * @param from   Erster Tag (inklusive) bei {@link Kind#DATE_RANGE}.
+     * @param to     Letzter Tag (exklusive) bei {@link Kind#DATE_RANGE}.
+     * @param ids    Die passenden Referenz-IDs bei {@link Kind#REFERENCE}.
+     * @param raw    Der eingegebene Wert (getrimmt), der für LIKE gebunden wird.
+     */
+    record Criterion(String key, Kind kind, String text, int id, LocalDate from, LocalDate to, int[] ids, String raw) {
+    }
+
+    /** Streng, damit z. B. "31.02.1990" nicht stillschweigend zum 28.02. wird. */
+    private static final DateTimeFormatter GERMAN_DATE =
+            DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    /** Vollständig eingegebene Datumsangaben; sind sie ungültig, findet die Suche nichts. */
+    private static final String COMPLETE_DATE = "\\d{1,2}\\.\\d{1,2}\\.\\d{4}|\\d{4}-\\d{1,2}(-\\d{1,2})?";
+
+    /** Gecachtes SQL pro Form der Kriterien. */
+    private static final Map<String, String> SQL_BY_SHAPE = new ConcurrentHashMap<>();
+
+    private final List<Criterion> criteria;
+    private final String sql;
+
+    private SearchQuery(List<Criterion> criteria, String sql) {
+        this.criteria = criteria;
+        this.sql = sql;
+    }
+
+    /**
+     * Kompiliert die Kriterien. Leere Werte werden ignoriert.
+     *
+     * @param criteria Kriterienschlüssel und Suchwerte, wie sie {@link Search#searchPatients(Map)} erhält.
+     * @return Die kompilierte Abfrage.
+     * @throws IllegalArgumentException Bei einem unbekannten Kriterienschlüssel.
+     */
+    static SearchQuery compile(Map<String, String> criteria) {
+        List<Criterion> compiled = new ArrayList<>();
+        for (Map.Entry<String, String> entry : criteria.entrySet()) {
+            String value = entry.getValue();
+            if (value != null && !value.trim().isEmpty()) {
+                compiled.add(compileCriterion(entry.getKey(), value.trim()));
+            }
+        }
+        compiled.sort(Comparator.comparing(Criterion::key));
+
+        StringBuilder shape = new StringBuilder();
+        for (Criterion criterion : compiled) {
+            shape.append(criterion.key()).append(':').append(criterion.kind());
+            if (criterion.kind() == Kind.REFERENCE) {
+                shape.append(':').append(criterion.ids().length);
+            }
+            shape.append(';');
+        }
+        String sql = SQL_BY_SHAPE.computeIfAbsent(shape.toString(), k -> buildSql(compiled));
+        return new SearchQuery(List.copyOf(compiled), sql);
+    }
+
+    /** @return Das SQL der Abfrage; Parameter werden mit {@link #bind(PreparedStatement)} gesetzt. */
+    String getSql() {
+        return sql;
+    }
+
+    /** @return Die kompilierten Kriterien, sortiert nach Schlüssel. */
+    List<Criterion> getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Bindet die Parameter aller Kriterien in der Reihenfolge des SQL.
+     *
+     * @param stmt Das mit {@link #getSql()} vorbereitete Statement.
+     * @return Der nächste freie Parameterindex.
+     * @throws SQLException Falls ein SQL-Fehler auftritt.
+     */
+    int bind(PreparedStatement stmt) throws SQLException {
+        int index = 1;
+        for (Criterion criterion : criteria) {
+            switch (criterion.kind()) {
+                case ID_EQUALS -> stmt.setInt(index++, criterion.id());
+                case DATE_RANGE -> {
+                    stmt.setDate(index++, Date.valueOf(criterion.from()));
+                    stmt.setDate(index++, Date.valueOf(criterion.to()));
+                }
+                case PREFIX -> stmt.setString(index++, escapeLike(criterion.raw()) + "%");
+                case CONTAINS -> stmt.setString(index++, "%" + escapeLike(criterion.raw()) + "%");
+                case REFERENCE -> {
+                    for (int id : criterion.ids()) {
+                        stmt.setInt(index++, id);
+                    }
+                }
+                case NO_MATCH -> {
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Wertet die Kriterien im Speicher aus, mit derselben Semantik wie das SQL.
+     *
+     * @param patient Der zu prüfende Patient.
+     * @return {@code true}, wenn der Patient alle Kriterien erfüllt.
+     */
+    boolean matches(Patient patient) {
+        for (Criterion criterion : criteria) {
+            if (!matches(criterion, patient, fold(fieldText(criterion.key(), patient)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prüft ein einzelnes Kriterium.
+     *
+     * @param foldedText Der normalisierte Feldtext (siehe {@link #fieldText}), nur für Textprädikate benötigt.
+     */
+    static boolean matches(Criterion criterion, Patient patient, String foldedText) {
+        return switch (criterion.kind()) {
+            case ID_EQUALS -> patient.getPatientID() == criterion.id();
+            case DATE_RANGE -> patient.getGeburtsdatum() != null
+                    && !patient.getGeburtsdatum().isBefore(criterion.from())
+                    && patient.getGeburtsdatum().isBefore(criterion.to());
+            case PREFIX -> foldedText.startsWith(criterion.text());
+            case CONTAINS -> foldedText.contains(criterion.text());
+            case REFERENCE -> Arrays.binarySearch(criterion.ids(), referenceId(criterion.key(), patient)) >= 0;
+            case NO_MATCH -> false;
+        };
+    }
+
+    /**
+     * Liefert den Text eines Patientenfelds für Textprädikate.
+     *
+     * @param key     Der Kriterienschlüssel.
+     * @param patient Der Patient.
+     * @return Der Feldwert als Text oder {@code null}.
+     */
+    static String fieldText(String key, Patient patient) {
+        return switch (key) {
+            case "Vorname" -> patient.getVorname();
+            case "Nachname" -> patient.getNachname();
+            case "Geburtsdatum" -> patient.getGeburtsdatum() != null ? patient.getGeburtsdatum().toString() : null;
+            case "Strasse" -> patient.getStrasse();
+            case "PLZ" -> patient.getPlz();
+            case "Ort" -> patient.getOrt();
+            case "Telefon" -> patient.getTelefon();
+            case "Sonstiges" -> patient.getSonstiges();
+            default -> null;
+        };
+    }
+
+    /**
+     * Normalisiert einen Wert wie die Kollation {@code utf8mb4_unicode_ci}:
+     * Kleinschreibung, ohne Akzente, ß als ss.
+     */
+    static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) {
+                return Normalizer.normalize(lower, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "")
+                        .replace("ß", "ss");
+            }
+        }
+        return lower;
+    }
+
+    private static Criterion compileCriterion(String key, String value) {
+        return switch (key) {
+            case "PatientID" -> {
+                try {
+                    yield new Criterion(key, Kind.ID_EQUALS, null, Integer.parseInt(value), null, null, null, value);
+                } catch (NumberFormatException e) {
+                    yield noMatch(key, value);
+                }
+            }
+            case "Geburtsdatum" -> compileDate(key, value);
+            case "Vorname", "Nachname", "PLZ" -> new Criterion(key, Kind.PREFIX, fold(value), 0, null, null, null, value);
+            case "Strasse", "Ort", "Telefon", "Sonstiges" ->
+                    new Criterion(key, Kind.CONTAINS, fold(value), 0, null, null, null, value);
+            case "BundeslandName" -> compileReference(key, value, ReferenceData.bundeslaender());
+            case "GeschlechtName" -> compileReference(key, value, ReferenceData.geschlechter());
+            case "KrankenkasseName" -> compileReference(key, value, ReferenceData.krankenkassen());
+            default -> throw new IllegalArgumentException("Unbekanntes Suchkriterium: " + key);
+        };
+    }
+
+    private static Criterion compileDate(String key, String value) {
+        LocalDate from;
+        LocalDate to;
+        try {
+            if (value.matches("\\d{4}")) {
+                from = LocalDate.of(Integer.parseInt(value), 1, 1);
+                to = from.plusYears(1);
+            } else if (value.matches("\\d{4}-\\d{1,2}")) {
+                YearMonth month = YearMonth.parse(value.length() == 7 ? value : value.replace("-", "-0"));
+                from = month.atDay(1);
+                to = from.plusMonths(1);
+            } else if (value.contains(".")) {
+                from = LocalDate.parse(value, GERMAN_DATE);
+                to = from.plusDays(1);
+            } else {
+                from = LocalDate.parse(value);
+                to = from.plusDays(1);
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            if (value.matches(COMPLETE_DATE)) {
+                // Ungültiges Datum wie "31.02.1990"
+                return new Criterion(key, Kind.NO_MATCH, null, 0, null, null, null, value);
+            }
+            // Kein erkennbares Datum: wie bisher als Teilstring suchen
+            return new Criterion(key, Kind.CONTAINS, fold(value), 0, null, null, null, value);
+        }
+        return new Criterion(key, Kind.DATE_RANGE, null, 0, from, to, null, value);
+    }
+
+    /**
+     * Löst den Suchtext über den Referenzdaten-Cache in alle IDs auf, deren Bezeichnung ihn enthält.
+     */
+    private static Criterion compileReference(String key, String value, ReferenceData.Lookup lookup) {
+        String needle = fold(value);
+        int[] ids = lookup.getNames().stream()
+                .filter(name -> fold(name).contains(needle))
+                .mapToInt(lookup::getId)
+                .sorted()
+                .toArray();
+        return ids.length == 0
+                ? noMatch(key, value)
+                : new Criterion(key, Kind.REFERENCE, null, 0, null, null, ids, value);
+    }
+
+    private static Criterion noMatch(String key, String value) {
+        return new Criterion(key, Kind.NO_MATCH, null, 0, null, null, null, value);
+    }
+
+    private static int referenceId(String key, Patient patient) {
+        return switch (key) {
+            case "BundeslandName" -> patient.getBundeslandID();
+            case "GeschlechtName" -> patient.getGeschlechtID();
+            case "KrankenkasseName" -> patient.getKrankenkasseID();
+            default -> 0;
+        };
+    }
+
+    private static String buildSql(List<Criterion> criteria) {
+        StringBuilder sql = new StringBuilder(Helper.SELECT_PATIENT_SQL).append("WHERE 1=1");
+        for (Criterion criterion : criteria) {
+            String column = column(criterion.key());
+            switch (criterion.kind()) {
+                case ID_EQUALS -> sql.append(" AND ").append(column).append(" = ?");
+                case DATE_RANGE -> sql.append(" AND ").append(column).append(" >= ? AND ").append(column).append(" < ?");
+                case PREFIX, CONTAINS -> sql.append(" AND ").append(column).append(" LIKE ?");
+                case REFERENCE -> sql.append(" AND ").append(column).append(" IN (")
+                        .append("?,".repeat(criterion.ids().length - 1)).append("?)");
+                case NO_MATCH -> sql.append(" AND 1=0");
+            }
+        }
+        return sql.append(" ORDER BY p.PatientID").toString();
+    }
+
+    private static String column(String key) {
+        return switch (key) {
+            case "BundeslandName" -> "p.BundeslandID";
+            case "GeschlechtName" -> "p.GeschlechtID";
+            case "KrankenkasseName" -> "p.KrankenkasseID";
+            default -> "p." + key;
+        };
+    }
+
+    /** Maskiert die LIKE-Platzhalter, damit eingegebene {@code %} und {@code _} wörtlich gesucht werden. */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,236 @@
+package db;
+
+import utils.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU-Cache für PreparedStatements einer einzelnen physischen Verbindung.
+ * <p>
+ * Ein Statement wird pro SQL-Text (und Ergebnismengen-Typ) nur einmal vorbereitet. Aufrufer erhalten
+ * einen Proxy, dessen {@code close()} das Statement zurücksetzt und für die nächste Verwendung
+ * im Cache behält. Mit {@code useServerPrepStmts} bleibt so auch der Ausführungsplan auf dem Server erhalten.
+ * Wird ein Statement verdrängt, während es benutzt wird, wird es beim Zurückgeben geschlossen.
+ */
+final class StatementCache {
+
+    private record Key(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) {
+    }
+
+    private static final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final Connection physical;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Map<Key, Entry> entries;
+
+    /**
+     * @param physical Die physische Verbindung, auf der Statements vorbereitet werden.
+     * @param maxSize  Maximale Anzahl gecachter Statements.
+     * @param hits     Gemeinsamer Zähler für Cache-Treffer.
+     * @param misses   Gemeinsamer Zähler für Cache-Fehlschläge.
+     */
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                Entry entry = eldest.getValue();
+                entry.evicted = true;
+                if (!entry.inUse) {
+                    closePhysical(entry.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gibt ein vorbereitetes Statement für die Signatur von {@link Connection#prepareStatement} zurück,
+     * oder {@code null}, wenn diese Signatur nicht gecacht wird.
+     *
+     * @param owner Der Verbindungs-Proxy, den {@code getConnection()} des Statements liefern soll.
+     * @param method Die aufgerufene {@code prepareStatement}-Methode.
+     * @param args   Die Argumente des Aufrufs.
+     */
+    synchronized PreparedStatement prepare(Connection owner, Method method, Object[] args) throws SQLException {
+        Key key = toKey(method, args);
+        if (key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.inUse) {
+            // Gleiches SQL ist auf dieser Verbindung bereits offen: ungecacht vorbereiten
+            misses.increment();
+            return null;
+        }
+        if (entry == null) {
+            misses.increment();
+            entry = new Entry(prepareOnPhysical(key));
+            entries.put(key, entry);
+        } else {
+            hits.increment();
+        }
+        entry.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new Handler(entry, owner));
+    }
+
+    /**
+     * Schließt alle gecachten Statements. Wird aufgerufen, bevor die physische Verbindung geschlossen wird.
+     */
+    synchronized void closeAll() {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            closePhysical(it.next().statement);
+            it.remove();
+        }
+    }
+
+    private static Key toKey(Method method, Object[] args) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length == 1) {
+            return new Key((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, Statement.NO_GENERATED_KEYS);
+        }
+        if (types.length == 2 && types[1] == int.class) {
+            return new Key((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, (Integer) args[1]);
+        }
+        if (types.length == 3) {
+            return new Key((String) args[0], (Integer) args[1], (Integer) args[2], Statement.NO_GENERATED_KEYS);
+        }
+        return null;
+    }
+
+    private PreparedStatement prepareOnPhysical(Key key) throws SQLException {
+        if (key.autoGeneratedKeys() != Statement.NO_GENERATED_KEYS) {
+            return physical.prepareStatement(key.sql(), key.autoGeneratedKeys());
+        }
+        return physical.prepareStatement(key.sql(), key.resultSetType(), key.resultSetConcurrency());
+    }
+
+    private synchronized void giveBack(Entry entry) {
+        entry.inUse = false;
+        boolean reusable = !entry.evicted;
+        if (reusable) {
+            try {
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+                entry.statement.setFetchSize(0);
+                entry.statement.setMaxRows(0);
+            } catch (SQLException e) {
+                Logger.log(Logger.LogLevel.WARN, "Gecachtes Statement konnte nicht zurückgesetzt werden und wird verworfen.", e);
+                entries.values().remove(entry);
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            closePhysical(entry.statement);
+        }
+    }
+
+    private static void closePhysical(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            Logger.log(Logger.LogLevel.WARN, "Fehler beim Schließen eines gecachten Statements.", e);
+        }
+    }
+
+    /**
+     * Leitet Aufrufe an das gecachte Statement weiter; {@code close()} gibt es an den Cache zurück.
+     */
+    private final class Handler implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private final List<ResultSet> openResults = new ArrayList<>(1);
+        private boolean closed;
+
+        private Handler(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        for (ResultSet rs : openResults) {
+                            rs.close();
+                        }
+                        openResults.clear();
+                        giveBack(entry);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "CachedStatement[" + entry.statement + "]";
+                }
+                default -> {
+                    if (closed) {
+                        throw new SQLException("Statement wurde bereits geschlossen.");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(entry.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet rs) {
+                        openResults.removeIf(this::isClosedQuietly);
+                        openResults.add(rs);
+                    }
+                    return result;
+                }
+            }
+        }
+
+        private boolean isClosedQuietly(ResultSet rs) {
+            try {
+                return rs.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+    }
+}
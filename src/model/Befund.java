@@ -0,0 +1,66 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Die Klasse Befund repräsentiert einen Befund (z. B. ein PDF-Dokument) zu einem Patienten.
+ * Gespeichert werden nur der Pfad zur Datei und das Datum des Befunds.
+ */
+public class Befund {
+
+    /**
+     * Übersicht über die Befunde eines Patienten, wie sie in der Patiententabelle angezeigt wird.
+     *
+     * @param count      Anzahl der Befunde.
+     * @param latestDate Datum des neuesten Befunds oder {@code null}, wenn keiner ein Datum hat.
+     */
+    public record Summary(int count, LocalDate latestDate) {
+
+        /** Übersicht für Patienten ohne Befunde. */
+        public static final Summary NONE = new Summary(0, null);
+    }
+
+    private final int befundID;
+    private final int patientID;
+    private final String pfad;
+    private final LocalDate datum;
+
+    /**
+     * @param befundID  Die ID des Befunds.
+     * @param patientID Die ID des Patienten.
+     * @param pfad      Der Pfad zur Befunddatei.
+     * @param datum     Das Datum des Befunds, kann {@code null} sein.
+     */
+    public Befund(int befundID, int patientID, String pfad, LocalDate datum) {
+        this.befundID = befundID;
+        this.patientID = patientID;
+        this.pfad = pfad;
+        this.datum = datum;
+    }
+
+    public int getBefundID() {
+        return befundID;
+    }
+
+    public int getPatientID() {
+        return patientID;
+    }
+
+    public String getPfad() {
+        return pfad;
+    }
+
+    public LocalDate getDatum() {
+        return datum;
+    }
+
+    @Override
+    public String toString() {
+        return "Befund{" +
+                "befundID=" + befundID +
+                ", patientID=" + patientID +
+                ", pfad='" + pfad + '\'' +
+                ", datum=" + datum +
+                '}';
+    }
+}
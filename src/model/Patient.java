@@ -2,6 +2,11 @@ package model;
 
 import utils.Logger;
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Repräsentiert einen Patienten in der Anwendung.
@@ -9,6 +14,35 @@ import java.time.LocalDate;
  */
 public class Patient {
 
+    /**
+     * Die in der Tabelle {@code Patient} gespeicherten, änderbaren Felder samt Spaltennamen.
+     */
+    public enum Field {
+        VORNAME("Vorname"),
+        NACHNAME("Nachname"),
+        ANREDE("Anrede"),
+        GEBURTSDATUM("Geburtsdatum"),
+        STRASSE("Strasse"),
+        PLZ("PLZ"),
+        ORT("Ort"),
+        BUNDESLAND_ID("BundeslandID"),
+        TELEFON("Telefon"),
+        GESCHLECHT_ID("GeschlechtID"),
+        KRANKENKASSE_ID("KrankenkasseID"),
+        SONSTIGES("Sonstiges");
+
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+
+        /** @return Der Spaltenname in der Tabelle {@code Patient}. */
+        public String getColumn() {
+            return column;
+        }
+    }
+
     /** Die eindeutige ID des Patienten. */
     private int patientID;
 
@@ -57,6 +91,18 @@ public class Patient {
     /** Weitere Informationen über den Patienten. */
     private String sonstiges;
 
+    /** Versionsnummer des gelesenen Datensatzes für die optimistische Sperre. */
+    private int version;
+
+    /** Felder, die seit dem Laden (bzw. seit {@link #clearDirty()}) geändert wurden. */
+    private final EnumSet<Field> dirtyFields = EnumSet.noneOf(Field.class);
+
+    /** Zwischengespeicherter {@link #contentHash()}; {@code 0}, solange nicht berechnet oder nach einer Änderung. */
+    private long contentHash;
+
+    /** Die Befunde des Patienten; {@code null}, solange sie nicht geladen wurden (siehe {@code db.BefundDAO#attach}). */
+    private List<Befund> befunde;
+
     /**
      * Leerer Konstruktor für neue Patienten.
      */
@@ -81,9 +127,71 @@ public class Patient {
         this.geschlechtID = geschlechtID;
         this.krankenkasseID = krankenkasseID;
         this.sonstiges = sonstiges;
+        this.dirtyFields.addAll(EnumSet.allOf(Field.class));
         Logger.log(Logger.LogLevel.DEBUG, "Patient-Objekt erstellt: " + this);
     }
 
+    /**
+     * Kopierkonstruktor. Übernimmt alle Felder einschließlich Version und Änderungsmarkierungen.
+     *
+     * @param other Der zu kopierende Patient.
+     */
+    public Patient(Patient other) {
+        this.patientID = other.patientID;
+        this.vorname = other.vorname;
+        this.nachname = other.nachname;
+        this.anrede = other.anrede;
+        this.geburtsdatum = other.geburtsdatum;
+        this.strasse = other.strasse;
+        this.plz = other.plz;
+        this.ort = other.ort;
+        this.bundeslandID = other.bundeslandID;
+        this.bundeslandName = other.bundeslandName;
+        this.telefon = other.telefon;
+        this.geschlechtID = other.geschlechtID;
+        this.geschlechtName = other.geschlechtName;
+        this.krankenkasseID = other.krankenkasseID;
+        this.krankenkasseName = other.krankenkasseName;
+        this.sonstiges = other.sonstiges;
+        this.version = other.version;
+        this.dirtyFields.addAll(other.dirtyFields);
+        this.befunde = other.befunde;
+        this.contentHash = other.contentHash;
+    }
+
+    /**
+     * Erstellt einen unveränderten Patienten aus gespeicherten Werten, ohne jedes Feld einzeln zu protokollieren.
+     * Gedacht für das Laden großer Mengen, z. B. aus einem lokalen Snapshot.
+     */
+    public static Patient restore(int patientID, int version, String vorname, String nachname, String anrede,
+                                  LocalDate geburtsdatum, String strasse, String plz, String ort,
+                                  int bundeslandID, String bundeslandName, String telefon,
+                                  int geschlechtID, String geschlechtName, int krankenkasseID, String krankenkasseName,
+                                  String sonstiges) {
+        Patient patient = new Patient(patientID, version);
+        patient.vorname = vorname;
+        patient.nachname = nachname;
+        patient.anrede = anrede;
+        patient.geburtsdatum = geburtsdatum;
+        patient.strasse = strasse;
+        patient.plz = plz;
+        patient.ort = ort;
+        patient.bundeslandID = bundeslandID;
+        patient.bundeslandName = bundeslandName;
+        patient.telefon = telefon;
+        patient.geschlechtID = geschlechtID;
+        patient.geschlechtName = geschlechtName;
+        patient.krankenkasseID = krankenkasseID;
+        patient.krankenkasseName = krankenkasseName;
+        patient.sonstiges = sonstiges;
+        return patient;
+    }
+
+    private Patient(int patientID, int version) {
+        this.patientID = patientID;
+        this.version = version;
+    }
+
     // Getter und Setter mit vollständiger Dokumentation und Logging
     public int getPatientID() {
         return patientID;
@@ -93,6 +201,7 @@ public class Patient {
         if (this.patientID == 0 || this.patientID != patientID) {
             Logger.log(Logger.LogLevel.DEBUG, "PatientID geändert: " + this.patientID + " -> " + patientID);
             this.patientID = patientID;
+            contentHash = 0;
         }
     }
 
@@ -101,9 +210,11 @@ public class Patient {
     }
 
     public void setVorname(String vorname) {
-        if (this.vorname == null || !this.vorname.equals(vorname)) {
+        if (!Objects.equals(this.vorname, vorname)) {
             Logger.log(Logger.LogLevel.DEBUG, "Vorname geändert: " + this.vorname + " -> " + vorname);
             this.vorname = vorname;
+            contentHash = 0;
+            dirtyFields.add(Field.VORNAME);
         }
     }
 
@@ -112,9 +223,11 @@ public class Patient {
     }
 
     public void setNachname(String nachname) {
-        if (this.nachname == null || !this.nachname.equals(nachname)) {
+        if (!Objects.equals(this.nachname, nachname)) {
             Logger.log(Logger.LogLevel.DEBUG, "Nachname geändert: " + this.nachname + " -> " + nachname);
             this.nachname = nachname;
+            contentHash = 0;
+            dirtyFields.add(Field.NACHNAME);
         }
     }
 
@@ -123,9 +236,11 @@ public class Patient {
     }
 
     public void setAnrede(String anrede) {
-        if (this.anrede == null || !this.anrede.equals(anrede)) {
+        if (!Objects.equals(this.anrede, anrede)) {
             Logger.log(Logger.LogLevel.DEBUG, "Anrede geändert: " + this.anrede + " -> " + anrede);
             this.anrede = anrede;
+            contentHash = 0;
+            dirtyFields.add(Field.ANREDE);
         }
     }
 
@@ -134,9 +249,11 @@ public class Patient {
     }
 
     public void setGeburtsdatum(LocalDate geburtsdatum) {
-        if (this.geburtsdatum == null || !this.geburtsdatum.equals(geburtsdatum)) {
+        if (!Objects.equals(this.geburtsdatum, geburtsdatum)) {
             Logger.log(Logger.LogLevel.DEBUG, "Geburtsdatum geändert: " + this.geburtsdatum + " -> " + geburtsdatum);
             this.geburtsdatum = geburtsdatum;
+            contentHash = 0;
+            dirtyFields.add(Field.GEBURTSDATUM);
         }
     }
 
@@ -145,9 +262,11 @@ public class Patient {
     }
 
     public void setStrasse(String strasse) {
-        if (this.strasse == null || !this.strasse.equals(strasse)) {
+        if (!Objects.equals(this.strasse, strasse)) {
             Logger.log(Logger.LogLevel.DEBUG, "Straße geändert: " + this.strasse + " -> " + strasse);
             this.strasse = strasse;
+            contentHash = 0;
+            dirtyFields.add(Field.STRASSE);
         }
     }
 
@@ -156,9 +275,11 @@ public class Patient {
     }
 
     public void setPlz(String plz) {
-        if (this.plz == null || !this.plz.equals(plz)) {
+        if (!Objects.equals(this.plz, plz)) {
             Logger.log(Logger.LogLevel.DEBUG, "PLZ geändert: " + this.plz + " -> " + plz);
             this.plz = plz;
+            contentHash = 0;
+            dirtyFields.add(Field.PLZ);
         }
     }
 
@@ -167,9 +288,11 @@ public class Patient {
     }
 
     public void setOrt(String ort) {
-        if (this.ort == null || !this.ort.equals(ort)) {
+        if (!Objects.equals(this.ort, ort)) {
             Logger.log(Logger.LogLevel.DEBUG, "Ort geändert: " + this.ort + " -> " + ort);
             this.ort = ort;
+            contentHash = 0;
+            dirtyFields.add(Field.ORT);
         }
     }
 
@@ -178,9 +301,11 @@ public class Patient {
     }
 
     public void setBundeslandID(int bundeslandID) {
-        if (this.bundeslandID == 0 || this.bundeslandID != bundeslandID) {
+        if (this.bundeslandID != bundeslandID) {
             Logger.log(Logger.LogLevel.DEBUG, "BundeslandID geändert: " + this.bundeslandID + " -> " + bundeslandID);
             this.bundeslandID = bundeslandID;
+            contentHash = 0;
+            dirtyFields.add(Field.BUNDESLAND_ID);
         }
     }
 
@@ -189,9 +314,10 @@ public class Patient {
     }
 
     public void setBundeslandName(String bundeslandName) {
-        if (this.bundeslandName == null || !this.bundeslandName.equals(bundeslandName)) {
+        if (!Objects.equals(this.bundeslandName, bundeslandName)) {
             Logger.log(Logger.LogLevel.DEBUG, "BundeslandName geändert: " + this.bundeslandName + " -> " + bundeslandName);
             this.bundeslandName = bundeslandName;
+            contentHash = 0;
         }
     }
 
@@ -200,9 +326,11 @@ public class Patient {
     }
 
     public void setTelefon(String telefon) {
-        if (this.telefon == null || !this.telefon.equals(telefon)) {
+        if (!Objects.equals(this.telefon, telefon)) {
             Logger.log(Logger.LogLevel.DEBUG, "Telefon geändert: " + this.telefon + " -> " + telefon);
             this.telefon = telefon;
+            contentHash = 0;
+            dirtyFields.add(Field.TELEFON);
         }
     }
 
@@ -211,9 +339,11 @@ public class Patient {
     }
 
     public void setGeschlechtID(int geschlechtID) {
-        if (this.geschlechtID == 0 || this.geschlechtID != geschlechtID) {
+        if (this.geschlechtID != geschlechtID) {
             Logger.log(Logger.LogLevel.DEBUG, "GeschlechtID geändert: " + this.geschlechtID + " -> " + geschlechtID);
             this.geschlechtID = geschlechtID;
+            contentHash = 0;
+            dirtyFields.add(Field.GESCHLECHT_ID);
         }
     }
 
@@ -222,9 +352,10 @@ public class Patient {
     }
 
     public void setGeschlechtName(String geschlechtName) {
-        if (this.geschlechtName == null || !this.geschlechtName.equals(geschlechtName)) {
+        if (!Objects.equals(this.geschlechtName, geschlechtName)) {
             Logger.log(Logger.LogLevel.DEBUG, "GeschlechtName geändert: " + this.geschlechtName + " -> " + geschlechtName);
             this.geschlechtName = geschlechtName;
+            contentHash = 0;
         }
     }
 
@@ -233,9 +364,11 @@ public class Patient {
     }
 
     public void setKrankenkasseID(int krankenkasseID) {
-        if (this.krankenkasseID == 0 || this.krankenkasseID != krankenkasseID) {
+        if (this.krankenkasseID != krankenkasseID) {
             Logger.log(Logger.LogLevel.DEBUG, "KrankenkasseID geändert: " + this.krankenkasseID + " -> " + krankenkasseID);
             this.krankenkasseID = krankenkasseID;
+            contentHash = 0;
+            dirtyFields.add(Field.KRANKENKASSE_ID);
         }
     }
 
@@ -244,9 +377,10 @@ public class Patient {
     }
 
     public void setKrankenkasseName(String krankenkasseName) {
-        if (this.krankenkasseName == null || !this.krankenkasseName.equals(krankenkasseName)) {
+        if (!Objects.equals(this.krankenkasseName, krankenkasseName)) {
             Logger.log(Logger.LogLevel.DEBUG, "KrankenkasseName geändert: " + this.krankenkasseName + " -> " + krankenkasseName);
             this.krankenkasseName = krankenkasseName;
+            contentHash = 0;
         }
     }
 
@@ -255,10 +389,174 @@ public class Patient {
     }
 
     public void setSonstiges(String sonstiges) {
-        if (this.sonstiges == null || !this.sonstiges.equals(sonstiges)) {
+        if (!Objects.equals(this.sonstiges, sonstiges)) {
             Logger.log(Logger.LogLevel.DEBUG, "Sonstiges geändert: " + this.sonstiges + " -> " + sonstiges);
             this.sonstiges = sonstiges;
+            contentHash = 0;
+            dirtyFields.add(Field.SONSTIGES);
+        }
+    }
+
+    /**
+     * Übernimmt alle geänderten Felder eines anderen Patienten-Objekts und markiert sie hier als geändert.
+     * So lassen sich zwei aufeinanderfolgende Bearbeitungen desselben Patienten zu einem Update zusammenfassen.
+     *
+     * @param changes Das Objekt mit den zu übernehmenden Änderungen.
+     */
+    public void applyChanges(Patient changes) {
+        for (Field field : changes.dirtyFields) {
+            switch (field) {
+                case VORNAME -> setVorname(changes.vorname);
+                case NACHNAME -> setNachname(changes.nachname);
+                case ANREDE -> setAnrede(changes.anrede);
+                case GEBURTSDATUM -> setGeburtsdatum(changes.geburtsdatum);
+                case STRASSE -> setStrasse(changes.strasse);
+                case PLZ -> setPlz(changes.plz);
+                case ORT -> setOrt(changes.ort);
+                case BUNDESLAND_ID -> {
+                    setBundeslandID(changes.bundeslandID);
+                    setBundeslandName(changes.bundeslandName);
+                }
+                case TELEFON -> setTelefon(changes.telefon);
+                case GESCHLECHT_ID -> {
+                    setGeschlechtID(changes.geschlechtID);
+                    setGeschlechtName(changes.geschlechtName);
+                }
+                case KRANKENKASSE_ID -> {
+                    setKrankenkasseID(changes.krankenkasseID);
+                    setKrankenkasseName(changes.krankenkasseName);
+                }
+                case SONSTIGES -> setSonstiges(changes.sonstiges);
+            }
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+        contentHash = 0;
+    }
+
+    /**
+     * @return Die Befunde des Patienten, nach Datum absteigend, oder {@code null}, wenn sie noch nicht geladen wurden.
+     */
+    public List<Befund> getBefunde() {
+        return befunde;
+    }
+
+    /**
+     * Hängt die geladenen Befunde an. Befunde werden nicht über {@code DAO} gespeichert und gelten daher
+     * nicht als Änderung des Patienten.
+     *
+     * @param befunde Die Befunde des Patienten.
+     */
+    public void setBefunde(List<Befund> befunde) {
+        this.befunde = befunde != null ? List.copyOf(befunde) : null;
+    }
+
+    /** @return {@code true}, wenn die Befunde bereits geladen wurden. */
+    public boolean hasBefundeLoaded() {
+        return befunde != null;
+    }
+
+    /**
+     * Gibt die Felder zurück, die seit dem Laden geändert wurden.
+     *
+     * @return Eine unveränderliche Menge der geänderten Felder.
+     */
+    public Set<Field> getDirtyFields() {
+        return Collections.unmodifiableSet(EnumSet.copyOf(dirtyFields));
+    }
+
+    /** @return {@code true}, wenn mindestens ein gespeichertes Feld geändert wurde. */
+    public boolean isDirty() {
+        return !dirtyFields.isEmpty();
+    }
+
+    /**
+     * Markiert alle Felder als unverändert, z. B. nach dem Laden oder Speichern.
+     */
+    public void clearDirty() {
+        dirtyFields.clear();
+    }
+
+    /**
+     * Zwei Patienten sind gleich, wenn ID, Version und alle angezeigten Felder (einschließlich der
+     * Referenznamen) übereinstimmen. Änderungsmarkierungen und Befunde zählen nicht.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Patient other)) {
+            return false;
+        }
+        return patientID == other.patientID
+                && version == other.version
+                && bundeslandID == other.bundeslandID
+                && geschlechtID == other.geschlechtID
+                && krankenkasseID == other.krankenkasseID
+                && Objects.equals(vorname, other.vorname)
+                && Objects.equals(nachname, other.nachname)
+                && Objects.equals(anrede, other.anrede)
+                && Objects.equals(geburtsdatum, other.geburtsdatum)
+                && Objects.equals(strasse, other.strasse)
+                && Objects.equals(plz, other.plz)
+                && Objects.equals(ort, other.ort)
+                && Objects.equals(bundeslandName, other.bundeslandName)
+                && Objects.equals(telefon, other.telefon)
+                && Objects.equals(geschlechtName, other.geschlechtName)
+                && Objects.equals(krankenkasseName, other.krankenkasseName)
+                && Objects.equals(sonstiges, other.sonstiges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(contentHash());
+    }
+
+    /**
+     * Ein 64-Bit-Hash über dieselben Felder wie {@link #equals}, z. B. um einen neu geladenen Stand mit den
+     * angezeigten Zeilen zu vergleichen, ohne die alten Objekte aufzubewahren. Die Feldwerte gehen über ihren
+     * {@code hashCode()} ein, den {@link String} zwischenspeichert. Da jede gespeicherte Änderung die Version
+     * erhöht, unterscheiden sich geänderte Patienten auch dann, wenn zwei Feldwerte zufällig denselben
+     * {@code hashCode()} haben.
+     * <p>
+     * Der Wert wird bis zur nächsten Änderung über einen Setter zwischengespeichert; er kann also z. B. beim
+     * Laden im Hintergrund berechnet und später auf dem Event Dispatch Thread ohne Kosten abgefragt werden.
+     *
+     * @return Der Hash des Inhalts.
+     */
+    public long contentHash() {
+        if (contentHash != 0) {
+            return contentHash;
         }
+        long h = mix(patientID, version);
+        h = mix(h, bundeslandID);
+        h = mix(h, geschlechtID);
+        h = mix(h, krankenkasseID);
+        h = mix(h, Objects.hashCode(vorname));
+        h = mix(h, Objects.hashCode(nachname));
+        h = mix(h, Objects.hashCode(anrede));
+        h = mix(h, Objects.hashCode(geburtsdatum));
+        h = mix(h, Objects.hashCode(strasse));
+        h = mix(h, Objects.hashCode(plz));
+        h = mix(h, Objects.hashCode(ort));
+        h = mix(h, Objects.hashCode(bundeslandName));
+        h = mix(h, Objects.hashCode(telefon));
+        h = mix(h, Objects.hashCode(geschlechtName));
+        h = mix(h, Objects.hashCode(krankenkasseName));
+        h = mix(h, Objects.hashCode(sonstiges));
+        contentHash = h ^ (h >>> 31);
+        return contentHash;
+    }
+
+    private static long mix(long h, int value) {
+        return (Long.rotateLeft(h, 23) ^ value) * 0x9E3779B97F4A7C15L;
     }
 
     @Override
@@ -280,6 +578,7 @@ public class Patient {
                 ", krankenkasseID=" + krankenkasseID +
                 ", krankenkasseName='" + krankenkasseName + '\'' +
                 ", sonstiges='" + sonstiges + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package ui;
+
+import db.BefundDAO;
+import db.DocumentStore;
+import model.Befund;
+import model.Patient;
+import utils.Logger;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Modaler Dialog, der die Befunde eines Patienten auflistet und Dokumente hinzufügen, öffnen und
+ * exportieren lässt. Die Dokumente liegen im {@link DocumentStore}; Datenbank- und Dateizugriffe
+ * laufen auf einem virtuellen Thread, nicht auf dem Event Dispatch Thread.
+ */
+public class BefundDialog extends JDialog {
+
+    private final Patient patient;
+    private final BefundDAO befundDao;
+    private final DocumentStore store = DocumentStore.getInstance();
+    private final Consumer<Befund.Summary> onChanged;
+
+    private final DefaultListModel<Befund> listModel = new DefaultListModel<>();
+    private final JList<Befund> list = new JList<>(listModel);
+
+    /**
+     * @param owner     Der übergeordnete Frame.
+     * @param patient   Der Patient, dessen Befunde angezeigt werden.
+     * @param befundDao Der Zugriff auf die Befundtabelle.
+     * @param onChanged Wird nach jedem Laden der Liste mit der aktuellen Übersicht aufgerufen.
+     */
+    public BefundDialog(Frame owner, Patient patient, BefundDAO befundDao, Consumer<Befund.Summary> onChanged) {
+        super(owner, "Befunde von " + patient.getVorname() + " " + patient.getNachname(), true);
+        this.patient = patient;
+        this.befundDao = befundDao;
+        this.onChanged = onChanged;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean selected, boolean focus) {
+                Befund befund = (Befund) value;
+                String text = (befund.getDatum() != null ? befund.getDatum() + "  " : "") + DocumentStore.displayName(befund.getPfad());
+                return super.getListCellRendererComponent(l, text, index, selected, focus);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(button("Hinzufügen", this::onAdd));
+        buttonPanel.add(button("Öffnen", this::onOpen));
+        buttonPanel.add(button("Speichern unter", this::onSaveAs));
+        buttonPanel.add(button("Schließen", this::dispose));
+
+        setLayout(new BorderLayout());
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+        setSize(600, 300);
+        setLocationRelativeTo(owner);
+
+        reload();
+    }
+
+    private JButton button(String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+
+    private void reload() {
+        background(() -> befundDao.getBefunde(patient.getPatientID()), befunde -> {
+            listModel.clear();
+            listModel.addAll(befunde);
+            onChanged.accept(summaryOf(befunde));
+        }, "Befunde konnten nicht geladen werden.");
+    }
+
+    /**
+     * Speichert eine Datei in der Ablage und legt dazu einen Befund mit dem heutigen Datum an.
+     */
+    private void onAdd() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Befund hinzufügen");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path source = chooser.getSelectedFile().toPath();
+        background(() -> befundDao.addBefund(patient.getPatientID(), store.put(source), LocalDate.now()),
+                added -> reload(), "Befund konnte nicht gespeichert werden.");
+    }
+
+    /**
+     * Prüft das ausgewählte Dokument gegen seinen Hash und öffnet eine schreibgeschützte Kopie unter dem
+     * ursprünglichen Namen mit der Standardanwendung des Systems.
+     */
+    private void onOpen() {
+        Befund befund = list.getSelectedValue();
+        if (befund == null) {
+            return;
+        }
+        background(() -> {
+            if (!store.verify(befund.getPfad())) {
+                return null;
+            }
+            Desktop.getDesktop().open(store.copyForViewing(befund.getPfad()).toFile());
+            return befund;
+        }, opened -> {
+            if (opened == null) {
+                JOptionPane.showMessageDialog(this, "Das Dokument fehlt oder ist beschädigt.", "Fehler", JOptionPane.ERROR_MESSAGE);
+            }
+        }, "Dokument konnte nicht geöffnet werden.");
+    }
+
+    /**
+     * Kopiert das ausgewählte Dokument direkt von Kanal zu Kanal in eine Datei.
+     */
+    private void onSaveAs() {
+        Befund befund = list.getSelectedValue();
+        if (befund == null) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Befund speichern unter");
+        chooser.setSelectedFile(new File(DocumentStore.displayName(befund.getPfad())));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = chooser.getSelectedFile();
+        background(() -> {
+            try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                return store.transferTo(befund.getPfad(), out);
+            }
+        }, bytes -> Logger.log(Logger.LogLevel.INFO, "Befund exportiert: " + target + " (" + bytes + " Bytes)"),
+                "Dokument konnte nicht gespeichert werden.");
+    }
+
+    private static Befund.Summary summaryOf(List<Befund> befunde) {
+        // Liste ist nach Datum absteigend sortiert, Befunde ohne Datum zuletzt
+        return befunde.isEmpty() ? Befund.Summary.NONE : new Befund.Summary(befunde.size(), befunde.get(0).getDatum());
+    }
+
+    /**
+     * Führt eine Aufgabe auf einem virtuellen Thread aus und verarbeitet das Ergebnis auf dem Event Dispatch Thread.
+     */
+    private <T> void background(Callable<T> task, Consumer<T> onSuccess, String errorMessage) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Thread.ofVirtual().name("befund-io").start(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                Logger.log(Logger.LogLevel.ERROR, errorMessage, error);
+                JOptionPane.showMessageDialog(this, errorMessage, "Fehler", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+}
@@ -1,5 +1,6 @@
 package ui;
 
+import db.ReferenceData;
 import model.Patient;
 import utils.Logger;
 
@@ -95,10 +96,10 @@ public class Dialog extends JDialog {
             tfStrasse.setText(p.getStrasse());
             tfPlz.setText(p.getPlz());
             tfOrt.setText(p.getOrt());
-            tfBundeslandName.setText(String.valueOf(p.getBundeslandName()));
+            tfBundeslandName.setText(referenceName(ReferenceData.bundeslaender(), p.getBundeslandID()));
             tfTelefon.setText(p.getTelefon());
-            tfGeschlechtName.setText(String.valueOf(p.getGeschlechtName()));
-            tfKrankenkasseName.setText(String.valueOf(p.getKrankenkasseName()));
+            tfGeschlechtName.setText(referenceName(ReferenceData.geschlechter(), p.getGeschlechtID()));
+            tfKrankenkasseName.setText(referenceName(ReferenceData.krankenkassen(), p.getKrankenkasseID()));
             tfSonstiges.setText(p.getSonstiges());
         }
 
@@ -143,11 +144,16 @@ public class Dialog extends JDialog {
         copy.setStrasse(p.getStrasse());
         copy.setPlz(p.getPlz());
         copy.setOrt(p.getOrt());
+        copy.setBundeslandID(p.getBundeslandID());
         copy.setBundeslandName(p.getBundeslandName());
         copy.setTelefon(p.getTelefon());
+        copy.setGeschlechtID(p.getGeschlechtID());
         copy.setGeschlechtName(p.getGeschlechtName());
+        copy.setKrankenkasseID(p.getKrankenkasseID());
         copy.setKrankenkasseName(p.getKrankenkasseName());
         copy.setSonstiges(p.getSonstiges());
+        copy.setVersion(p.getVersion());
+        copy.clearDirty(); // nur Änderungen im Dialog sollen gespeichert werden
         return copy;
     }
 
@@ -161,7 +167,28 @@ public class Dialog extends JDialog {
             return false;
         }
 
-        return true;
+        return checkReference("Bundesland", tfBundeslandName, ReferenceData.bundeslaender())
+                && checkReference("Geschlecht", tfGeschlechtName, ReferenceData.geschlechter())
+                && checkReference("Krankenkasse", tfKrankenkasseName, ReferenceData.krankenkassen());
+    }
+
+    // Eingegebene Bezeichnung muss in der Referenztabelle vorkommen (leer ist erlaubt)
+    private boolean checkReference(String label, JTextField field, ReferenceData.Lookup lookup) {
+        String name = field.getText().trim();
+        if (name.isEmpty() || lookup.getId(name) != 0) {
+            return true;
+        }
+        Logger.log(Logger.LogLevel.WARN, "Unbekannte Bezeichnung für " + label + ": " + name);
+        JOptionPane.showMessageDialog(this, "Unbekannte Angabe für " + label + ": \"" + name + "\"\nGültige Werte: "
+                        + String.join(", ", lookup.getNames()),
+                "Ungültige Eingabe", JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+
+    // Anzeigename einer Referenz-ID aus dem Cache; unbekannte IDs bleiben leer
+    private static String referenceName(ReferenceData.Lookup lookup, int id) {
+        String name = lookup.getName(id);
+        return name != null ? name : "";
     }
 
 
@@ -171,9 +198,9 @@ public class Dialog extends JDialog {
         if (patient == null) {
             patient = new Patient();
         }
-        patient.setVorname(tfVorname.getText().trim());
-        patient.setNachname(tfNachname.getText().trim());
-        patient.setAnrede(tfAnrede.getText().trim());
+        patient.setVorname(text(tfVorname, patient.getVorname()));
+        patient.setNachname(text(tfNachname, patient.getNachname()));
+        patient.setAnrede(text(tfAnrede, patient.getAnrede()));
 
         String geburtsdatumText = tfGeburtsdatum.getText().trim();
             if (!geburtsdatumText.isEmpty()) {
@@ -187,14 +214,39 @@ public class Dialog extends JDialog {
             patient.setGeburtsdatum(null);
         }
 
-        patient.setStrasse(tfStrasse.getText().trim());
-        patient.setPlz(tfPlz.getText().trim());
-        patient.setOrt(tfOrt.getText().trim());
-        patient.setBundeslandName(tfBundeslandName.getText().trim());
-        patient.setTelefon(tfTelefon.getText().trim());
-        patient.setGeschlechtName(tfGeschlechtName.getText().trim());
-        patient.setKrankenkasseName(tfKrankenkasseName.getText().trim());
-        patient.setSonstiges(tfSonstiges.getText().trim());
+        patient.setStrasse(text(tfStrasse, patient.getStrasse()));
+        patient.setPlz(text(tfPlz, patient.getPlz()));
+        patient.setOrt(text(tfOrt, patient.getOrt()));
+        setBundesland(tfBundeslandName.getText().trim());
+        patient.setTelefon(text(tfTelefon, patient.getTelefon()));
+        setGeschlecht(tfGeschlechtName.getText().trim());
+        setKrankenkasse(tfKrankenkasseName.getText().trim());
+        patient.setSonstiges(text(tfSonstiges, patient.getSonstiges()));
+    }
+
+    // Leeres Feld lässt einen bisher leeren (NULL-)Wert unverändert, damit er nicht als Änderung gilt
+    private static String text(JTextField field, String current) {
+        String value = field.getText().trim();
+        return value.isEmpty() && current == null ? null : value;
+    }
+
+    // Bezeichnungen über den Referenzdaten-Cache in IDs übersetzen
+    private void setBundesland(String name) {
+        ReferenceData.Lookup lookup = ReferenceData.bundeslaender();
+        patient.setBundeslandID(lookup.getId(name));
+        patient.setBundeslandName(lookup.getName(patient.getBundeslandID()));
+    }
+
+    private void setGeschlecht(String name) {
+        ReferenceData.Lookup lookup = ReferenceData.geschlechter();
+        patient.setGeschlechtID(lookup.getId(name));
+        patient.setGeschlechtName(lookup.getName(patient.getGeschlechtID()));
+    }
+
+    private void setKrankenkasse(String name) {
+        ReferenceData.Lookup lookup = ReferenceData.krankenkassen();
+        patient.setKrankenkasseID(lookup.getId(name));
+        patient.setKrankenkasseName(lookup.getName(patient.getKrankenkasseID()));
     }
 
     public Patient getPatient() {
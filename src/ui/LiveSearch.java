@@ -0,0 +1,117 @@
+package ui;
+
+import utils.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Führt eine Suche während der Eingabe aus, ohne die Datenbank mit einer Abfrage pro Tastendruck zu belasten.
+ * <p>
+ * Jede Eingabe startet einen {@link Timer} neu; erst wenn {@code delayMillis} lang nichts getippt wurde, wird
+ * gesucht. Läuft dann noch eine Abfrage, wird keine zweite gestartet, sondern nur vermerkt, dass nach ihrem
+ * Ende mit der dann neuesten Eingabe gesucht werden soll; dazwischenliegende Eingaben werden nie abgefragt.
+ * Jede Eingabe erhöht eine Generationsnummer, und ein Ergebnis wird nur ausgeliefert, wenn seit seinem Start
+ * keine neue Eingabe kam ({@link #cancel()} zählt ebenfalls als neue Eingabe).
+ * <p>
+ * Alle Methoden und Rückrufe laufen auf dem Event Dispatch Thread.
+ *
+ * @param <T> Der Ergebnistyp der Suche.
+ */
+final class LiveSearch<T> {
+
+    private final Function<String, CompletableFuture<T>> query;
+    private final BiConsumer<String, T> onResult;
+    private final Consumer<Throwable> onError;
+    private final Timer timer;
+
+    /** Wird bei jeder Eingabe und bei {@link #cancel()} erhöht. */
+    private int generation;
+    private String text = "";
+    /** {@code true}, solange eine Abfrage läuft. */
+    private boolean running;
+    /** {@code true}, wenn nach der laufenden Abfrage mit der neuesten Eingabe gesucht werden soll. */
+    private boolean queued;
+
+    /**
+     * @param delayMillis Die Pause nach der letzten Eingabe, nach der gesucht wird.
+     * @param query       Startet die Abfrage für eine Eingabe.
+     * @param onResult    Erhält Eingabe und Ergebnis, wenn die Abfrage noch aktuell ist.
+     * @param onError     Erhält den Fehler einer noch aktuellen Abfrage.
+     */
+    LiveSearch(int delayMillis, Function<String, CompletableFuture<T>> query,
+               BiConsumer<String, T> onResult, Consumer<Throwable> onError) {
+        this.query = query;
+        this.onResult = onResult;
+        this.onError = onError;
+        this.timer = new Timer(delayMillis, e -> fire());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Meldet eine neue Eingabe; ältere, noch nicht ausgelieferte Ergebnisse werden damit verworfen.
+     *
+     * @param text Der aktuelle Text des Suchfelds.
+     */
+    void textChanged(String text) {
+        generation++;
+        this.text = text;
+        timer.restart();
+    }
+
+    /**
+     * Verwirft die anstehende Suche und das Ergebnis einer laufenden Abfrage, z. B. weil die Tabelle
+     * inzwischen anders gefüllt wurde.
+     */
+    void cancel() {
+        generation++;
+        timer.stop();
+        queued = false;
+    }
+
+    /**
+     * Die aktuelle Generationsnummer. Andere Ladevorgänge, die die Tabelle ersetzen, merken sie sich beim Start
+     * und verwerfen ihr Ergebnis, wenn sie sich bis zum Ende geändert hat, also inzwischen gesucht wurde.
+     *
+     * @return Die Generationsnummer.
+     */
+    int generation() {
+        return generation;
+    }
+
+    private void fire() {
+        if (running) {
+            queued = true;
+        } else {
+            start();
+        }
+    }
+
+    private void start() {
+        int started = generation;
+        String input = text;
+        running = true;
+        query.apply(input).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            running = false;
+            if (started != generation) {
+                Logger.log(Logger.LogLevel.DEBUG, "Veraltetes Suchergebnis verworfen: " + input);
+            } else if (error == null) {
+                onResult.accept(input, result);
+            } else {
+                onError.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            if (queued) {
+                queued = false;
+                // Wird gerade wieder getippt, startet der Timer die Suche nach der nächsten Pause
+                if (!timer.isRunning()) {
+                    start();
+                }
+            }
+        }));
+    }
+}
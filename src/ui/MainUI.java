@@ -1,20 +1,41 @@
 // Optimierte und dokumentierte MainUI-Klasse
 package ui;
 
+import db.AsyncDAO;
+import db.BatchResult;
+import db.BefundDAO;
 import db.DAO;
 import db.DBConnection;
-import db.Search;
+import db.OptimisticLockException;
+import db.PatientExporter;
+import db.PatientImporter;
+import db.PatientSnapshot;
+import db.PatientWriteQueue;
+import db.ReferenceData;
+import db.SearchIndex;
 import model.Patient;
 import utils.Logger;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.sql.SQLException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Die MainUI-Klasse stellt die grafische Benutzeroberfläche für die Verwaltung von Patientendaten bereit.
@@ -22,9 +43,28 @@ import java.util.Map;
  */
 public class MainUI extends JFrame {
 
+    /** Intervall, in dem die Referenzdaten (Bundesland, Geschlecht, Krankenkasse) neu geladen werden. */
+    private static final long REFERENCE_REFRESH_MINUTES = 15;
+
+    /** Pause nach dem letzten Tastendruck im Suchfeld, nach der die Datenbank abgefragt wird. */
+    private static final int SEARCH_DELAY_MILLIS = 300;
+
     private final DAO dao;
+
+    /** Führt alle Datenbankaufrufe abseits des Event Dispatch Threads aus. */
+    private final AsyncDAO asyncDao;
+    private final PatientWriteQueue writeQueue;
+    private final BefundDAO befundDao = new BefundDAO();
     private JPanel mainPanel;
     private JTable table;
+    /** Filtert die geladenen Zeilen beim Tippen, siehe {@link PatientRowSorter}. */
+    private final JTextField filterField = new JTextField(30);
+    /** Sucht beim Tippen in der Datenbank, siehe {@link #liveSearchCriteria}. */
+    private final JTextField searchField = new JTextField(20);
+    private LiveSearch<List<Patient>> liveSearch;
+
+    /** Die Kriterien der angezeigten Suche; leer, solange alle Patienten angezeigt werden. */
+    private Map<String, String> currentCriteria = Map.of();
 
     /**
      * Initialisiert die Hauptbenutzeroberfläche zur Patientenverwaltung.
@@ -34,6 +74,8 @@ public class MainUI extends JFrame {
     public MainUI(DAO dao) {
         super("Patientenverwaltung");
         this.dao = dao;
+        this.asyncDao = new AsyncDAO(dao);
+        this.writeQueue = new PatientWriteQueue(asyncDao);
 
         Logger.log(Logger.LogLevel.INFO, "MainUI wird initialisiert.");
 
@@ -42,6 +84,11 @@ public class MainUI extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 Logger.log(Logger.LogLevel.INFO, "Programm wird geschlossen.");
+                if (!writeQueue.awaitIdle(5, TimeUnit.SECONDS)) {
+                    Logger.log(Logger.LogLevel.WARN, "Nicht alle Schreibvorgänge wurden vor dem Beenden abgeschlossen.");
+                }
+                asyncDao.shutdown();
+                dao.getCache().logStatistics();
                 DBConnection.closeConnection();
                 System.exit(0);
             }
@@ -53,7 +100,13 @@ public class MainUI extends JFrame {
         setSize(900, 400);
         setLocationRelativeTo(null);
 
-        loadAllPatientsAsync();
+        loadInitialPatientsAsync();
+        ReferenceData.startAutoRefresh(REFERENCE_REFRESH_MINUTES, TimeUnit.MINUTES);
+        if (SearchIndex.ENABLED) {
+            Thread indexBuilder = new Thread(() -> dao.getSearchIndex().build(dao), "search-index-build");
+            indexBuilder.setDaemon(true);
+            indexBuilder.start();
+        }
     }
 
     /**
@@ -63,9 +116,119 @@ public class MainUI extends JFrame {
         Logger.log(Logger.LogLevel.INFO, "UI-Komponenten werden initialisiert.");
 
         mainPanel = new JPanel(new BorderLayout());
-        table = new JTable(new TableModel());
+        table = new JTable();
+        setTableModel(new TableModel());
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // Seitenweise angezeigte Tabellen werden in der Datenbank sortiert
+                if (tableModel() instanceof PagedTableModel paged) {
+                    paged.sortBy(table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint())));
+                }
+            }
+        });
         mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
-        mainPanel.add(createToolBar(), BorderLayout.NORTH);
+
+        JPanel north = new JPanel(new BorderLayout());
+        north.add(createToolBar(), BorderLayout.NORTH);
+        north.add(createSearchBar(), BorderLayout.SOUTH);
+        mainPanel.add(north, BorderLayout.NORTH);
+    }
+
+    /**
+     * Erstellt die Leiste über der Tabelle mit dem Suchfeld und dem Filter. Die Suche fragt nach einer kurzen
+     * Tipppause die Datenbank ab ({@link LiveSearch}); gefiltert wird dagegen bei jeder Eingabe im Speicher,
+     * über die bereits geladenen Zeilen.
+     *
+     * @return Die Leiste.
+     */
+    private JPanel createSearchBar() {
+        liveSearch = new LiveSearch<>(SEARCH_DELAY_MILLIS,
+                text -> asyncDao.searchPatients(liveSearchCriteria(text)).thenApply(MainUI::withContentHashes),
+                this::showLiveSearchResult,
+                error -> Logger.log(Logger.LogLevel.ERROR, "Fehler bei der Suche", error));
+        searchField.setToolTipText("Nachname, \"Nachname, Vorname\", Patienten-ID oder Geburtsdatum");
+
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bar.add(new JLabel("Suche:"));
+        bar.add(searchField);
+        bar.add(new JLabel("Filter:"));
+        bar.add(filterField);
+        onTextChange(searchField, this::onSearchTextChanged);
+        onTextChange(filterField, this::applyFilter);
+        return bar;
+    }
+
+    private static void onTextChange(JTextField field, Runnable action) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Startet die Suche für die neue Eingabe neu; ein geleertes Suchfeld zeigt wieder alle Patienten.
+     */
+    private void onSearchTextChanged() {
+        String text = searchField.getText();
+        if (text.isBlank()) {
+            liveSearch.cancel();
+            if (!currentCriteria.isEmpty()) {
+                loadAllPatientsAsync();
+            }
+        } else {
+            liveSearch.textChanged(text);
+        }
+    }
+
+    /**
+     * Zeigt das Ergebnis der Suche aus dem Suchfeld an; ältere Ergebnisse hat {@link LiveSearch} bereits verworfen.
+     */
+    private void showLiveSearchResult(String text, List<Patient> results) {
+        showList().setPatients(results);
+        currentCriteria = liveSearchCriteria(text);
+        loadBefundSummariesAsync(results);
+    }
+
+    /**
+     * Übersetzt die Eingabe im Suchfeld in Suchkriterien für {@link db.Search}: nur Ziffern sind eine
+     * Patienten-ID, Ziffern mit Punkt oder Bindestrich ein Geburtsdatum, sonst wird nach dem Anfang des
+     * Nachnamens gesucht, bei "Nachname, Vorname" zusätzlich nach dem Anfang des Vornamens.
+     *
+     * @param text Die Eingabe.
+     * @return Die Suchkriterien.
+     */
+    private static Map<String, String> liveSearchCriteria(String text) {
+        String input = text.trim();
+        if (input.matches("\\d+")) {
+            return Map.of("PatientID", input);
+        }
+        if (input.matches("[\\d.\\-]+")) {
+            return Map.of("Geburtsdatum", input);
+        }
+        int comma = input.indexOf(',');
+        if (comma < 0) {
+            return Map.of("Nachname", input);
+        }
+        return Map.of("Nachname", input.substring(0, comma).trim(), "Vorname", input.substring(comma + 1).trim());
+    }
+
+    private void applyFilter() {
+        if (table.getRowSorter() instanceof PatientRowSorter sorter) {
+            sorter.setFilter(filterField.getText());
+        }
     }
 
     /**
@@ -79,8 +242,11 @@ public class MainUI extends JFrame {
         toolBar.add(createButton("Hinzufügen", this::onAddPatient));
         toolBar.add(createButton("Bearbeiten", this::onEditPatient));
         toolBar.add(createButton("Löschen", this::onDeletePatient));
-        toolBar.add(createButton("Aktualisieren", this::loadAllPatientsAsync));
+        toolBar.add(createButton("Aktualisieren", this::reloadAllPatients));
         toolBar.add(createButton("Suchen", this::onSearchPatient));
+        toolBar.add(createButton("Befunde", this::onShowBefunde));
+        toolBar.add(createButton("Importieren", this::onImportPatients));
+        toolBar.add(createButton("Exportieren", this::onExportPatients));
 
         return toolBar;
     }
@@ -173,9 +339,12 @@ public class MainUI extends JFrame {
             criteria.put("KrankenkasseName", tfKrankenkasseName.getText());
             criteria.put("Sonstiges", tfSonstiges.getText());
 
-            try {
-                List<Patient> results = Search.searchPatients(criteria);
-                ((TableModel) table.getModel()).setPatients(results);
+            btnSearch.setEnabled(false);
+            onEdt(asyncDao.searchPatients(criteria).thenApply(MainUI::withContentHashes), results -> {
+                liveSearch.cancel();
+                showList().setPatients(results);
+                currentCriteria = Map.copyOf(criteria);
+                loadBefundSummariesAsync(results);
 
                 String criteriaSummary = criteria.entrySet().stream()
                         .filter(entry -> !entry.getValue().isEmpty())
@@ -185,10 +354,11 @@ public class MainUI extends JFrame {
 
                 JOptionPane.showMessageDialog(this, "Es wurde nach folgenden Kriterien gesucht:\n" + criteriaSummary);
                 searchDialog.dispose();
-            } catch (SQLException ex) {
-                Logger.log(Logger.LogLevel.ERROR, "Fehler bei der Suche", ex);
-                JOptionPane.showMessageDialog(this, "Fehler bei der Suche. Bitte versuchen Sie es erneut.", "Fehler", JOptionPane.ERROR_MESSAGE);
-            }
+            }, error -> {
+                btnSearch.setEnabled(true);
+                Logger.log(Logger.LogLevel.ERROR, "Fehler bei der Suche", error);
+                JOptionPane.showMessageDialog(searchDialog, "Fehler bei der Suche. Bitte versuchen Sie es erneut.", "Fehler", JOptionPane.ERROR_MESSAGE);
+            });
         });
 
         // Schließen-Button
@@ -211,16 +381,31 @@ public class MainUI extends JFrame {
 
         Patient newPatient = dialog.getPatient();
         if (newPatient != null) {
-            try {
-                dao.addPatient(newPatient);
-                Logger.log(Logger.LogLevel.INFO, "Patient hinzugefügt: " + newPatient);
-                loadAllPatientsAsync();
-            } catch (Exception e) {
-                handleError("Fehler beim Hinzufügen des Patienten.", e);
-            }
+            onEdt(writeQueue.add(newPatient), saved -> {
+                Logger.log(Logger.LogLevel.INFO, "Patient hinzugefügt: " + saved);
+                tableModel().addPatient(saved);
+            }, "Fehler beim Hinzufügen des Patienten.");
         }
     }
 
+    /**
+     * Öffnet die Befunde des ausgewählten Patienten.
+     */
+    private void onShowBefunde() {
+        int row = table.getSelectedRow();
+        if (row < 0) {
+            showMessage("Bitte wählen Sie einen Patienten aus.", "Warnung", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Patient selected = tableModel().getPatientAt(table.convertRowIndexToModel(row));
+        if (selected == null) {
+            showMessage("Die ausgewählte Zeile wird noch geladen.", "Warnung", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        new BefundDialog(this, selected, befundDao,
+                summary -> tableModel().updateBefundSummary(selected.getPatientID(), summary)).setVisible(true);
+    }
+
     /**
      * Öffnet den Dialog zum Bearbeiten eines ausgewählten Patienten.
      */
@@ -231,68 +416,416 @@ public class MainUI extends JFrame {
             return;
         }
 
-        Patient selected = ((TableModel) table.getModel()).getPatientAt(row);
+        // Aktuellen Stand holen (meist aus dem Patienten-Cache), damit nicht auf einer veralteten Version bearbeitet wird
+        Patient selected = tableModel().getPatientAt(table.convertRowIndexToModel(row));
+        if (selected == null) {
+            showMessage("Die ausgewählte Zeile wird noch geladen.", "Warnung", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        onEdt(asyncDao.getPatientById(selected.getPatientID()), current -> {
+            if (current == null) {
+                tableModel().removePatient(selected.getPatientID());
+                showMessage("Der Patient wurde inzwischen gelöscht.", "Warnung", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            tableModel().updatePatient(current);
+            editPatient(current);
+        }, "Fehler beim Laden des Patienten.");
+    }
+
+    /**
+     * Zeigt den Bearbeitungsdialog für einen Patienten und reiht die Änderungen in die Schreibwarteschlange ein.
+     *
+     * @param selected Der zu bearbeitende Patient.
+     */
+    private void editPatient(Patient selected) {
         Dialog dialog = new Dialog(this, "Patient bearbeiten", selected);
         dialog.setVisible(true);
 
         Patient updatedPatient = dialog.getPatient();
         if (updatedPatient != null) {
-            try {
-                dao.updatePatient(updatedPatient);
-                Logger.log(Logger.LogLevel.INFO, "Patient aktualisiert: " + updatedPatient);
-                loadAllPatientsAsync();
-            } catch (Exception e) {
-                handleError("Fehler beim Aktualisieren des Patienten.", e);
-            }
+            onEdt(writeQueue.update(updatedPatient), saved -> {
+                if (saved == null) {
+                    Logger.log(Logger.LogLevel.INFO, "Update verworfen, Patient wurde gelöscht: ID=" + updatedPatient.getPatientID());
+                    return;
+                }
+                Logger.log(Logger.LogLevel.INFO, "Patient aktualisiert: " + saved);
+                tableModel().updatePatient(saved);
+            }, error -> {
+                if (error instanceof OptimisticLockException) {
+                    Logger.log(Logger.LogLevel.WARN, "Versionskonflikt beim Bearbeiten.", error);
+                    showMessage("Der Patient wurde inzwischen von jemand anderem geändert oder gelöscht.\n"
+                            + "Die Zeile wird neu geladen, bitte bearbeiten Sie ihn erneut.", "Konflikt", JOptionPane.WARNING_MESSAGE);
+                    reloadPatientAsync(updatedPatient.getPatientID());
+                } else {
+                    handleError("Fehler beim Aktualisieren des Patienten.", error);
+                }
+            });
         }
     }
 
     /**
-     * Löscht den ausgewählten Patienten nach Bestätigung.
+     * Löscht die ausgewählten Patienten nach Bestätigung. Mehrere Zeilen werden in einem Stapel gelöscht.
      */
     private void onDeletePatient() {
-        int row = table.getSelectedRow();
-        if (row < 0) {
+        int[] rows = table.getSelectedRows();
+        if (rows.length == 0) {
             showMessage("Bitte wählen Sie einen Patienten zum Löschen aus.", "Warnung", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        int confirm = JOptionPane.showConfirmDialog(this, "Sind Sie sicher, dass Sie diesen Patienten löschen möchten?", "Bestätigung", JOptionPane.YES_NO_OPTION);
+        String question = rows.length == 1
+                ? "Sind Sie sicher, dass Sie diesen Patienten löschen möchten?"
+                : "Sind Sie sicher, dass Sie diese " + rows.length + " Patienten löschen möchten?";
+        int confirm = JOptionPane.showConfirmDialog(this, question, "Bestätigung", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            Patient selected = ((TableModel) table.getModel()).getPatientAt(row);
+            PatientTableModel model = tableModel();
+            List<Integer> ids = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                int id = model.getPatientIdAt(table.convertRowIndexToModel(row));
+                if (id != 0) {
+                    ids.add(id);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            onEdt(writeQueue.deleteAll(ids), (BatchResult result) -> {
+                Logger.log(Logger.LogLevel.INFO, "Patienten gelöscht: " + result);
+                List<Integer> deleted = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    if (result.isSuccess(i)) {
+                        deleted.add(ids.get(i));
+                    }
+                }
+                model.removePatients(deleted);
+                if (result.getFailureCount() > 0) {
+                    showMessage(result.getFailureCount() + " von " + result.size() + " Patienten konnten nicht gelöscht werden.",
+                            "Warnung", JOptionPane.WARNING_MESSAGE);
+                }
+            }, "Fehler beim Löschen des Patienten.");
+        }
+    }
+
+    /**
+     * Importiert Patienten aus einem SQL-Dump oder einer CSV-Datei. Der Import läuft im Hintergrund mit
+     * Fortschrittsanzeige und kann abgebrochen werden; danach wird die Tabelle neu geladen.
+     */
+    private void onImportPatients() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Patienten importieren");
+        chooser.setFileFilter(new FileNameExtensionFilter("SQL-Dump oder CSV (*.sql, *.csv, *.gz)", "sql", "csv", "txt", "gz"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        PatientImporter.Format format;
+        try {
+            format = PatientImporter.Format.of(file);
+        } catch (IllegalArgumentException e) {
+            showMessage(e.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        PatientImporter importer = new PatientImporter(dao);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importiere " + file.getFileName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        CompletableFuture<PatientImporter.Result> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("patient-import").start(() -> {
             try {
-                dao.deletePatient(selected.getPatientID());
-                Logger.log(Logger.LogLevel.INFO, "Patient gelöscht: ID=" + selected.getPatientID());
-                loadAllPatientsAsync();
+                result.complete(importer.importFile(file, format, progress -> SwingUtilities.invokeLater(() -> {
+                    if (monitor.isCanceled()) {
+                        importer.cancel();
+                        return;
+                    }
+                    monitor.setProgress(progress.percent());
+                    monitor.setNote(progress.rowsImported() + " Patienten, " + Math.round(progress.rowsPerSecond()) + " Zeilen/s");
+                })));
             } catch (Exception e) {
-                handleError("Fehler beim Löschen des Patienten.", e);
+                result.completeExceptionally(e);
             }
+        });
+        onEdt(result, imported -> {
+            monitor.close();
+            showMessage("Import abgeschlossen: " + imported, "Import", JOptionPane.INFORMATION_MESSAGE);
+            reloadAllPatients();
+        }, error -> {
+            monitor.close();
+            handleError("Fehler beim Import der Patienten.", error);
+            reloadAllPatients();
+        });
+    }
+
+    /**
+     * Exportiert die angezeigten Patienten (alle oder das Ergebnis der aktuellen Suche) als CSV oder JSON Lines.
+     * Gelesen wird direkt aus der Datenbank, nicht aus der Tabelle; die Zeilenzahl der Tabelle dient nur
+     * als Schätzung für die Fortschrittsanzeige.
+     */
+    private void onExportPatients() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(currentCriteria.isEmpty() ? "Alle Patienten exportieren" : "Suchergebnis exportieren");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV oder JSON Lines (*.csv, *.jsonl, *.gz)", "csv", "jsonl", "ndjson", "gz"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            PatientExporter.Format.of(file);
+        } catch (IllegalArgumentException e) {
+            file = file.resolveSibling(file.getFileName() + ".csv");
+        }
+        if (Files.exists(file) && JOptionPane.showConfirmDialog(this, file.getFileName() + " überschreiben?",
+                "Bestätigung", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        Path target = file;
+        Map<String, String> criteria = currentCriteria;
+        PatientExporter exporter = new PatientExporter(dao);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exportiere nach " + target.getFileName(), "", 0,
+                Math.max(1, tableModel().getRowCount()));
+        monitor.setMillisToDecideToPopup(200);
+        CompletableFuture<PatientExporter.Result> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("patient-export").start(() -> {
+            try {
+                result.complete(exporter.exportFile(target, criteria, progress -> SwingUtilities.invokeLater(() -> {
+                    if (monitor.isCanceled()) {
+                        exporter.cancel();
+                        return;
+                    }
+                    monitor.setProgress((int) Math.min(progress.rowsWritten(), monitor.getMaximum() - 1));
+                    monitor.setNote(progress.rowsWritten() + " Patienten, " + Math.round(progress.rowsPerSecond()) + " Zeilen/s");
+                })));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        onEdt(result, exported -> {
+            monitor.close();
+            if (!exported.cancelled()) {
+                showMessage("Export abgeschlossen: " + exported, "Export", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }, error -> {
+            monitor.close();
+            handleError("Fehler beim Export der Patienten.", error);
+        });
+    }
+
+    /**
+     * Leert das Suchfeld und zeigt wieder alle Patienten an. Wird gerade ein Suchergebnis angezeigt, lädt
+     * bereits das Leeren des Suchfelds neu ({@link #onSearchTextChanged()}).
+     */
+    private void reloadAllPatients() {
+        boolean reloading = !searchField.getText().isEmpty() && !currentCriteria.isEmpty();
+        searchField.setText("");
+        if (!reloading) {
+            loadAllPatientsAsync();
         }
     }
 
     /**
      * Lädt alle Patienten asynchron aus der Datenbank und aktualisiert die Tabelle.
+     * Wird nur beim Start und über "Aktualisieren" aufgerufen; Schreibvorgänge führen die Tabelle zeilenweise nach.
+     * Wurde bis zum Ende des Ladens gesucht oder steht etwas im Suchfeld, wird das Ergebnis verworfen, damit es
+     * das neuere Suchergebnis nicht überschreibt.
      */
     private void loadAllPatientsAsync() {
         Logger.log(Logger.LogLevel.INFO, "Lade alle Patienten.");
-        SwingWorker<List<Patient>, Void> worker = new SwingWorker<>() {
-            @Override
-            protected List<Patient> doInBackground() {
-                return dao.getAllPatients();
+        liveSearch.cancel();
+        int started = liveSearch.generation();
+        CompletableFuture<List<Patient>> patients = asyncDao.submit(() -> {
+            ReferenceData.preload();
+            // Sehr große Bestände nicht vollständig laden, sondern seitenweise anzeigen
+            return dao.countPatients() > PagedTableModel.THRESHOLD ? null : withContentHashes(dao.getAllPatients());
+        });
+        onEdt(patients, loaded -> {
+            if (liveSearch.generation() != started || !searchField.getText().isBlank()) {
+                Logger.log(Logger.LogLevel.DEBUG, "Veraltetes Laden aller Patienten verworfen.");
+                return;
             }
+            currentCriteria = Map.of();
+            if (loaded == null) {
+                setTableModel(new PagedTableModel(asyncDao, befundDao));
+                return;
+            }
+            showList().setPatients(loaded);
+            loadBefundSummariesAsync(loaded);
+            Logger.log(Logger.LogLevel.INFO, "Patienten geladen: " + loaded.size());
+            writeSnapshotAsync(loaded);
+        }, "Fehler beim Laden der Patienten.");
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    List<Patient> patients = get();
-                    ((TableModel) table.getModel()).setPatients(patients);
-                    Logger.log(Logger.LogLevel.INFO, "Patienten geladen: " + patients.size());
-                } catch (Exception e) {
-                    handleError("Fehler beim Laden der Patienten.", e);
+    /**
+     * Füllt die Tabelle beim Start. Liegt ein lokaler {@link PatientSnapshot} vor, wird er sofort angezeigt
+     * und anschließend im Hintergrund mit der Datenbank abgeglichen; sonst werden alle Patienten geladen.
+     */
+    private void loadInitialPatientsAsync() {
+        if (!PatientSnapshot.ENABLED) {
+            loadAllPatientsAsync();
+            return;
+        }
+        onEdt(asyncDao.submit(() -> withContentHashes(PatientSnapshot.read(PatientSnapshot.file()))), snapshot -> {
+            if (snapshot == null) {
+                loadAllPatientsAsync();
+                return;
+            }
+            TableModel shown = showList();
+            shown.setPatients(snapshot);
+            int started = liveSearch.generation();
+            Logger.log(Logger.LogLevel.INFO, "Patienten aus Snapshot angezeigt: " + snapshot.size());
+            CompletableFuture<PatientSnapshot.Delta> delta = asyncDao.submit(() -> {
+                ReferenceData.refresh();
+                return PatientSnapshot.reconcile(dao, snapshot);
+            });
+            onEdt(delta, result -> {
+                if (!result.isEmpty()) {
+                    writeSnapshotAsync(result.patients());
                 }
+                // Inzwischen gesucht oder neu geladen: die Tabelle zeigt nicht mehr den Snapshot
+                if (tableModel() != shown || liveSearch.generation() != started || !currentCriteria.isEmpty()) {
+                    Logger.log(Logger.LogLevel.DEBUG, "Abgleich mit der Datenbank nicht mehr angezeigt.");
+                    return;
+                }
+                result.removed().forEach(shown::removePatient);
+                result.changed().forEach(shown::addPatientIfNewer);
+                loadBefundSummariesAsync(result.patients());
+            }, "Fehler beim Abgleich der Patienten mit der Datenbank.");
+        }, error -> {
+            Logger.log(Logger.LogLevel.WARN, "Snapshot konnte nicht gelesen werden.", error);
+            loadAllPatientsAsync();
+        });
+    }
+
+    /**
+     * Lädt Anzahl und Datum des letzten Befunds für die angezeigten Patienten in einer Abfrage
+     * (bei einem Suchergebnis in wenigen IN-Abfragen) und zeigt sie in der Tabelle an.
+     *
+     * @param shown Die angezeigten Patienten.
+     */
+    private void loadBefundSummariesAsync(List<Patient> shown) {
+        boolean all = currentCriteria.isEmpty();
+        List<Integer> ids = all ? List.of() : shown.stream().map(Patient::getPatientID).toList();
+        onEdt(asyncDao.submit(() -> all ? befundDao.getAllSummaries() : befundDao.getSummaries(ids)),
+                summaries -> {
+                    if (tableModel() instanceof TableModel list) {
+                        list.setBefundSummaries(summaries);
+                    }
+                },
+                error -> Logger.log(Logger.LogLevel.WARN, "Befundübersicht konnte nicht geladen werden.", error));
+    }
+
+    /**
+     * Schreibt den vollständigen Patientenstand im Hintergrund als neuen {@link PatientSnapshot}.
+     *
+     * @param patients Alle Patienten.
+     */
+    private void writeSnapshotAsync(List<Patient> patients) {
+        if (!PatientSnapshot.ENABLED) {
+            return;
+        }
+        List<Patient> copy = List.copyOf(patients);
+        Thread.ofVirtual().name("snapshot-write").start(() -> {
+            try {
+                PatientSnapshot.write(PatientSnapshot.file(), copy);
+            } catch (IOException e) {
+                Logger.log(Logger.LogLevel.WARN, "Snapshot konnte nicht geschrieben werden.", e);
+            }
+        });
+    }
+
+    /**
+     * Liest einen einzelnen Patienten neu und aktualisiert oder entfernt seine Zeile.
+     *
+     * @param id Die ID des Patienten.
+     */
+    private void reloadPatientAsync(int id) {
+        onEdt(asyncDao.getPatientById(id), patient -> {
+            if (patient != null) {
+                tableModel().updatePatient(patient);
+            } else {
+                tableModel().removePatient(id);
+            }
+        }, "Fehler beim Laden des Patienten.");
+    }
+
+    /**
+     * Berechnet {@link Patient#contentHash()} noch auf dem ladenden Thread, damit {@link TableModel#setPatients}
+     * auf dem Event Dispatch Thread nur zwischengespeicherte Werte vergleicht.
+     *
+     * @param patients Die geladenen Patienten oder {@code null}.
+     * @return Dieselbe Liste.
+     */
+    private static List<Patient> withContentHashes(List<Patient> patients) {
+        if (patients != null) {
+            patients.forEach(Patient::contentHash);
+        }
+        return patients;
+    }
+
+    private PatientTableModel tableModel() {
+        return (PatientTableModel) table.getModel();
+    }
+
+    /**
+     * Zeigt ein Modell in der Tabelle an. Ein {@link TableModel} erhält einen {@link PatientRowSorter}, der
+     * im Speicher sortiert und filtert; ein {@link PagedTableModel} sortiert in der Datenbank und kann nicht
+     * gefiltert werden.
+     *
+     * @param model Das anzuzeigende Modell.
+     */
+    private void setTableModel(PatientTableModel model) {
+        // Sorter vorher entfernen, sonst sortiert er beim Modellwechsel noch einmal das alte Modell
+        table.setRowSorter(null);
+        table.setModel(model);
+        boolean inMemory = model instanceof TableModel;
+        if (inMemory) {
+            PatientRowSorter sorter = new PatientRowSorter((TableModel) model);
+            sorter.setFilter(filterField.getText());
+            table.setRowSorter(sorter);
+        }
+        filterField.setEnabled(inMemory);
+        filterField.setToolTipText(inMemory ? "Filtert die angezeigten Patienten, z. B. \"müller berlin\""
+                : "Bei sehr vielen Patienten nicht verfügbar, bitte die Suche verwenden");
+    }
+
+    /**
+     * Stellt sicher, dass die Tabelle ein {@link TableModel} anzeigt, das alle Zeilen im Speicher hält.
+     *
+     * @return Das angezeigte Modell.
+     */
+    private TableModel showList() {
+        if (!(table.getModel() instanceof TableModel)) {
+            setTableModel(new TableModel());
+        }
+        return (TableModel) table.getModel();
+    }
+
+    /**
+     * Verarbeitet das Ergebnis eines asynchronen Datenbankaufrufs auf dem Event Dispatch Thread.
+     *
+     * @param future       Der laufende Aufruf.
+     * @param onSuccess    Wird mit dem Ergebnis aufgerufen.
+     * @param errorMessage Die Fehlermeldung, die bei einem Fehler angezeigt wird.
+     */
+    private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, String errorMessage) {
+        onEdt(future, onSuccess, error -> handleError(errorMessage, error));
+    }
+
+    /**
+     * Verarbeitet Ergebnis oder Fehler eines asynchronen Datenbankaufrufs auf dem Event Dispatch Thread.
+     *
+     * @param future    Der laufende Aufruf.
+     * @param onSuccess Wird mit dem Ergebnis aufgerufen.
+     * @param onError   Wird mit der eigentlichen Fehlerursache aufgerufen.
+     */
+    private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
             }
-        };
-        worker.execute();
+        }));
     }
 
     /**
@@ -301,7 +834,7 @@ public class MainUI extends JFrame {
      * @param message Die anzuzeigende Fehlermeldung.
      * @param e       Die zu protokollierende Ausnahme.
      */
-    private void handleError(String message, Exception e) {
+    private void handleError(String message, Throwable e) {
         Logger.log(Logger.LogLevel.ERROR, message, e);
         showMessage(message, "Fehler", JOptionPane.ERROR_MESSAGE);
     }
@@ -0,0 +1,343 @@
+package ui;
+
+import db.AsyncDAO;
+import db.BefundDAO;
+import db.DAO;
+import db.PatientSort;
+import model.Befund;
+import model.Patient;
+import utils.Logger;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Tabellenmodell für sehr große Patientenbestände, das nur die sichtbaren Zeilen im Speicher hält.
+ * <p>
+ * Das Modell kennt die Gesamtzahl der Patienten und lädt Seiten zu {@value #PAGE_SIZE} Zeilen erst, wenn die
+ * Tabelle sie anzeigt; bis dahin bleiben die Zellen leer. Nachbarseiten werden vorab geladen, höchstens
+ * {@value #MAX_RESIDENT_PAGES} Seiten bleiben im Speicher (die am längsten nicht angezeigten fallen heraus).
+ * <p>
+ * Seiten werden per Keyset gelesen: hinter der letzten Zeile der vorherigen oder vor der ersten Zeile der
+ * nächsten Seite. Nur bei einem Sprung, z. B. durch Ziehen der Bildlaufleiste, wird über {@code OFFSET} gelesen.
+ * Ein Klick auf einen Spaltenkopf ({@link #sortBy}) sortiert in der Datenbank nach der Spalte und der ID.
+ * <p>
+ * Wird nur auf dem Event Dispatch Thread benutzt; Datenbankzugriffe laufen über {@link AsyncDAO}.
+ */
+public class PagedTableModel extends PatientTableModel {
+
+    /** Ab so vielen Patienten zeigt {@link MainUI} die Gesamtliste seitenweise an ({@code -Dtable.pageThreshold}). */
+    public static final int THRESHOLD = Integer.getInteger("table.pageThreshold", 100_000);
+
+    /** Anzahl der Zeilen pro Seite. */
+    static final int PAGE_SIZE = 200;
+
+    /** Maximale Anzahl gleichzeitig gehaltener Seiten. */
+    static final int MAX_RESIDENT_PAGES = 12;
+
+    /** Tabellenspalten, nach denen in der Datenbank sortiert werden kann; {@code null} für nicht sortierbare Spalten. */
+    private static final PatientSort.Column[] SORT_COLUMNS = {
+            PatientSort.Column.ID, PatientSort.Column.VORNAME, PatientSort.Column.NACHNAME, null,
+            PatientSort.Column.GEBURTSDATUM, null, PatientSort.Column.PLZ, PatientSort.Column.ORT
+    };
+
+    /**
+     * Eine geladene Seite.
+     *
+     * @param rows      Die Zeilen in Sortierreihenfolge.
+     * @param summaries Befundübersicht nach Patienten-ID.
+     */
+    private record Page(PatientColumns rows, Map<Integer, Befund.Summary> summaries) {
+
+        int find(int id) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.id(i) == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final AsyncDAO asyncDao;
+    private final BefundDAO befundDao;
+
+    private PatientSort sort = PatientSort.BY_ID;
+    private int rowCount;
+
+    /** Wird bei jedem Neuladen erhöht; Ergebnisse älterer Ladevorgänge werden verworfen. */
+    private int generation;
+
+    /** Geladene Seiten nach Seitennummer in Zugriffsreihenfolge (LRU). */
+    private final LinkedHashMap<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_RESIDENT_PAGES;
+        }
+    };
+
+    /** Erste und letzte Zeile jeder je geladenen Seite; Einstiegspunkte für die Nachbarseiten. */
+    private final Map<Integer, PatientSort.Key> firstKeys = new HashMap<>();
+    private final Map<Integer, PatientSort.Key> lastKeys = new HashMap<>();
+
+    private final Set<Integer> loading = new HashSet<>();
+    private int lastPage = -1;
+
+    /**
+     * Erstellt das Modell und beginnt mit dem Zählen der Patienten.
+     *
+     * @param asyncDao  Für alle Datenbankzugriffe.
+     * @param befundDao Für die Befundübersicht der geladenen Seiten.
+     */
+    public PagedTableModel(AsyncDAO asyncDao, BefundDAO befundDao) {
+        this.asyncDao = asyncDao;
+        this.befundDao = befundDao;
+        refresh();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gibt den Wert einer Zelle zurück; ist ihre Seite noch nicht geladen, wird sie angefordert.
+     *
+     * @return Der Wert oder {@code null}, solange die Seite lädt.
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int pageIndex = rowIndex / PAGE_SIZE;
+        if (pageIndex != lastPage) {
+            lastPage = pageIndex;
+            request(pageIndex - 1);
+            request(pageIndex + 1);
+        }
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            request(pageIndex);
+            return null;
+        }
+        int row = rowIndex % PAGE_SIZE;
+        if (row >= page.rows().size()) {
+            return null;
+        }
+        return valueAt(page.rows(), row, columnIndex, page.summaries().getOrDefault(page.rows().id(row), Befund.Summary.NONE));
+    }
+
+    /**
+     * Sortiert in der Datenbank nach einer Tabellenspalte; ein erneuter Klick auf dieselbe Spalte kehrt die Richtung um.
+     *
+     * @param column Der Spaltenindex im Modell.
+     * @return {@code false}, wenn nach dieser Spalte nicht sortiert werden kann.
+     */
+    public boolean sortBy(int column) {
+        PatientSort.Column sortColumn = column >= 0 && column < SORT_COLUMNS.length ? SORT_COLUMNS[column] : null;
+        if (sortColumn == null) {
+            return false;
+        }
+        sort = new PatientSort(sortColumn, sortColumn == sort.column() && !sort.descending());
+        Logger.log(Logger.LogLevel.INFO, "Tabelle sortiert nach " + sort);
+        clear();
+        fireTableDataChanged();
+        return true;
+    }
+
+    /** @return Die aktuelle Sortierung. */
+    public PatientSort getSort() {
+        return sort;
+    }
+
+    /**
+     * Verwirft alle geladenen Seiten, zählt die Patienten neu und lädt die sichtbaren Zeilen nach,
+     * z. B. nachdem Patienten hinzugefügt oder gelöscht wurden.
+     */
+    public void refresh() {
+        clear();
+        int requested = generation;
+        whenLoaded(asyncDao.submit(() -> asyncDao.getDao().countPatients()), count -> {
+            if (requested != generation) {
+                return;
+            }
+            rowCount = count;
+            Logger.log(Logger.LogLevel.INFO, "Seitenweise Anzeige von " + count + " Patienten.");
+            fireTableDataChanged();
+        });
+    }
+
+    private void clear() {
+        generation++;
+        pages.clear();
+        firstKeys.clear();
+        lastKeys.clear();
+        loading.clear();
+        lastPage = -1;
+    }
+
+    /**
+     * Lädt eine Seite, sofern sie existiert und weder geladen ist noch gerade geladen wird.
+     */
+    private void request(int pageIndex) {
+        if (pageIndex < 0 || pageIndex * PAGE_SIZE >= rowCount
+                || pages.containsKey(pageIndex) || !loading.add(pageIndex)) {
+            return;
+        }
+        int requested = generation;
+        PatientSort order = sort;
+        PatientSort.Key previousLast = lastKeys.get(pageIndex - 1);
+        PatientSort.Key nextFirst = firstKeys.get(pageIndex + 1);
+        DAO dao = asyncDao.getDao();
+
+        whenLoaded(asyncDao.submit(() -> {
+            List<Patient> patients;
+            if (pageIndex == 0 || previousLast != null) {
+                patients = dao.getPatientPage(order, previousLast, PAGE_SIZE);
+            } else if (nextFirst != null) {
+                // Rückwärts lesen: in umgekehrter Sortierung hinter der ersten Zeile der nächsten Seite
+                patients = dao.getPatientPage(order.reversed(), nextFirst, PAGE_SIZE);
+                Collections.reverse(patients);
+            } else {
+                patients = dao.getPatientPageAt(order, pageIndex * PAGE_SIZE, PAGE_SIZE);
+            }
+            return new Page(PatientColumns.of(patients), loadSummaries(patients));
+        }), page -> {
+            if (requested != generation) {
+                return;
+            }
+            loading.remove(pageIndex);
+            install(pageIndex, page, order);
+        });
+    }
+
+    private void install(int pageIndex, Page page, PatientSort order) {
+        pages.put(pageIndex, page);
+        int size = page.rows().size();
+        if (size > 0) {
+            firstKeys.put(pageIndex, order.keyOf(page.rows().toPatient(0)));
+            lastKeys.put(pageIndex, order.keyOf(page.rows().toPatient(size - 1)));
+        }
+        int first = pageIndex * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private Map<Integer, Befund.Summary> loadSummaries(List<Patient> patients) {
+        List<Integer> ids = new ArrayList<>(patients.size());
+        patients.forEach(patient -> ids.add(patient.getPatientID()));
+        try {
+            return befundDao.getSummaries(ids);
+        } catch (SQLException e) {
+            Logger.log(Logger.LogLevel.WARN, "Befundübersicht konnte nicht geladen werden.", e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Verarbeitet das Ergebnis auf dem Event Dispatch Thread. Eine fehlgeschlagene Seite bleibt als "lädt"
+     * markiert und wird erst nach {@link #refresh()} erneut angefordert, damit nicht jedes Neuzeichnen
+     * einen weiteren Versuch auslöst.
+     */
+    private <T> void whenLoaded(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Logger.log(Logger.LogLevel.ERROR, "Fehler beim seitenweisen Laden der Patienten.", cause);
+            }
+        }));
+    }
+
+    /**
+     * @return Der Patient oder {@code null}, wenn seine Seite nicht (mehr) geladen ist.
+     */
+    @Override
+    public Patient getPatientAt(int rowIndex) {
+        Page page = residentPage(rowIndex);
+        return page != null ? page.rows().toPatient(rowIndex % PAGE_SIZE) : null;
+    }
+
+    @Override
+    public int getPatientIdAt(int rowIndex) {
+        Page page = residentPage(rowIndex);
+        return page != null ? page.rows().id(rowIndex % PAGE_SIZE) : 0;
+    }
+
+    private Page residentPage(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            throw new IndexOutOfBoundsException("Ungültiger Zeilenindex: " + rowIndex);
+        }
+        Page page = pages.get(rowIndex / PAGE_SIZE);
+        return page != null && rowIndex % PAGE_SIZE < page.rows().size() ? page : null;
+    }
+
+    /** Verschiebt die Zeilen; die Tabelle wird daher neu gezählt und geladen. */
+    @Override
+    public void addPatient(Patient patient) {
+        refresh();
+    }
+
+    /**
+     * Ersetzt die Zeile, falls ihre Seite geladen ist. Ändert sich dabei der Wert der Sortierspalte,
+     * wird neu geladen, damit die Zeile an ihre neue Position wandert.
+     */
+    @Override
+    public void updatePatient(Patient patient) {
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            Page page = entry.getValue();
+            int row = page.find(patient.getPatientID());
+            if (row < 0) {
+                continue;
+            }
+            if (!sort.keyOf(page.rows().toPatient(row)).equals(sort.keyOf(patient))) {
+                refresh();
+                return;
+            }
+            page.rows().set(row, patient);
+            int index = entry.getKey() * PAGE_SIZE + row;
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+    }
+
+    /** Verschiebt die Zeilen; die Tabelle wird daher neu gezählt und geladen. */
+    @Override
+    public void removePatient(int id) {
+        refresh();
+    }
+
+    /** Lädt nur einmal neu, statt für jede ID. */
+    @Override
+    public void removePatients(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            refresh();
+        }
+    }
+
+    @Override
+    public void updateBefundSummary(int patientID, Befund.Summary summary) {
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            int row = entry.getValue().find(patientID);
+            if (row >= 0) {
+                entry.getValue().summaries().put(patientID, summary);
+                int index = entry.getKey() * PAGE_SIZE + row;
+                fireTableRowsUpdated(index, index);
+                return;
+            }
+        }
+    }
+}
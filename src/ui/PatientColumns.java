@@ -0,0 +1,353 @@
+package ui;
+
+import db.Search;
+import model.Patient;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spaltenweise Ablage der Patienten für das {@link TableModel}.
+ * <p>
+ * Statt eines {@link Patient}-Objekts pro Zeile hält die Tabelle ein Array pro Spalte: IDs und Versionen als
+ * {@code int}, das Geburtsdatum als Epochentag und Spalten mit wenigen verschiedenen Werten (Vorname, Anrede,
+ * PLZ, Ort, Referenznamen) als Code in ein Wörterbuch, sodass jeder Wert nur einmal im Speicher liegt. Nur
+ * Nachname, Straße, Telefon und Sonstiges bleiben als {@code String}-Spalten. Zu jeder Zeile wird außerdem
+ * {@link Patient#contentHash()} gespeichert, um neu geladene Patienten ohne Dekodieren vergleichen zu können,
+ * und bei Bedarf der normalisierte Text für den Tabellenfilter ({@link #filterText}).
+ * <p>
+ * Die Zeilen sind wie im {@link TableModel} aufsteigend nach Patienten-ID sortiert. Wörterbücher wachsen nur;
+ * nicht mehr benutzte Werte verschwinden beim nächsten vollständigen Laden ({@link #of}).
+ * Nicht threadsicher; wird nur auf dem Event Dispatch Thread benutzt.
+ */
+final class PatientColumns {
+
+    /** Epochentag für ein fehlendes Geburtsdatum. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final DateTimeFormatter GERMAN_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    // int-Spalten
+    private static final int ID = 0;
+    private static final int VERSION = 1;
+    private static final int VORNAME = 2;
+    private static final int ANREDE = 3;
+    private static final int GEBURTSDATUM = 4;
+    private static final int PLZ = 5;
+    private static final int ORT = 6;
+    private static final int BUNDESLAND_ID = 7;
+    private static final int BUNDESLAND_NAME = 8;
+    private static final int GESCHLECHT_ID = 9;
+    private static final int GESCHLECHT_NAME = 10;
+    private static final int KRANKENKASSE_ID = 11;
+    private static final int KRANKENKASSE_NAME = 12;
+    private static final int INT_COLUMNS = 13;
+
+    // String-Spalten
+    private static final int NACHNAME = 0;
+    private static final int STRASSE = 1;
+    private static final int TELEFON = 2;
+    private static final int SONSTIGES = 3;
+    private static final int STRING_COLUMNS = 4;
+
+    /**
+     * Bildet Zeichenketten auf fortlaufende Codes ab; Code 0 steht für {@code null}.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        Dictionary() {
+            values.add(null);
+        }
+
+        int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+
+    private final int[][] ints;
+    private final String[][] strings;
+    private long[] hashes;
+    /** Filtertext je Zeile; {@code null}, solange er nicht abgefragt wurde oder die Zeile sich geändert hat. */
+    private String[] filterTexts;
+    private int size;
+
+    private final Dictionary vornamen = new Dictionary();
+    private final Dictionary anreden = new Dictionary();
+    private final Dictionary plzs = new Dictionary();
+    private final Dictionary orte = new Dictionary();
+    /** Gemeinsam für Bundesland-, Geschlechts- und Krankenkassennamen. */
+    private final Dictionary referenceNames = new Dictionary();
+
+    /**
+     * @param capacity Anfängliche Anzahl Zeilen, für die Platz reserviert wird.
+     */
+    PatientColumns(int capacity) {
+        ints = new int[INT_COLUMNS][capacity];
+        strings = new String[STRING_COLUMNS][capacity];
+        hashes = new long[capacity];
+        filterTexts = new String[capacity];
+    }
+
+    /**
+     * Baut die Spalten aus einer nach ID sortierten Patientenliste auf.
+     *
+     * @param patients Die Patienten.
+     * @return Die neuen Spalten.
+     */
+    static PatientColumns of(List<Patient> patients) {
+        PatientColumns columns = new PatientColumns(patients.size());
+        for (Patient patient : patients) {
+            columns.write(columns.size++, patient);
+        }
+        return columns;
+    }
+
+    /** @return Die Anzahl der Zeilen. */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sucht eine Patienten-ID per binärer Suche in der ID-Spalte.
+     *
+     * @return Der Zeilenindex oder {@code -(Einfügeposition) - 1}, wenn die ID nicht vorhanden ist.
+     */
+    int indexOf(int id) {
+        return Arrays.binarySearch(ints[ID], 0, size, id);
+    }
+
+    /** Überschreibt eine vorhandene Zeile. */
+    void set(int row, Patient patient) {
+        write(row, patient);
+    }
+
+    /** Fügt eine Zeile ein; die folgenden Zeilen rücken eine Position weiter. */
+    void insert(int row, Patient patient) {
+        insert(row, List.of(patient), 0, 1);
+    }
+
+    /**
+     * Fügt die Patienten {@code patients[from..to)} ab Zeile {@code row} ein; die folgenden Zeilen rücken
+     * mit einem einzigen Kopiervorgang pro Spalte weiter.
+     */
+    void insert(int row, List<Patient> patients, int from, int to) {
+        int count = to - from;
+        ensureCapacity(size + count);
+        shift(row, row + count, size - row);
+        size += count;
+        for (int i = 0; i < count; i++) {
+            write(row + i, patients.get(from + i));
+        }
+    }
+
+    /** Entfernt eine Zeile; die folgenden Zeilen rücken eine Position nach vorn. */
+    void remove(int row) {
+        remove(row, row + 1);
+    }
+
+    /** Entfernt die Zeilen {@code [from, to)}; die folgenden Zeilen rücken nach vorn. */
+    void remove(int from, int to) {
+        shift(to, from, size - to);
+        int oldSize = size;
+        size -= to - from;
+        for (String[] column : strings) {
+            Arrays.fill(column, size, oldSize, null);
+        }
+        Arrays.fill(filterTexts, size, oldSize, null);
+    }
+
+    int id(int row) {
+        return ints[ID][row];
+    }
+
+    int version(int row) {
+        return ints[VERSION][row];
+    }
+
+    /** @return {@link Patient#contentHash()} des Patienten, aus dem die Zeile geschrieben wurde. */
+    long hash(int row) {
+        return hashes[row];
+    }
+
+    String vorname(int row) {
+        return vornamen.decode(ints[VORNAME][row]);
+    }
+
+    String nachname(int row) {
+        return strings[NACHNAME][row];
+    }
+
+    String anrede(int row) {
+        return anreden.decode(ints[ANREDE][row]);
+    }
+
+    LocalDate geburtsdatum(int row) {
+        int day = ints[GEBURTSDATUM][row];
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    String strasse(int row) {
+        return strings[STRASSE][row];
+    }
+
+    String plz(int row) {
+        return plzs.decode(ints[PLZ][row]);
+    }
+
+    String ort(int row) {
+        return orte.decode(ints[ORT][row]);
+    }
+
+    int bundeslandID(int row) {
+        return ints[BUNDESLAND_ID][row];
+    }
+
+    String bundeslandName(int row) {
+        return referenceNames.decode(ints[BUNDESLAND_NAME][row]);
+    }
+
+    String telefon(int row) {
+        return strings[TELEFON][row];
+    }
+
+    int geschlechtID(int row) {
+        return ints[GESCHLECHT_ID][row];
+    }
+
+    String geschlechtName(int row) {
+        return referenceNames.decode(ints[GESCHLECHT_NAME][row]);
+    }
+
+    int krankenkasseID(int row) {
+        return ints[KRANKENKASSE_ID][row];
+    }
+
+    String krankenkasseName(int row) {
+        return referenceNames.decode(ints[KRANKENKASSE_NAME][row]);
+    }
+
+    String sonstiges(int row) {
+        return strings[SONSTIGES][row];
+    }
+
+    /**
+     * Gibt den Text zurück, in dem der Tabellenfilter sucht: ID, Vorname, Nachname, Geburtsdatum (wie angezeigt
+     * und als TT.MM.JJJJ), Straße, PLZ, Ort und Telefon, durch Leerzeichen getrennt und mit {@link Search#fold}
+     * normalisiert. Er wird beim ersten Filtern berechnet und bis zur nächsten Änderung der Zeile gespeichert.
+     *
+     * @param row Der Zeilenindex.
+     * @return Der normalisierte Filtertext.
+     */
+    String filterText(int row) {
+        String text = filterTexts[row];
+        if (text == null) {
+            StringBuilder sb = new StringBuilder(96).append(id(row));
+            LocalDate geburtsdatum = geburtsdatum(row);
+            append(sb, vorname(row));
+            append(sb, nachname(row));
+            if (geburtsdatum != null) {
+                append(sb, geburtsdatum.toString());
+                append(sb, GERMAN_DATE.format(geburtsdatum));
+            }
+            append(sb, strasse(row));
+            append(sb, plz(row));
+            append(sb, ort(row));
+            append(sb, telefon(row));
+            text = Search.fold(sb.toString());
+            filterTexts[row] = text;
+        }
+        return text;
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        if (value != null) {
+            sb.append(' ').append(value);
+        }
+    }
+
+    /**
+     * Erzeugt ein neues, unverändertes {@link Patient}-Objekt aus einer Zeile.
+     *
+     * @param row Der Zeilenindex.
+     * @return Der Patient; Änderungen daran wirken nicht auf die Tabelle zurück.
+     */
+    Patient toPatient(int row) {
+        return Patient.restore(id(row), ints[VERSION][row], vorname(row), nachname(row), anrede(row),
+                geburtsdatum(row), strasse(row), plz(row), ort(row),
+                bundeslandID(row), bundeslandName(row), telefon(row),
+                geschlechtID(row), geschlechtName(row), krankenkasseID(row), krankenkasseName(row),
+                sonstiges(row));
+    }
+
+    private void write(int row, Patient p) {
+        ints[ID][row] = p.getPatientID();
+        ints[VERSION][row] = p.getVersion();
+        ints[VORNAME][row] = vornamen.encode(p.getVorname());
+        ints[ANREDE][row] = anreden.encode(p.getAnrede());
+        ints[GEBURTSDATUM][row] = p.getGeburtsdatum() != null ? Math.toIntExact(p.getGeburtsdatum().toEpochDay()) : NO_DATE;
+        ints[PLZ][row] = plzs.encode(p.getPlz());
+        ints[ORT][row] = orte.encode(p.getOrt());
+        ints[BUNDESLAND_ID][row] = p.getBundeslandID();
+        ints[BUNDESLAND_NAME][row] = referenceNames.encode(p.getBundeslandName());
+        ints[GESCHLECHT_ID][row] = p.getGeschlechtID();
+        ints[GESCHLECHT_NAME][row] = referenceNames.encode(p.getGeschlechtName());
+        ints[KRANKENKASSE_ID][row] = p.getKrankenkasseID();
+        ints[KRANKENKASSE_NAME][row] = referenceNames.encode(p.getKrankenkasseName());
+        strings[NACHNAME][row] = p.getNachname();
+        strings[STRASSE][row] = p.getStrasse();
+        strings[TELEFON][row] = p.getTelefon();
+        strings[SONSTIGES][row] = p.getSonstiges();
+        hashes[row] = p.contentHash();
+        filterTexts[row] = null;
+    }
+
+    private void shift(int from, int to, int length) {
+        if (length <= 0) {
+            return;
+        }
+        for (int[] column : ints) {
+            System.arraycopy(column, from, column, to, length);
+        }
+        for (String[] column : strings) {
+            System.arraycopy(column, from, column, to, length);
+        }
+        System.arraycopy(hashes, from, hashes, to, length);
+        System.arraycopy(filterTexts, from, filterTexts, to, length);
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = ints[ID].length;
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity + (capacity >> 1) + 16);
+        for (int i = 0; i < INT_COLUMNS; i++) {
+            ints[i] = Arrays.copyOf(ints[i], newCapacity);
+        }
+        for (int i = 0; i < STRING_COLUMNS; i++) {
+            strings[i] = Arrays.copyOf(strings[i], newCapacity);
+        }
+        hashes = Arrays.copyOf(hashes, newCapacity);
+        filterTexts = Arrays.copyOf(filterTexts, newCapacity);
+    }
+}
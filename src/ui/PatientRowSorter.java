@@ -0,0 +1,485 @@
+package ui;
+
+import db.Search;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sortiert und filtert die Zeilen eines {@link TableModel} im Speicher, ohne die Datenbank zu fragen.
+ * <p>
+ * Texte werden mit einem deutschen {@link Collator} verglichen, Ä steht also bei A, Ö bei O und Ü bei U.
+ * Der {@link CollationKey} eines Werts wird nur einmal erzeugt und zwischengespeichert. Beim Sortieren erhält
+ * jede Zeile den Rang ihres Werts, sortiert werden dann nur noch {@code long}-Werte aus Rang und Zeilenindex.
+ * Die sortierte Reihenfolge aller Zeilen bleibt erhalten, bis sich die Sortierung ändert. Einzelne eingefügte,
+ * geänderte oder gelöschte Zeilen werden per binärer Suche einsortiert bzw. herausgenommen, nur größere
+ * Änderungen sortieren neu. Ein neuer Filter ist nur ein Durchlauf über diese Reihenfolge, und wird die
+ * Eingabe nur verlängert, sogar nur über die bisher angezeigten Zeilen.
+ * <p>
+ * Gefiltert wird über {@link TableModel#filterText(int)}: Jedes Wort der Eingabe muss darin vorkommen.
+ * Sortiert wird nur nach der ersten Sortierspalte; gleiche Werte stehen in Modellreihenfolge (nach ID).
+ * Absteigend ist genau die umgekehrte Reihenfolge, ein Klick auf dieselbe Spalte dreht sie also nur um.
+ * Wie die Tabelle wird die Klasse nur auf dem Event Dispatch Thread benutzt.
+ */
+final class PatientRowSorter extends RowSorter<TableModel> {
+
+    /** Rang für fehlende Werte; sie stehen aufsteigend vorn. */
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
+    /** Bis zu so vielen geänderten Zeilen auf einmal wird einsortiert statt neu sortiert. */
+    private static final int MAX_INCREMENTAL_ROWS = 64;
+
+    /** Ein Textwert mit seinem Vergleichsschlüssel und seinem Rang in der letzten Sortierung. */
+    private static final class SortValue {
+        final CollationKey key;
+        int rank;
+        int stamp;
+
+        SortValue(CollationKey key) {
+            this.key = key;
+        }
+    }
+
+    private final TableModel model;
+    private final Collator collator = Collator.getInstance(Locale.GERMAN);
+    private final Map<String, SortValue> sortValues = new HashMap<>();
+    private int stamp;
+
+    private List<SortKey> sortKeys = List.of();
+    private String[] filterWords = new String[0];
+
+    /** Alle Modellzeilen in Sortierreihenfolge; {@code null}, wenn nicht sortiert oder neu zu sortieren. */
+    private int[] sorted;
+    /** Die angezeigten Modellzeilen; {@code null}, wenn alle Zeilen in Modellreihenfolge angezeigt werden. */
+    private int[] viewToModel;
+    /** Umkehrung von {@link #viewToModel}, wird erst bei Bedarf berechnet. */
+    private int[] modelToView;
+
+    /**
+     * @param model Das zu sortierende Modell.
+     */
+    PatientRowSorter(TableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Setzt den Filtertext. Angezeigt werden nur Zeilen, deren {@link TableModel#filterText(int)} jedes durch
+     * Leerzeichen getrennte Wort der Eingabe enthält (normalisiert mit {@link Search#fold}).
+     *
+     * @param text Die Eingabe; leer zeigt alle Zeilen.
+     */
+    void setFilter(String text) {
+        String folded = Search.fold(text).trim();
+        String[] words = folded.isEmpty() ? new String[0] : folded.split("\\s+");
+        if (Arrays.equals(words, filterWords)) {
+            return;
+        }
+        boolean narrowing = narrows(filterWords, words);
+        filterWords = words;
+        update(narrowing);
+    }
+
+    /**
+     * @return {@code true}, wenn jede Zeile, die {@code words} enthält, auch {@code previous} enthält.
+     */
+    private static boolean narrows(String[] previous, String[] words) {
+        for (String old : previous) {
+            boolean covered = false;
+            for (String word : words) {
+                if (word.contains(old)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(List.of(new SortKey(column, order)));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null ? List.of() : List.copyOf(keys);
+        for (SortKey key : newKeys) {
+            checkColumn(key.getColumn());
+        }
+        if (newKeys.equals(sortKeys)) {
+            return;
+        }
+        boolean reversed = sorted != null && reverses(sortKeys, newKeys);
+        sortKeys = newKeys;
+        fireSortOrderChanged();
+        sorted = reversed ? reverse(sorted) : null;
+        update(false);
+    }
+
+    /** @return {@code true}, wenn {@code keys} dieselbe Spalte in der anderen Richtung sortiert. */
+    private static boolean reverses(List<SortKey> previous, List<SortKey> keys) {
+        if (previous.isEmpty() || keys.isEmpty() || previous.get(0).getColumn() != keys.get(0).getColumn()) {
+            return false;
+        }
+        SortOrder before = previous.get(0).getSortOrder();
+        SortOrder after = keys.get(0).getSortOrder();
+        return before != SortOrder.UNSORTED && after != SortOrder.UNSORTED && before != after;
+    }
+
+    private static int[] reverse(int[] rows) {
+        int[] result = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = rows[rows.length - 1 - i];
+        }
+        return result;
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Ungültiger Zeilenindex: " + index);
+            }
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Ungültiger Zeilenindex: " + index);
+            }
+            return index;
+        }
+        if (modelToView == null) {
+            modelToView = new int[model.getRowCount()];
+            Arrays.fill(modelToView, -1);
+            for (int i = 0; i < viewToModel.length; i++) {
+                modelToView[viewToModel[i]] = i;
+            }
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        sorted = null;
+        update(false);
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (sorted != null) {
+            if (count > MAX_INCREMENTAL_ROWS) {
+                sorted = null;
+            } else {
+                int[] shifted = Arrays.copyOf(sorted, sorted.length + count);
+                for (int i = 0; i < sorted.length; i++) {
+                    if (shifted[i] >= firstRow) {
+                        shifted[i] += count;
+                    }
+                }
+                int size = sorted.length;
+                for (int row = firstRow; row <= endRow; row++) {
+                    insertSorted(shifted, size++, row);
+                }
+                sorted = shifted;
+            }
+        }
+        update(false);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (sorted != null) {
+            int[] remaining = new int[sorted.length - count];
+            int size = 0;
+            for (int row : sorted) {
+                if (row > endRow) {
+                    remaining[size++] = row - count;
+                } else if (row < firstRow) {
+                    remaining[size++] = row;
+                }
+            }
+            sorted = remaining;
+        }
+        update(false);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (!isActive()) {
+            return;
+        }
+        if (sorted != null) {
+            if (endRow - firstRow + 1 > MAX_INCREMENTAL_ROWS) {
+                sorted = null;
+            } else {
+                // Erst alle geänderten Zeilen herausnehmen, damit die binäre Suche nur gültig sortierte Einträge sieht
+                int size = 0;
+                for (int row : sorted) {
+                    if (row < firstRow || row > endRow) {
+                        sorted[size++] = row;
+                    }
+                }
+                for (int row = firstRow; row <= endRow; row++) {
+                    insertSorted(sorted, size++, row);
+                }
+            }
+        }
+        update(false);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        // Die Befundspalten gehören nicht zum Filtertext
+        boolean sortColumn = sortOrder() != SortOrder.UNSORTED && sortKeys.get(0).getColumn() == column;
+        if (sortColumn || (filterWords.length > 0 && column < PatientTableModel.BEFUND_COUNT_COLUMN)) {
+            rowsUpdated(firstRow, endRow);
+        }
+    }
+
+    /**
+     * Sortiert eine Zeile per binärer Suche in {@code rows[0..size)} ein; {@code rows} hat Platz für mindestens
+     * einen Eintrag mehr.
+     */
+    private void insertSorted(int[] rows, int size, int row) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareRows(rows[mid], row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        System.arraycopy(rows, low, rows, low + 1, size - low);
+        rows[low] = row;
+    }
+
+    /**
+     * Vergleicht zwei Modellzeilen wie {@link #sortedRows()}: nach dem Wert der Sortierspalte, dann nach Zeile,
+     * absteigend beides umgekehrt.
+     */
+    private int compareRows(int a, int b) {
+        int column = sortKeys.get(0).getColumn();
+        int result = compareValues(model.getValueAt(a, column), model.getValueAt(b, column));
+        if (result == 0) {
+            result = Integer.compare(a, b);
+        }
+        return sortOrder() == SortOrder.DESCENDING ? -result : result;
+    }
+
+    private int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof String text) {
+            return sortValue(text).key.compareTo(sortValue((String) b).key);
+        }
+        return Integer.compare(rankOf(a), rankOf(b));
+    }
+
+    private SortValue sortValue(String text) {
+        SortValue value = sortValues.get(text);
+        if (value == null) {
+            value = new SortValue(collator.getCollationKey(text));
+            sortValues.put(text, value);
+        }
+        return value;
+    }
+
+    private boolean isActive() {
+        return sortOrder() != SortOrder.UNSORTED || filterWords.length > 0;
+    }
+
+    private SortOrder sortOrder() {
+        return sortKeys.isEmpty() ? SortOrder.UNSORTED : sortKeys.get(0).getSortOrder();
+    }
+
+    /**
+     * Berechnet die angezeigten Zeilen neu und meldet der Tabelle die neue Zuordnung.
+     *
+     * @param narrowing {@code true}, wenn nur die bisher angezeigten Zeilen in Frage kommen.
+     */
+    private void update(boolean narrowing) {
+        int[] previous = viewToModel;
+        if (!isActive()) {
+            viewToModel = null;
+        } else if (narrowing && previous != null) {
+            viewToModel = filter(previous, previous.length);
+        } else {
+            int[] candidates = sortOrder() != SortOrder.UNSORTED ? sortedRows() : null;
+            viewToModel = filter(candidates, model.getRowCount());
+        }
+        modelToView = null;
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * @param rows  Die Kandidaten in Anzeigereihenfolge oder {@code null} für alle Zeilen in Modellreihenfolge.
+     * @param count Die Anzahl der Kandidaten.
+     * @return Die Kandidaten, deren Filtertext alle Wörter enthält, in unveränderter Reihenfolge; immer ein
+     * neues Array, da {@link #sorted} später an Ort und Stelle geändert wird.
+     */
+    private int[] filter(int[] rows, int count) {
+        if (filterWords.length == 0) {
+            return rows != null ? Arrays.copyOf(rows, count) : identity(count);
+        }
+        int[] result = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows != null ? rows[i] : i;
+            if (matches(model.filterText(row))) {
+                result[size++] = row;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private boolean matches(String text) {
+        for (String word : filterWords) {
+            if (!text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] identity(int count) {
+        int[] rows = new int[count];
+        Arrays.setAll(rows, i -> i);
+        return rows;
+    }
+
+    /**
+     * @return Alle Modellzeilen in der Reihenfolge der ersten Sortierspalte.
+     */
+    private int[] sortedRows() {
+        if (sorted == null) {
+            int[] ranks = ranks(sortKeys.get(0).getColumn());
+            long[] packed = new long[ranks.length];
+            for (int row = 0; row < ranks.length; row++) {
+                packed[row] = ((long) ranks[row] << 32) | row;
+            }
+            Arrays.sort(packed);
+            boolean descending = sortOrder() == SortOrder.DESCENDING;
+            sorted = new int[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                sorted[descending ? packed.length - 1 - i : i] = (int) packed[i];
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Ordnet jeder Zeile einen Rang zu, dessen Reihenfolge der ihres Werts in der Spalte entspricht: Zahlen und
+     * Datumswerte direkt, Texte über ihre (zwischengespeicherten) {@link CollationKey}s.
+     */
+    private int[] ranks(int column) {
+        int rowCount = model.getRowCount();
+        if (sortValues.size() > 4 * rowCount + 1024) {
+            sortValues.clear();
+        }
+        stamp++;
+        int[] ranks = new int[rowCount];
+        SortValue[] texts = null;
+        List<SortValue> distinct = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            Object value = model.getValueAt(row, column);
+            if (value instanceof String text) {
+                SortValue sortValue = sortValue(text);
+                if (sortValue.stamp != stamp) {
+                    sortValue.stamp = stamp;
+                    distinct.add(sortValue);
+                }
+                if (texts == null) {
+                    texts = new SortValue[rowCount];
+                }
+                texts[row] = sortValue;
+            } else {
+                ranks[row] = rankOf(value);
+            }
+        }
+        if (texts != null) {
+            distinct.sort((a, b) -> a.key.compareTo(b.key));
+            int rank = 0;
+            for (int i = 0; i < distinct.size(); i++) {
+                if (i > 0 && distinct.get(i - 1).key.compareTo(distinct.get(i).key) != 0) {
+                    rank++;
+                }
+                distinct.get(i).rank = rank;
+            }
+            for (int row = 0; row < rowCount; row++) {
+                if (texts[row] != null) {
+                    ranks[row] = texts[row].rank;
+                }
+            }
+        }
+        return ranks;
+    }
+
+    private static int rankOf(Object value) {
+        if (value instanceof Integer number) {
+            return number;
+        }
+        if (value instanceof LocalDate date) {
+            return Math.toIntExact(date.toEpochDay());
+        }
+        return NO_VALUE;
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Ungültiger Spaltenindex: " + column);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ui;
+
+import db.ReferenceData;
+import model.Befund;
+import model.Patient;
+import utils.Logger;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Collection;
+
+/**
+ * Gemeinsame Basis der Patiententabellen: Spalten und Zeilenzugriff, wie ihn {@link MainUI} benötigt.
+ * <p>
+ * {@link TableModel} hält alle angezeigten Patienten im Speicher (Suchergebnisse und kleinere Bestände),
+ * {@link PagedTableModel} lädt sehr große Bestände seitenweise nach.
+ */
+public abstract class PatientTableModel extends AbstractTableModel {
+
+    /** Die Namen der Spalten in der Tabelle. */
+    private static final String[] COLUMN_NAMES = {
+            "ID", "Vorname", "Nachname", "Anrede", "Geburtsdatum",
+            "Straße", "PLZ", "Ort", "Bundesland",
+            "Telefon", "Geschlecht", "Krankenkasse", "Sonstiges",
+            "Befunde", "Letzter Befund"
+    };
+
+    /** Index der Spalte mit der Anzahl der Befunde; die Spalte mit dem letzten Befund folgt direkt. */
+    static final int BEFUND_COUNT_COLUMN = 13;
+
+    /**
+     * Gibt die Anzahl der Spalten in der Tabelle zurück.
+     *
+     * @return Die Anzahl der Spalten.
+     */
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    /**
+     * Gibt den Namen einer bestimmten Spalte zurück.
+     *
+     * @param column Der Index der Spalte (0-basiert).
+     * @return Der Name der Spalte oder ein leerer String, wenn der Index ungültig ist.
+     */
+    @Override
+    public String getColumnName(int column) {
+        if (column >= 0 && column < COLUMN_NAMES.length) {
+            return COLUMN_NAMES[column];
+        } else {
+            Logger.log(Logger.LogLevel.WARN, "Ungültiger Spaltenindex: " + column);
+            return "";
+        }
+    }
+
+    /**
+     * Gibt den Patienten an einem bestimmten Zeilenindex zurück.
+     *
+     * @param rowIndex Der Index der Zeile (0-basiert).
+     * @return Eine neue Kopie des Patienten oder {@code null}, wenn der Index ungültig ist oder die Zeile nicht geladen ist.
+     */
+    public abstract Patient getPatientAt(int rowIndex);
+
+    /**
+     * Gibt die Patienten-ID einer Zeile zurück, ohne ein {@link Patient}-Objekt zu erzeugen.
+     *
+     * @param rowIndex Der Index der Zeile (0-basiert).
+     * @return Die Patienten-ID oder {@code 0}, wenn die Zeile nicht geladen ist.
+     * @throws IndexOutOfBoundsException Wenn der Index ungültig ist.
+     */
+    public abstract int getPatientIdAt(int rowIndex);
+
+    /**
+     * Zeigt einen neu angelegten Patienten an.
+     *
+     * @param patient Der gespeicherte Patient (mit gültiger ID).
+     */
+    public abstract void addPatient(Patient patient);
+
+    /**
+     * Ersetzt die Zeile des Patienten mit derselben ID; unbekannte IDs werden ignoriert.
+     *
+     * @param patient Der aktualisierte Patient.
+     */
+    public abstract void updatePatient(Patient patient);
+
+    /**
+     * Entfernt die Zeile des Patienten mit der angegebenen ID, falls vorhanden.
+     *
+     * @param id Die ID des gelöschten Patienten.
+     */
+    public abstract void removePatient(int id);
+
+    /**
+     * Entfernt die Zeilen mehrerer Patienten, z. B. nach einem Stapel-Löschvorgang.
+     *
+     * @param ids Die IDs der gelöschten Patienten.
+     */
+    public void removePatients(Collection<Integer> ids) {
+        ids.forEach(this::removePatient);
+    }
+
+    /**
+     * Ersetzt die Befundübersicht eines Patienten, z. B. nach dem Hinzufügen eines Befunds.
+     *
+     * @param patientID Die ID des Patienten.
+     * @param summary   Die neue Übersicht.
+     */
+    public abstract void updateBefundSummary(int patientID, Befund.Summary summary);
+
+    /**
+     * Liest den Wert einer Tabellenzelle aus den Spalten.
+     *
+     * @param rows    Die Zeilen.
+     * @param row     Der Zeilenindex in {@code rows}.
+     * @param column  Der Spaltenindex der Tabelle.
+     * @param summary Die Befundübersicht des Patienten.
+     * @return Der anzuzeigende Wert.
+     */
+    static Object valueAt(PatientColumns rows, int row, int column, Befund.Summary summary) {
+        return switch (column) {
+            case 0 -> rows.id(row);
+            case 1 -> rows.vorname(row);
+            case 2 -> rows.nachname(row);
+            case 3 -> rows.anrede(row);
+            case 4 -> rows.geburtsdatum(row); // LocalDate
+            case 5 -> rows.strasse(row);
+            case 6 -> rows.plz(row);
+            case 7 -> rows.ort(row);
+            case 8 -> referenceName(ReferenceData.bundeslaender(), rows.bundeslandID(row), rows.bundeslandName(row));
+            case 9 -> rows.telefon(row);
+            case 10 -> referenceName(ReferenceData.geschlechter(), rows.geschlechtID(row), rows.geschlechtName(row));
+            case 11 -> referenceName(ReferenceData.krankenkassen(), rows.krankenkasseID(row), rows.krankenkasseName(row));
+            case 12 -> rows.sonstiges(row);
+            case 13 -> summary.count();
+            case 14 -> summary.latestDate();
+            default -> "";
+        };
+    }
+
+    /**
+     * Löst eine Referenz-ID über den {@link ReferenceData}-Cache auf.
+     *
+     * @param lookup   Die Nachschlagetabelle.
+     * @param id       Die Referenz-ID des Patienten.
+     * @param fallback Der beim Laden gelesene Name, falls die ID im Cache (noch) nicht bekannt ist.
+     * @return Der anzuzeigende Name.
+     */
+    private static String referenceName(ReferenceData.Lookup lookup, int id, String fallback) {
+        String name = lookup.getName(id);
+        return name != null ? name : fallback;
+    }
+}
@@ -1,30 +1,36 @@
 package ui;
 
+import model.Befund;
 import model.Patient;
 import utils.Logger;
 
-import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
+import javax.swing.event.TableModelEvent;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Eine Implementierung von {@link AbstractTableModel}, die als Datenquelle für eine Tabelle dient,
+ * Eine Implementierung von {@link PatientTableModel}, die als Datenquelle für eine Tabelle dient,
  * die Patientendaten anzeigt.
  * <p>
  * Die Spalten enthalten Informationen wie Name, Adresse, Geburtsdatum und andere relevante Patientendaten.
  * Änderungen an der Patientenliste werden automatisch in der Tabelle angezeigt.
+ * <p>
+ * Die Zeilen sind aufsteigend nach Patienten-ID sortiert (so liefern sie DAO und Suche) und werden
+ * spaltenweise in {@link PatientColumns} gehalten, nicht als {@link Patient}-Objekte.
+ * Einzelne Schreibvorgänge werden über {@link #addPatient}, {@link #updatePatient} und
+ * {@link #removePatient} nachgeführt, die nur die betroffene Zeile neu zeichnen lassen.
  */
-public class TableModel extends AbstractTableModel {
+public class TableModel extends PatientTableModel {
+
+    /** Ab so vielen Einfüge- bzw. Löschblöcken baut {@link #setPatients} die Tabelle neu auf, statt Zeilen zu verschieben. */
+    private static final int MAX_STRUCTURAL_CHANGES = 32;
 
-    /** Die Namen der Spalten in der Tabelle. */
-    private final String[] columnNames = {
-            "ID", "Vorname", "Nachname", "Anrede", "Geburtsdatum",
-            "Straße", "PLZ", "Ort", "BundeslandID",
-            "Telefon", "GeschlechtID", "KrankenkasseID", "Sonstiges"
-    };
+    /** Die Patienten, die in der Tabelle angezeigt werden. */
+    private PatientColumns rows = new PatientColumns(0);
 
-    /** Die Liste der Patienten, die in der Tabelle angezeigt werden. */
-    private List<Patient> patients = new ArrayList<>();
+    /** Befundübersicht nach Patienten-ID; Patienten ohne Eintrag haben keine Befunde. */
+    private Map<Integer, Befund.Summary> befundSummaries = new HashMap<>();
 
     /**
      * Gibt die Anzahl der Zeilen in der Tabelle zurück.
@@ -33,17 +39,7 @@ public class TableModel extends AbstractTableModel {
      */
     @Override
     public int getRowCount() {
-        return patients.size();
-    }
-
-    /**
-     * Gibt die Anzahl der Spalten in der Tabelle zurück.
-     *
-     * @return Die Anzahl der Spalten, die durch {@code columnNames} definiert sind.
-     */
-    @Override
-    public int getColumnCount() {
-        return columnNames.length;
+        return rows.size();
     }
 
     /**
@@ -55,48 +51,51 @@ public class TableModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        try {
-            Patient p = patients.get(rowIndex);
-            return switch (columnIndex) {
-                case 0 -> p.getPatientID();
-                case 1 -> p.getVorname();
-                case 2 -> p.getNachname();
-                case 3 -> p.getAnrede();
-                case 4 -> p.getGeburtsdatum(); // LocalDate
-                case 5 -> p.getStrasse();
-                case 6 -> p.getPlz();
-                case 7 -> p.getOrt();
-                case 8 -> p.getBundeslandName();
-                case 9 -> p.getTelefon();
-                case 10 -> p.getGeschlechtName();
-                case 11 -> p.getKrankenkasseName();
-                case 12 -> p.getSonstiges();
-                default -> "";
-            };
-        } catch (IndexOutOfBoundsException e) {
-            Logger.log(Logger.LogLevel.ERROR, "Ungültiger Zeilenindex: " + rowIndex, e);
+        if (rowIndex < 0 || rowIndex >= rows.size()) {
+            Logger.log(Logger.LogLevel.ERROR, "Ungültiger Zeilenindex: " + rowIndex);
             return null;
         }
+        return valueAt(rows, rowIndex, columnIndex, befundSummaries.getOrDefault(rows.id(rowIndex), Befund.Summary.NONE));
     }
 
     /**
-     * Gibt den Namen einer bestimmten Spalte zurück.
+     * Setzt die Befundübersicht (Anzahl und letzter Befund) für alle Zeilen, die z. B. mit
+     * {@link db.BefundDAO#getAllSummaries()} in einer Abfrage geladen wurde. Neu gezeichnet werden
+     * nur die beiden Befundspalten.
      *
-     * @param column Der Index der Spalte (0-basiert).
-     * @return Der Name der Spalte oder ein leerer String, wenn der Index ungültig ist.
+     * @param summaries Übersicht nach Patienten-ID.
+     */
+    public void setBefundSummaries(Map<Integer, Befund.Summary> summaries) {
+        this.befundSummaries = new HashMap<>(summaries);
+        if (rows.size() > 0) {
+            fireTableChanged(new TableModelEvent(this, 0, rows.size() - 1, BEFUND_COUNT_COLUMN));
+            fireTableChanged(new TableModelEvent(this, 0, rows.size() - 1, BEFUND_COUNT_COLUMN + 1));
+        }
+    }
+
+    /**
+     * Ersetzt die Befundübersicht eines Patienten, z. B. nach dem Hinzufügen eines Befunds.
+     *
+     * @param patientID Die ID des Patienten.
+     * @param summary   Die neue Übersicht.
      */
     @Override
-    public String getColumnName(int column) {
-        if (column >= 0 && column < columnNames.length) {
-            return columnNames[column];
-        } else {
-            Logger.log(Logger.LogLevel.WARN, "Ungültiger Spaltenindex: " + column);
-            return "";
+    public void updateBefundSummary(int patientID, Befund.Summary summary) {
+        befundSummaries.put(patientID, summary);
+        int index = indexOf(patientID);
+        if (index >= 0) {
+            fireTableRowsUpdated(index, index);
         }
     }
 
     /**
      * Aktualisiert die Liste der Patienten und informiert die Tabelle über die Änderungen.
+     * <p>
+     * Ist die neue Liste wie die Tabelle nach ID sortiert, werden beide in einem Durchlauf abgeglichen: Zeilen
+     * mit geändertem {@link Patient#contentHash()} werden überschrieben, neue und entfernte IDs blockweise
+     * eingefügt bzw. gelöscht, und die Tabelle erhält nur Ereignisse für diese Zeilen. Auswahl und
+     * Bildlaufposition bleiben so erhalten. Bei unsortierten Listen, leerer Tabelle oder mehr als
+     * {@value #MAX_STRUCTURAL_CHANGES} Einfüge-/Löschblöcken wird die Tabelle neu aufgebaut.
      *
      * @param newPatients Die neue Liste der Patienten. Falls {@code null}, wird keine Aktion ausgeführt.
      */
@@ -106,28 +105,229 @@ public class TableModel extends AbstractTableModel {
             return;
         }
 
-        if (!this.patients.equals(newPatients)) {
+        if (rows.size() == 0 || !isSortedById(newPatients) || countStructuralChanges(newPatients) > MAX_STRUCTURAL_CHANGES) {
             Logger.log(Logger.LogLevel.INFO, "Patientenliste aktualisiert. Anzahl: " + newPatients.size());
-            this.patients = new ArrayList<>(newPatients);
+            this.rows = PatientColumns.of(newPatients);
             fireTableDataChanged();
-        } else {
-            Logger.log(Logger.LogLevel.INFO, "Keine Änderungen in der Patientenliste festgestellt.");
+            return;
+        }
+        applyDiff(newPatients);
+    }
+
+    private static boolean isSortedById(List<Patient> patients) {
+        for (int i = 1; i < patients.size(); i++) {
+            if (patients.get(i - 1).getPatientID() >= patients.get(i).getPatientID()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Zählt die zusammenhängenden Blöcke eingefügter bzw. entfernter IDs, ohne etwas zu ändern.
+     */
+    private int countStructuralChanges(List<Patient> newPatients) {
+        int blocks = 0;
+        int row = 0;
+        int j = 0;
+        int last = 0; // 1 = Einfügen, -1 = Löschen, 0 = gleiche ID
+        while (row < rows.size() || j < newPatients.size()) {
+            int step;
+            if (j == newPatients.size() || (row < rows.size() && rows.id(row) < newPatients.get(j).getPatientID())) {
+                step = -1;
+                row++;
+            } else if (row == rows.size() || rows.id(row) > newPatients.get(j).getPatientID()) {
+                step = 1;
+                j++;
+            } else {
+                step = 0;
+                row++;
+                j++;
+            }
+            if (step != 0 && step != last) {
+                blocks++;
+            }
+            last = step;
+        }
+        return blocks;
+    }
+
+    /**
+     * Gleicht die Zeilen mit der nach ID sortierten Liste ab und meldet jede Änderung sofort,
+     * damit Tabelle und Modell nach jedem Ereignis übereinstimmen.
+     */
+    private void applyDiff(List<Patient> newPatients) {
+        int inserted = 0;
+        int updated = 0;
+        int deleted = 0;
+        int updateFrom = -1;
+        int updateTo = -1;
+        int row = 0;
+        int j = 0;
+        int n = newPatients.size();
+        while (row < rows.size() || j < n) {
+            if (j < n && (row == rows.size() || rows.id(row) > newPatients.get(j).getPatientID())) {
+                int end = j + 1;
+                while (end < n && (row == rows.size() || rows.id(row) > newPatients.get(end).getPatientID())) {
+                    end++;
+                }
+                fireUpdated(updateFrom, updateTo);
+                updateFrom = -1;
+                rows.insert(row, newPatients, j, end);
+                fireTableRowsInserted(row, row + end - j - 1);
+                inserted += end - j;
+                row += end - j;
+                j = end;
+            } else if (j == n || rows.id(row) < newPatients.get(j).getPatientID()) {
+                int end = row + 1;
+                while (end < rows.size() && (j == n || rows.id(end) < newPatients.get(j).getPatientID())) {
+                    end++;
+                }
+                fireUpdated(updateFrom, updateTo);
+                updateFrom = -1;
+                rows.remove(row, end);
+                fireTableRowsDeleted(row, end - 1);
+                deleted += end - row;
+            } else {
+                Patient patient = newPatients.get(j);
+                if (rows.hash(row) != patient.contentHash()) {
+                    rows.set(row, patient);
+                    if (updateFrom < 0) {
+                        updateFrom = row;
+                    }
+                    updateTo = row;
+                    updated++;
+                }
+                row++;
+                j++;
+            }
+        }
+        fireUpdated(updateFrom, updateTo);
+        Logger.log(Logger.LogLevel.INFO, "Patientenliste abgeglichen. Anzahl: " + n
+                + " (neu: " + inserted + ", geändert: " + updated + ", entfernt: " + deleted + ")");
+    }
+
+    /** Meldet den Bereich geänderter Zeilen, sofern es einen gibt. */
+    private void fireUpdated(int from, int to) {
+        if (from >= 0) {
+            fireTableRowsUpdated(from, to);
+        }
+    }
+
+    /**
+     * Fügt einen neu angelegten Patienten an der zu seiner ID passenden Stelle ein.
+     * Ist die ID bereits vorhanden, wird die Zeile stattdessen aktualisiert.
+     *
+     * @param patient Der gespeicherte Patient (mit gültiger ID).
+     */
+    @Override
+    public void addPatient(Patient patient) {
+        int index = indexOf(patient.getPatientID());
+        if (index >= 0) {
+            rows.set(index, patient);
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+        index = -index - 1;
+        rows.insert(index, patient);
+        Logger.log(Logger.LogLevel.DEBUG, "Zeile eingefügt: " + index);
+        fireTableRowsInserted(index, index);
+    }
+
+    /**
+     * Wie {@link #addPatient(Patient)}, überschreibt eine vorhandene Zeile aber nur mit einer neueren Version.
+     * So ersetzt ein im Hintergrund geladener Stand keine inzwischen gespeicherte Änderung.
+     *
+     * @param patient Der gelesene Patient.
+     */
+    void addPatientIfNewer(Patient patient) {
+        int index = indexOf(patient.getPatientID());
+        if (index >= 0 && rows.version(index) >= patient.getVersion()) {
+            Logger.log(Logger.LogLevel.DEBUG, "Angezeigte Zeile ist aktueller: ID=" + patient.getPatientID());
+            return;
+        }
+        addPatient(patient);
+    }
+
+    /**
+     * Ersetzt die Zeile des Patienten mit derselben ID. Unbekannte IDs werden ignoriert,
+     * z. B. wenn gerade ein Suchergebnis angezeigt wird, das den Patienten nicht enthält.
+     *
+     * @param patient Der aktualisierte Patient.
+     */
+    @Override
+    public void updatePatient(Patient patient) {
+        int index = indexOf(patient.getPatientID());
+        if (index < 0) {
+            Logger.log(Logger.LogLevel.DEBUG, "Aktualisierter Patient wird nicht angezeigt: ID=" + patient.getPatientID());
+            return;
+        }
+        rows.set(index, patient);
+        fireTableRowsUpdated(index, index);
+    }
+
+    /**
+     * Entfernt die Zeile des Patienten mit der angegebenen ID, falls vorhanden.
+     *
+     * @param id Die ID des gelöschten Patienten.
+     */
+    @Override
+    public void removePatient(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return;
         }
+        rows.remove(index);
+        fireTableRowsDeleted(index, index);
+    }
+
+    /**
+     * Sucht eine Patienten-ID per binärer Suche.
+     *
+     * @return Der Zeilenindex oder {@code -(Einfügeposition) - 1}, wenn die ID nicht vorhanden ist.
+     */
+    private int indexOf(int id) {
+        return rows.indexOf(id);
     }
 
     /**
      * Gibt den Patienten an einem bestimmten Zeilenindex zurück.
      *
      * @param rowIndex Der Index der Zeile (0-basiert).
-     * @return Der Patient an der angegebenen Zeile oder {@code null}, wenn der Index ungültig ist.
+     * @return Eine neue Kopie des Patienten an der angegebenen Zeile oder {@code null}, wenn der Index ungültig ist.
      */
+    @Override
     public Patient getPatientAt(int rowIndex) {
-        try {
-            Logger.log(Logger.LogLevel.DEBUG, "Patient abgefragt für Zeile: " + rowIndex);
-            return patients.get(rowIndex);
-        } catch (IndexOutOfBoundsException e) {
-            Logger.log(Logger.LogLevel.ERROR, "Ungültiger Zeilenindex: " + rowIndex, e);
+        if (rowIndex < 0 || rowIndex >= rows.size()) {
+            Logger.log(Logger.LogLevel.ERROR, "Ungültiger Zeilenindex: " + rowIndex);
             return null;
         }
+        Logger.log(Logger.LogLevel.DEBUG, "Patient abgefragt für Zeile: " + rowIndex);
+        return rows.toPatient(rowIndex);
+    }
+
+    /**
+     * Gibt die Patienten-ID einer Zeile zurück, ohne ein {@link Patient}-Objekt zu erzeugen.
+     *
+     * @param rowIndex Der Index der Zeile (0-basiert).
+     * @return Die Patienten-ID.
+     * @throws IndexOutOfBoundsException Wenn der Index ungültig ist.
+     */
+    @Override
+    public int getPatientIdAt(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rows.size()) {
+            throw new IndexOutOfBoundsException("Ungültiger Zeilenindex: " + rowIndex);
+        }
+        return rows.id(rowIndex);
+    }
+
+    /**
+     * Gibt den normalisierten Text einer Zeile für den Tabellenfilter zurück, siehe {@link PatientColumns#filterText}.
+     *
+     * @param rowIndex Der Index der Zeile (0-basiert).
+     * @return Der Filtertext.
+     */
+    String filterText(int rowIndex) {
+        return rows.filterText(rowIndex);
     }
 }
@@ -1,16 +1,37 @@
 package utils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Die Logger-Klasse dient zum Protokollieren von Nachrichten auf verschiedenen Log-Ebenen.
  * Unterstützt werden die Ebenen DEBUG, INFO, WARN und ERROR.
  * Die Nachrichten werden in eine Log-Datei geschrieben und gleichzeitig auf der Konsole ausgegeben.
+ * <p>
+ * Standardmäßig wird asynchron protokolliert ({@code -Dlog.async=false} schaltet das ab): Der aufrufende Thread
+ * legt nur Zeitstempel, Aufrufer und Nachricht in einen begrenzten, sperrfreien Ringpuffer
+ * ({@code -Dlog.bufferSize}, Standard 8192). Ein einzelner Hintergrund-Thread formatiert die Einträge und schreibt
+ * sie gesammelt in die dauerhaft geöffnete Log-Datei und auf die Konsole. Was bei vollem Puffer passiert, legt
+ * {@code -Dlog.overflow} fest (siehe {@link OverflowPolicy}). Beim Beenden der JVM wird der Puffer geleert
+ * ({@link #shutdown()}).
  */
 public class Logger {
 
@@ -26,9 +47,53 @@ public class Logger {
     /** Aktuelles Log-Level der Anwendung. Nur Nachrichten auf diesem Level oder höher werden protokolliert. */
     private static final LogLevel settingLevel = LogLevel.DEBUG;
 
+    /** {@code true}, wenn über den Ringpuffer und den Schreib-Thread protokolliert wird. */
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("log.async", "true"));
+
+    /** Verhalten bei vollem Ringpuffer. */
+    private static final OverflowPolicy OVERFLOW_POLICY =
+            OverflowPolicy.valueOf(System.getProperty("log.overflow", OverflowPolicy.DROP_DEBUG.name()));
+
+    /** Bei {@link OverflowPolicy#SAMPLE}: wie viele DEBUG- und INFO-Nachrichten sich eine Stichprobe teilen. */
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger("log.sampleRate", 16));
+
+    /**
+     * {@code true}, wenn zu jeder Nachricht Klasse und Methode des Aufrufers protokolliert werden. Das Ermitteln
+     * kostet auch mit {@link StackWalker} etwa eine Mikrosekunde; ohne ({@code -Dlog.callerInfo=false}) kostet
+     * eine asynchrone Nachricht den aufrufenden Thread nur noch Zeitstempel, Eintrag und einen CAS.
+     */
+    private static final boolean CALLER_INFO = Boolean.parseBoolean(System.getProperty("log.callerInfo", "true"));
+
+    /** Ermittelt den Aufrufer, ohne wie {@link Thread#getStackTrace()} den ganzen Stack zu kopieren. */
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /** Der Ringpuffer im asynchronen Modus, sonst {@code null}. */
+    private static RingBuffer buffer;
+
+    /** Der Thread, der den Ringpuffer leert und schreibt. */
+    private static Thread writerThread;
+
+    /** Wird von {@link #shutdown()} gesetzt; danach wird wieder synchron protokolliert. */
+    private static volatile boolean closed;
+
+    /** {@code true}, während der Schreib-Thread auf neue Einträge wartet und geweckt werden muss. */
+    private static volatile boolean writerWaiting;
+
+    /**
+     * Wird gesetzt, sobald der Schreib-Thread seine Schleife verlassen hat. Wer danach noch einen Eintrag in den
+     * Puffer legt, schreibt ihn selbst ({@link #drainRemaining()}), sonst ginge er verloren.
+     */
+    private static volatile boolean writerDone;
+
+    /** Anzahl der wegen vollen Puffers verworfenen Nachrichten seit der letzten Meldung. */
+    private static final LongAdder dropped = new LongAdder();
+
     // Statischer Initialisierungsblock, der die Log-Datei beim Laden der Klasse erstellt.
     static {
         initializeLogFile();
+        if (ASYNC && logFile != null) {
+            startWriter();
+        }
     }
 
     /**
@@ -38,6 +103,94 @@ public class Logger {
         INFO, WARN, ERROR, DEBUG
     }
 
+    /**
+     * Verhalten des asynchronen Loggers, wenn der Ringpuffer voll ist.
+     */
+    public enum OverflowPolicy {
+        /** Der aufrufende Thread wartet, bis wieder Platz ist; es geht keine Nachricht verloren. */
+        BLOCK,
+        /** DEBUG-Nachrichten werden verworfen, alle anderen warten. */
+        DROP_DEBUG,
+        /** Ab drei Vierteln Füllstand wird von DEBUG- und INFO-Nachrichten nur jede {@code log.sampleRate}-te
+         * behalten, bei vollem Puffer keine; WARN und ERROR warten. */
+        SAMPLE
+    }
+
+    /**
+     * Ein Log-Eintrag, wie ihn der aufrufende Thread in den Ringpuffer legt; formatiert wird erst beim Schreiben.
+     */
+    private record Event(long millis, LogLevel level, StackWalker.StackFrame caller, String message, Throwable throwable) {
+    }
+
+    /**
+     * Begrenzter, sperrfreier Ringpuffer für viele schreibende Threads und einen lesenden
+     * (Verfahren nach D. Vyukov). Jeder Platz trägt eine Sequenznummer: Sie ist gleich der Schreibposition,
+     * wenn der Platz frei ist, und eins größer, wenn er belegt ist. Schreibende reservieren eine Position per
+     * CAS, der Lesende gibt Plätze durch Weiterzählen der Sequenz um die Kapazität wieder frei.
+     */
+    private static final class RingBuffer {
+        private final Event[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        /** Leseposition; nur der Schreib-Thread ändert sie, die Erzeuger lesen sie für den Füllstand. */
+        private volatile long head;
+
+        RingBuffer(int requestedCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+            slots = new Event[capacity];
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return slots.length;
+        }
+
+        /** @return Die ungefähre Anzahl belegter Plätze. */
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+
+        /** @return {@code false}, wenn der Puffer voll ist. */
+        boolean offer(Event event) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots[index] = event;
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (difference < 0) {
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        /** @return Der nächste Eintrag oder {@code null}, wenn keiner bereitliegt. Nur für den Schreib-Thread. */
+        Event poll() {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            Event event = slots[index];
+            slots[index] = null;
+            sequences.set(index, position + slots.length);
+            head = position + 1;
+            return event;
+        }
+    }
+
     /**
      * Initialisiert die Log-Datei. Erstellt das Verzeichnis und die Datei, falls diese nicht existieren.
      */
@@ -67,18 +220,7 @@ public class Logger {
      * @param message Die zu protokollierende Nachricht.
      */
     public static void log(LogLevel level, String message) {
-        if (logFile == null) {
-            System.err.println("Log-Datei ist nicht verfügbar. Nachricht: " + message);
-            return;
-        }
-
-        if (checkLoggingLevel(level)) {
-            String caller = getCallerInfo();
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            String logMessage = String.format("[%s] [%s] [%s] %s", timestamp, level, caller, message);
-            System.out.println(logMessage);
-            writeToFile(logMessage);
-        }
+        log(level, message, null);
     }
 
     /**
@@ -86,7 +228,7 @@ public class Logger {
      *
      * @param level     Der Log-Level der Nachricht.
      * @param message   Die zu protokollierende Nachricht.
-     * @param throwable Der Fehler, der protokolliert werden soll.
+     * @param throwable Der Fehler, der protokolliert werden soll, oder {@code null}.
      */
     public static void log(LogLevel level, String message, Throwable throwable) {
         if (logFile == null) {
@@ -95,16 +237,220 @@ public class Logger {
         }
 
         if (checkLoggingLevel(level)) {
-            String caller = getCallerInfo();
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            String logMessage = String.format("[%s] [%s] [%s] %s", timestamp, level, caller, message);
-            System.out.println(logMessage);
-            throwable.printStackTrace(System.out);
-            writeToFile(logMessage);
-            writeToFile(getStackTraceAsString(throwable));
+            if (buffer != null && !closed && enqueue(level, message, throwable)) {
+                return;
+            }
+            writeSync(new Event(System.currentTimeMillis(), level, callerFrame(), message, throwable));
+        }
+    }
+
+    /** Schreibt einen Eintrag sofort auf die Konsole und in die Log-Datei. */
+    private static void writeSync(Event event) {
+        String logMessage = format(event.millis(), event.level(), getCallerInfo(event.caller()), event.message());
+        System.out.println(logMessage);
+        if (event.throwable() != null) {
+            event.throwable().printStackTrace(System.out);
+        }
+        writeToFile(logMessage);
+        if (event.throwable() != null) {
+            writeToFile(getStackTraceAsString(event.throwable()));
         }
     }
 
+    /**
+     * Legt eine Nachricht in den Ringpuffer und wendet bei vollem Puffer die {@link OverflowPolicy} an.
+     * Verworfen wird, bevor der Aufrufer ermittelt wird, damit verworfene Nachrichten fast nichts kosten.
+     *
+     * @return {@code false}, wenn der Logger inzwischen beendet wurde und synchron geschrieben werden muss.
+     */
+    private static boolean enqueue(LogLevel level, String message, Throwable throwable) {
+        boolean droppable = switch (OVERFLOW_POLICY) {
+            case BLOCK -> false;
+            case DROP_DEBUG -> level == LogLevel.DEBUG;
+            case SAMPLE -> level == LogLevel.DEBUG || level == LogLevel.INFO;
+        };
+        if (droppable) {
+            int size = buffer.size();
+            boolean drop = OVERFLOW_POLICY == OverflowPolicy.SAMPLE
+                    ? size >= buffer.capacity() / 4 * 3 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0
+                    : size >= buffer.capacity();
+            if (drop) {
+                dropped.increment();
+                return true;
+            }
+        }
+
+        Event event = new Event(System.currentTimeMillis(), level, callerFrame(), message, throwable);
+        for (int attempt = 0; !buffer.offer(event); attempt++) {
+            if (droppable) {
+                dropped.increment();
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            wakeWriter();
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+        if (writerWaiting) {
+            wakeWriter();
+        }
+        // Der Schreib-Thread könnte den Puffer schon zum letzten Mal geleert haben
+        if (writerDone) {
+            drainRemaining();
+        }
+        return true;
+    }
+
+    /**
+     * Schreibt nach dem Ende des Schreib-Threads noch im Puffer liegende Einträge synchron. Gesperrt, weil der
+     * Puffer nur einen lesenden Thread verträgt.
+     */
+    private static synchronized void drainRemaining() {
+        Event event;
+        while ((event = buffer.poll()) != null) {
+            writeSync(event);
+        }
+    }
+
+    private static void wakeWriter() {
+        LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Öffnet die Log-Datei dauerhaft und startet den Schreib-Thread; registriert {@link #shutdown()} für das
+     * Beenden der JVM.
+     */
+    private static void startWriter() {
+        BufferedWriter fileWriter;
+        try {
+            fileWriter = Files.newBufferedWriter(Paths.get(logFile), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Log-Datei konnte nicht geöffnet werden, es wird synchron protokolliert: " + e.getMessage());
+            return;
+        }
+        buffer = new RingBuffer(Integer.getInteger("log.bufferSize", 8192));
+        writerThread = new Thread(() -> runWriter(fileWriter), "logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "logger-shutdown"));
+    }
+
+    /**
+     * Leert den Ringpuffer, bis {@link #shutdown()} aufgerufen wurde und keine Einträge mehr anstehen.
+     * Alle bereitliegenden Einträge werden gesammelt formatiert und mit einem Schreibvorgang pro Ziel ausgegeben.
+     */
+    private static void runWriter(BufferedWriter fileWriter) {
+        StringBuilder console = new StringBuilder(8192);
+        StringBuilder file = new StringBuilder(8192);
+        long[] cachedSecond = {Long.MIN_VALUE};
+        String[] cachedTimestamp = {null};
+        while (true) {
+            Event event = buffer.poll();
+            if (event != null) {
+                String timestamp = timestamp(event.millis(), cachedSecond, cachedTimestamp);
+                String logMessage = format(timestamp, event.level(), getCallerInfo(event.caller()), event.message());
+                console.append(logMessage).append(System.lineSeparator());
+                file.append(logMessage).append(System.lineSeparator());
+                if (event.throwable() != null) {
+                    StringWriter trace = new StringWriter();
+                    event.throwable().printStackTrace(new PrintWriter(trace));
+                    console.append(trace);
+                    file.append(getStackTraceAsString(event.throwable())).append(System.lineSeparator());
+                }
+                if (file.length() < 64 * 1024) {
+                    continue;
+                }
+            }
+
+            long droppedCount = dropped.sumThenReset();
+            if (droppedCount > 0) {
+                String logMessage = format(timestamp(System.currentTimeMillis(), cachedSecond, cachedTimestamp),
+                        LogLevel.WARN, Logger.class.getName(), droppedCount + " Log-Nachrichten verworfen (Puffer voll, " + OVERFLOW_POLICY + ")");
+                console.append(logMessage).append(System.lineSeparator());
+                file.append(logMessage).append(System.lineSeparator());
+            }
+            if (!file.isEmpty()) {
+                System.out.print(console);
+                try {
+                    fileWriter.append(file);
+                    fileWriter.flush();
+                } catch (IOException e) {
+                    System.err.println("Fehler beim Schreiben ins Logfile: " + e.getMessage());
+                }
+                console.setLength(0);
+                file.setLength(0);
+            }
+            if (event != null) {
+                continue;
+            }
+
+            if (closed && buffer.size() == 0) {
+                break;
+            }
+            writerWaiting = true;
+            if (buffer.size() == 0 && !closed) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            writerWaiting = false;
+        }
+        try {
+            fileWriter.close();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schließen des Logfiles: " + e.getMessage());
+        }
+        // Erst danach leeren: Wer vor writerDone eingereiht hat, wird hier geschrieben, alle anderen schreiben selbst
+        writerDone = true;
+        drainRemaining();
+    }
+
+    /**
+     * Beendet den asynchronen Modus: Der Schreib-Thread schreibt alle anstehenden Einträge und schließt die
+     * Log-Datei, spätere Nachrichten werden wieder synchron geschrieben. Wird beim Beenden der JVM automatisch
+     * aufgerufen; ohne asynchronen Modus passiert nichts.
+     */
+    public static void shutdown() {
+        if (writerThread == null || closed) {
+            return;
+        }
+        closed = true;
+        wakeWriter();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerDone) {
+            drainRemaining();
+        }
+    }
+
+    /**
+     * Formatiert den Zeitstempel; innerhalb derselben Sekunde wird der zuletzt formatierte wiederverwendet.
+     */
+    private static String timestamp(long millis, long[] cachedSecond, String[] cachedTimestamp) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != cachedSecond[0]) {
+            cachedSecond[0] = second;
+            cachedTimestamp[0] = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DATE_FORMAT);
+        }
+        return cachedTimestamp[0];
+    }
+
+    private static String format(long millis, LogLevel level, String caller, String message) {
+        return format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DATE_FORMAT),
+                level, caller, message);
+    }
+
+    private static String format(String timestamp, LogLevel level, String caller, String message) {
+        return "[" + timestamp + "] [" + level + "] [" + caller + "] " + message;
+    }
+
     /**
      * Konvertiert einen Stacktrace in einen lesbaren String.
      *
@@ -134,14 +480,29 @@ public class Logger {
     }
 
     /**
-     * Ermittelt Informationen über die Methode, die den Logger aufgerufen hat.
+     * Ermittelt die Methode, die den Logger aufgerufen hat (der erste Stack-Frame außerhalb dieser Klasse).
+     *
+     * @return Der Stack-Frame oder {@code null}, wenn er nicht ermittelt werden kann oder soll.
+     */
+    private static StackWalker.StackFrame callerFrame() {
+        if (!CALLER_INFO) {
+            return null;
+        }
+        return STACK_WALKER.walk(frames -> frames
+                .dropWhile(frame -> frame.getDeclaringClass() == Logger.class)
+                .findFirst()
+                .orElse(null));
+    }
+
+    /**
+     * Formatiert den Aufrufer einer Nachricht.
      *
+     * @param caller Der Stack-Frame des Aufrufers oder {@code null}.
      * @return Ein String im Format "Klasse#Methode".
      */
-    private static String getCallerInfo() {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        if (stackTrace.length > 3) {
-            return String.format("%s#%s", stackTrace[3].getClassName(), stackTrace[3].getMethodName());
+    private static String getCallerInfo(StackWalker.StackFrame caller) {
+        if (caller != null) {
+            return caller.getClassName() + "#" + caller.getMethodName();
         }
         return "UnknownCaller";
     }